@@ -1,17 +1,32 @@
 package com.example.demo.management_service.controller;
 
 import com.example.demo.management_service.dto.request.RegisterWebsiteRequest;
+import com.example.demo.management_service.dto.request.RegisterWebsitesBatchRequest;
+import com.example.demo.management_service.dto.response.BatchRegistrationResponse;
+import com.example.demo.management_service.dto.response.BatchRegistrationResult;
 import com.example.demo.management_service.dto.response.WebsiteResponse;
 import com.example.demo.management_service.mapper.WebsiteMapper;
 import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteFilter;
 import com.example.demo.management_service.service.WebsiteService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * REST controller for website management operations.
@@ -23,13 +38,67 @@ public class WebsiteController {
 
     private final WebsiteService websiteService;
     private final WebsiteMapper websiteMapper;
+    private final ObjectMapper objectMapper;
 
     public WebsiteController(
             WebsiteService websiteService,
-            WebsiteMapper websiteMapper
+            WebsiteMapper websiteMapper,
+            ObjectMapper objectMapper
     ) {
         this.websiteService = websiteService;
         this.websiteMapper = websiteMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lists registered websites, newest first, one page at a time.
+     * Pages are addressed by cursor rather than offset, so every page costs the same
+     * however deep it is. The page is written to the response as its rows are read:
+     * {@code {"items": [...], "nextCursor": "...", "hasMore": true}}.
+     *
+     * @param isActive     only websites with this active flag, if given
+     * @param crawlEnabled only websites with this crawl flag, if given
+     * @param websiteType  only websites of this type, if given
+     * @param cursor       nextCursor from the previous page, omitted for the first page
+     * @param limit        maximum number of websites on the page, at most 500
+     * @return ResponseEntity streaming the page as JSON with 200 status
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> listWebsites(
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) Boolean crawlEnabled,
+            @RequestParam(required = false) String websiteType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        // Validated here, before the response is committed, so bad arguments still get a 400
+        WebsiteService.WebsitePage page = websiteService.listWebsites(
+                new WebsiteFilter(isActive, crawlEnabled, websiteType),
+                cursor,
+                limit
+        );
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("items");
+                String nextCursor;
+                try {
+                    nextCursor = page.forEach(website -> writeWebsite(generator, website));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                generator.writeEndArray();
+                generator.writeStringField("nextCursor", nextCursor);
+                generator.writeBooleanField("hasMore", nextCursor != null);
+                generator.writeEndObject();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     /**
@@ -60,4 +129,51 @@ public class WebsiteController {
         // Return 201 Created with response body
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
+
+    /**
+     * Registers many websites in one request, e.g. when onboarding from a partner feed.
+     * Items succeed or fail independently; the response reports each item's outcome
+     * in request order.
+     *
+     * @param request the batch with one registration request per website
+     * @return ResponseEntity with per-item results and 200 status
+     */
+    @PostMapping("/register/batch")
+    public ResponseEntity<BatchRegistrationResponse> registerWebsites(
+            @Valid @RequestBody RegisterWebsitesBatchRequest request
+    ) {
+        List<WebsiteService.RegistrationResult> outcomes = websiteService.registerWebsites(request.websites());
+
+        List<BatchRegistrationResult> results = new ArrayList<>(outcomes.size());
+        int registered = 0;
+        for (int i = 0; i < outcomes.size(); i++) {
+            WebsiteService.RegistrationResult outcome = outcomes.get(i);
+            if (outcome.isRegistered()) {
+                registered++;
+                results.add(new BatchRegistrationResult(
+                        i, "registered", websiteMapper.toResponse(outcome.website()), null, null
+                ));
+            } else {
+                results.add(new BatchRegistrationResult(
+                        i, "failed", null, outcome.message(), outcome.errors().isEmpty() ? null : outcome.errors()
+                ));
+            }
+        }
+
+        BatchRegistrationResponse response = new BatchRegistrationResponse(
+                results.size(),
+                registered,
+                results.size() - registered,
+                results
+        );
+        return ResponseEntity.ok(response);
+    }
+
+    private void writeWebsite(JsonGenerator generator, Website website) {
+        try {
+            generator.writeObject(websiteMapper.toResponse(website));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
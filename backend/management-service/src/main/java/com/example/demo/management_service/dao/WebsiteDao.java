@@ -1,8 +1,12 @@
 package com.example.demo.management_service.dao;
 
 import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteCursor;
+import com.example.demo.management_service.model.WebsiteFilter;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object interface for Website entity.
@@ -18,6 +22,24 @@ public interface WebsiteDao {
      */
     Website insert(Website website);
 
+    /**
+     * Insert a website unless its primary domain is already registered.
+     * The uniqueness check and the insert happen atomically in one statement.
+     *
+     * @param website the website to insert
+     * @return the inserted website with generated ID and timestamps, or empty if the primary domain is taken
+     */
+    Optional<Website> insertIfAbsent(Website website);
+
+    /**
+     * Insert several websites in a single statement, skipping those whose primary domain
+     * is already registered or claimed by an earlier website in the list.
+     *
+     * @param websites the websites to insert
+     * @return for each input website, in input order, the inserted website or empty if it was skipped
+     */
+    List<Optional<Website>> insertAllIfAbsent(List<Website> websites);
+
     /**
      * Find a website by its primary domain.
      *
@@ -41,4 +63,15 @@ public interface WebsiteDao {
      * @return true if a website exists, false otherwise
      */
     boolean existsByPrimaryDomain(String primaryDomain);
+
+    /**
+     * Stream websites matching a filter, newest first, using keyset pagination.
+     * Each website is handed to the consumer as its row is read.
+     *
+     * @param filter   criteria the websites must match
+     * @param after    position to continue after, or null to start from the newest website
+     * @param limit    maximum number of websites to read
+     * @param consumer receives each website in order
+     */
+    void forEachPage(WebsiteFilter filter, WebsiteCursor after, int limit, Consumer<Website> consumer);
 }
@@ -0,0 +1,224 @@
+package com.example.demo.management_service.dao.impl;
+
+import com.example.demo.management_service.dao.WebsiteDao;
+import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteCursor;
+import com.example.demo.management_service.model.WebsiteFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of {@link WebsiteDaoImpl} for tenant lookups.
+ * Lookups by app key and by primary domain are served from memory, so resolving
+ * the website behind a widget request does not round-trip to Postgres.
+ *
+ * Each cache holds up to {@code app.websites.cache.max-size} entries and uses
+ * Caffeine's W-TinyLFU eviction. Found websites expire after
+ * {@code app.websites.cache.ttl}; unknown keys are cached as misses for the
+ * shorter {@code app.websites.cache.negative-ttl}. Inserts evict the new
+ * website's keys, again after the surrounding transaction commits; changes made
+ * by other nodes arrive through {@link WebsiteChangeListener}. With that listener
+ * disabled they are only seen once the TTL expires, so the TTL should stay short.
+ * Existence checks and listings always go to the database.
+ *
+ * Cached {@link Website} instances are shared between callers and must not be modified.
+ */
+@Repository
+@Primary
+public class CachingWebsiteDao implements WebsiteDao {
+
+    private final WebsiteDaoImpl delegate;
+    private final Cache<String, Optional<Website>> byAppKey;
+    private final Cache<String, Optional<Website>> byPrimaryDomain;
+
+    @Autowired
+    public CachingWebsiteDao(
+            WebsiteDaoImpl delegate,
+            @Value("${app.websites.cache.max-size:10000}") long maxSize,
+            @Value("${app.websites.cache.ttl:10m}") Duration ttl,
+            @Value("${app.websites.cache.negative-ttl:30s}") Duration negativeTtl,
+            MeterRegistry meterRegistry
+    ) {
+        this(delegate, maxSize, ttl, negativeTtl, meterRegistry, Ticker.systemTicker());
+    }
+
+    CachingWebsiteDao(
+            WebsiteDaoImpl delegate,
+            long maxSize,
+            Duration ttl,
+            Duration negativeTtl,
+            MeterRegistry meterRegistry,
+            Ticker ticker
+    ) {
+        this.delegate = delegate;
+        this.byAppKey = buildCache(maxSize, ttl, negativeTtl, ticker);
+        this.byPrimaryDomain = buildCache(maxSize, ttl, negativeTtl, ticker);
+        CaffeineCacheMetrics.monitor(meterRegistry, byAppKey, "websites.by-app-key");
+        CaffeineCacheMetrics.monitor(meterRegistry, byPrimaryDomain, "websites.by-primary-domain");
+    }
+
+    @Override
+    public Website insert(Website website) {
+        Website inserted = delegate.insert(website);
+        evictAfterCommit(List.of(inserted));
+        return inserted;
+    }
+
+    @Override
+    public Optional<Website> insertIfAbsent(Website website) {
+        Optional<Website> inserted = delegate.insertIfAbsent(website);
+        evictInserted(List.of(website), List.of(inserted));
+        return inserted;
+    }
+
+    @Override
+    public List<Optional<Website>> insertAllIfAbsent(List<Website> websites) {
+        List<Optional<Website>> inserted = delegate.insertAllIfAbsent(websites);
+        evictInserted(websites, inserted);
+        return inserted;
+    }
+
+    @Override
+    public Optional<Website> findByPrimaryDomain(String primaryDomain) {
+        return lookup(byPrimaryDomain, primaryDomain, delegate::findByPrimaryDomain);
+    }
+
+    @Override
+    public Optional<Website> findByAppKey(String appKey) {
+        return lookup(byAppKey, appKey, delegate::findByAppKey);
+    }
+
+    @Override
+    public boolean existsByPrimaryDomain(String primaryDomain) {
+        return delegate.existsByPrimaryDomain(primaryDomain);
+    }
+
+    @Override
+    public void forEachPage(WebsiteFilter filter, WebsiteCursor after, int limit, Consumer<Website> consumer) {
+        delegate.forEachPage(filter, after, limit, consumer);
+    }
+
+    /**
+     * Evict a website by app key, together with its cached primary domain entry.
+     *
+     * @param appKey the app key of the changed website
+     */
+    public void evictAppKey(String appKey) {
+        if (appKey == null) {
+            return;
+        }
+        Optional<Website> cached = byAppKey.getIfPresent(appKey);
+        byAppKey.invalidate(appKey);
+        if (cached != null) {
+            cached.ifPresent(website -> evictPrimaryDomain(website.getPrimaryDomain()));
+        }
+    }
+
+    /**
+     * Evict a website by primary domain, together with its cached app key entry.
+     *
+     * @param primaryDomain the primary domain of the changed website
+     */
+    public void evictPrimaryDomain(String primaryDomain) {
+        if (primaryDomain == null) {
+            return;
+        }
+        Optional<Website> cached = byPrimaryDomain.getIfPresent(primaryDomain);
+        byPrimaryDomain.invalidate(primaryDomain);
+        if (cached != null) {
+            cached.map(Website::getAppKey).ifPresent(byAppKey::invalidate);
+        }
+    }
+
+    /**
+     * Evict every cached entry, found or missing.
+     */
+    public void invalidateAll() {
+        byAppKey.invalidateAll();
+        byPrimaryDomain.invalidateAll();
+    }
+
+    private void evictInserted(List<Website> websites, List<Optional<Website>> inserted) {
+        for (int i = 0; i < websites.size(); i++) {
+            if (inserted.get(i).isEmpty()) {
+                // The domain is taken, so a cached miss for it is stale
+                evictPrimaryDomain(websites.get(i).getPrimaryDomain());
+            }
+        }
+        evictAfterCommit(inserted.stream().flatMap(Optional::stream).toList());
+    }
+
+    private void evictAfterCommit(List<Website> websites) {
+        websites.forEach(this::evict);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A lookup running alongside the transaction may have cached the old state again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    websites.forEach(CachingWebsiteDao.this::evict);
+                }
+            });
+        }
+    }
+
+    private void evict(Website website) {
+        evictAppKey(website.getAppKey());
+        evictPrimaryDomain(website.getPrimaryDomain());
+    }
+
+    private static Optional<Website> lookup(
+            Cache<String, Optional<Website>> cache,
+            String key,
+            Function<String, Optional<Website>> loader
+    ) {
+        if (key == null) {
+            return loader.apply(null);
+        }
+        return cache.get(key, loader);
+    }
+
+    private static Cache<String, Optional<Website>> buildCache(long maxSize, Duration ttl, Duration negativeTtl,
+                                                               Ticker ticker) {
+        long ttlNanos = ttl.toNanos();
+        long negativeTtlNanos = negativeTtl.toNanos();
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, Optional<Website>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<Website> value, long currentTime) {
+                        return value.isPresent() ? ttlNanos : negativeTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<Website> value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<Website> value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.management_service.dao.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Keeps the website lookup cache consistent across management-service nodes.
+ *
+ * Triggers on {@code websites} publish the keys of every inserted, updated or
+ * deleted row on the {@code website_changes} channel when the transaction
+ * commits. This listener holds a dedicated connection, outside the pool, that
+ * LISTENs on the channel and evicts the affected entries from
+ * {@link CachingWebsiteDao}. Whenever the connection is (re)established the
+ * whole cache is dropped, since changes made while not listening are lost.
+ *
+ * Disabled with {@code app.websites.cache.notifications.enabled=false}, in which
+ * case other nodes' changes only show once {@code app.websites.cache.ttl} expires.
+ */
+@Component
+@ConditionalOnProperty(name = "app.websites.cache.notifications.enabled", matchIfMissing = true)
+public class WebsiteChangeListener implements SmartLifecycle {
+
+    private static final String CHANNEL = "website_changes";
+
+    private static final Logger log = LoggerFactory.getLogger(WebsiteChangeListener.class);
+
+    private final CachingWebsiteDao cache;
+    private final DataSourceProperties dataSourceProperties;
+    private final ObjectMapper objectMapper;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public WebsiteChangeListener(
+            CachingWebsiteDao cache,
+            DataSourceProperties dataSourceProperties,
+            ObjectMapper objectMapper,
+            @Value("${app.websites.cache.notifications.poll-timeout:500ms}") Duration pollTimeout,
+            @Value("${app.websites.cache.notifications.reconnect-delay:5s}") Duration reconnectDelay
+    ) {
+        this.cache = cache;
+        this.dataSourceProperties = dataSourceProperties;
+        this.objectMapper = objectMapper;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "website-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(pollTimeout.toMillis() * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = connect()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                cache.invalidateAll();
+                log.info("Listening for website changes on channel '{}'", CHANNEL);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int timeoutMillis = (int) Math.max(1, pollTimeout.toMillis());
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(timeoutMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            apply(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Website change listener lost its connection, retrying in {}", reconnectDelay, e);
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Evict the cache entries named in a notification payload.
+     */
+    private void apply(String payload) {
+        JsonNode change;
+        try {
+            change = objectMapper.readTree(payload);
+        } catch (IOException e) {
+            log.warn("Dropping the website cache after a malformed change notification: {}", payload);
+            cache.invalidateAll();
+            return;
+        }
+        if ("TRUNCATE".equals(change.path("op").asText())) {
+            cache.invalidateAll();
+            return;
+        }
+        cache.evictAppKey(text(change, "app_key"));
+        cache.evictPrimaryDomain(text(change, "primary_domain"));
+        cache.evictAppKey(text(change, "old_app_key"));
+        cache.evictPrimaryDomain(text(change, "old_primary_domain"));
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword()
+        );
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static String text(JsonNode change, String field) {
+        JsonNode value = change.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
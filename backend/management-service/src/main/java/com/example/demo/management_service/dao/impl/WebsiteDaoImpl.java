@@ -2,10 +2,19 @@ package com.example.demo.management_service.dao.impl;
 
 import com.example.demo.management_service.dao.WebsiteDao;
 import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteCursor;
+import com.example.demo.management_service.model.WebsiteFilter;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * JDBI implementation of WebsiteDao.
@@ -76,6 +85,138 @@ public class WebsiteDaoImpl implements WebsiteDao {
         );
     }
 
+    @Override
+    public Optional<Website> insertIfAbsent(Website website) {
+        return jdbi.withHandle(handle ->
+                handle.createQuery("""
+                    INSERT INTO websites (
+                        app_key,
+                        name,
+                        website_type,
+                        description,
+                        contains_pii,
+                        contact_name,
+                        contact_email,
+                        contact_department,
+                        contact_phone,
+                        primary_domain,
+                        scannable_domains,
+                        is_active,
+                        crawl_enabled
+                    ) VALUES (
+                        :appKey,
+                        :name,
+                        :websiteType,
+                        :description,
+                        :containsPii,
+                        :contactName,
+                        :contactEmail,
+                        :contactDepartment,
+                        :contactPhone,
+                        :primaryDomain,
+                        :scannableDomainsJson::jsonb,
+                        :isActive,
+                        :crawlEnabled
+                    )
+                    ON CONFLICT (primary_domain) DO NOTHING
+                    RETURNING id, app_key, name, website_type, description, contains_pii,
+                              contact_name, contact_email, contact_department, contact_phone,
+                              primary_domain, scannable_domains::text as scannable_domains_json,
+                              is_active, crawl_enabled, created_at, updated_at
+                    """)
+                        .bind("appKey", website.getAppKey())
+                        .bind("name", website.getName())
+                        .bind("websiteType", website.getWebsiteType())
+                        .bind("description", website.getDescription())
+                        .bind("containsPii", website.getContainsPII())
+                        .bind("contactName", website.getContactName())
+                        .bind("contactEmail", website.getContactEmail())
+                        .bind("contactDepartment", website.getContactDepartment())
+                        .bind("contactPhone", website.getContactPhone())
+                        .bind("primaryDomain", website.getPrimaryDomain())
+                        .bind("scannableDomainsJson", website.getScannableDomainsJson())
+                        .bind("isActive", website.getIsActive())
+                        .bind("crawlEnabled", website.getCrawlEnabled())
+                        .mapToBean(Website.class)
+                        .findOne()
+        );
+    }
+
+    @Override
+    public List<Optional<Website>> insertAllIfAbsent(List<Website> websites) {
+        if (websites.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Website> inserted = jdbi.withHandle(handle ->
+                handle.createQuery("""
+                    INSERT INTO websites (
+                        app_key,
+                        name,
+                        website_type,
+                        description,
+                        contains_pii,
+                        contact_name,
+                        contact_email,
+                        contact_department,
+                        contact_phone,
+                        primary_domain,
+                        scannable_domains,
+                        is_active,
+                        crawl_enabled
+                    )
+                    SELECT app_key,
+                           name,
+                           website_type,
+                           description,
+                           contains_pii,
+                           contact_name,
+                           contact_email,
+                           contact_department,
+                           contact_phone,
+                           primary_domain,
+                           scannable_domains_json::jsonb,
+                           is_active,
+                           crawl_enabled
+                    FROM unnest(
+                        :appKeys, :names, :websiteTypes, :descriptions, :containsPii,
+                        :contactNames, :contactEmails, :contactDepartments, :contactPhones,
+                        :primaryDomains, :scannableDomainsJson, :isActive, :crawlEnabled
+                    ) AS batch (
+                        app_key, name, website_type, description, contains_pii,
+                        contact_name, contact_email, contact_department, contact_phone,
+                        primary_domain, scannable_domains_json, is_active, crawl_enabled
+                    )
+                    ON CONFLICT (primary_domain) DO NOTHING
+                    RETURNING id, app_key, name, website_type, description, contains_pii,
+                              contact_name, contact_email, contact_department, contact_phone,
+                              primary_domain, scannable_domains::text as scannable_domains_json,
+                              is_active, crawl_enabled, created_at, updated_at
+                    """)
+                        .bindArray("appKeys", String.class, column(websites, Website::getAppKey))
+                        .bindArray("names", String.class, column(websites, Website::getName))
+                        .bindArray("websiteTypes", String.class, column(websites, Website::getWebsiteType))
+                        .bindArray("descriptions", String.class, column(websites, Website::getDescription))
+                        .bindArray("containsPii", Boolean.class, column(websites, Website::getContainsPII))
+                        .bindArray("contactNames", String.class, column(websites, Website::getContactName))
+                        .bindArray("contactEmails", String.class, column(websites, Website::getContactEmail))
+                        .bindArray("contactDepartments", String.class, column(websites, Website::getContactDepartment))
+                        .bindArray("contactPhones", String.class, column(websites, Website::getContactPhone))
+                        .bindArray("primaryDomains", String.class, column(websites, Website::getPrimaryDomain))
+                        .bindArray("scannableDomainsJson", String.class, column(websites, Website::getScannableDomainsJson))
+                        .bindArray("isActive", Boolean.class, column(websites, Website::getIsActive))
+                        .bindArray("crawlEnabled", Boolean.class, column(websites, Website::getCrawlEnabled))
+                        .mapToBean(Website.class)
+                        .stream()
+                        .collect(Collectors.toMap(Website::getAppKey, Function.identity()))
+        );
+
+        // RETURNING does not promise input order and omits skipped rows,
+        // so rows are matched back by their unique app key
+        return websites.stream()
+                .map(website -> Optional.ofNullable(inserted.get(website.getAppKey())))
+                .toList();
+    }
+
     @Override
     public Optional<Website> findByPrimaryDomain(String primaryDomain) {
         return jdbi.withHandle(handle ->
@@ -123,4 +264,56 @@ public class WebsiteDaoImpl implements WebsiteDao {
                         .one()
         );
     }
+
+    @Override
+    public void forEachPage(WebsiteFilter filter, WebsiteCursor after, int limit, Consumer<Website> consumer) {
+        // Only fixed fragments are added to the SQL text; all values are bound
+        List<String> conditions = new ArrayList<>();
+        if (after != null) {
+            conditions.add("(created_at, id) < (:afterCreatedAt, :afterId)");
+        }
+        if (filter.isActive() != null) {
+            conditions.add("is_active = :isActive");
+        }
+        if (filter.crawlEnabled() != null) {
+            conditions.add("crawl_enabled = :crawlEnabled");
+        }
+        if (filter.websiteType() != null) {
+            conditions.add("website_type = :websiteType");
+        }
+        String where = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+
+        jdbi.useHandle(handle -> {
+            Query query = handle.createQuery("""
+                    SELECT id, app_key, name, website_type, description, contains_pii,
+                           contact_name, contact_email, contact_department, contact_phone,
+                           primary_domain, scannable_domains::text as scannable_domains_json,
+                           is_active, crawl_enabled, created_at, updated_at
+                    FROM websites
+                    %s
+                    ORDER BY created_at DESC, id DESC
+                    LIMIT :limit
+                    """.formatted(where))
+                    .bind("limit", limit);
+            if (after != null) {
+                query.bind("afterCreatedAt", after.createdAt())
+                        .bind("afterId", after.id());
+            }
+            if (filter.isActive() != null) {
+                query.bind("isActive", filter.isActive());
+            }
+            if (filter.crawlEnabled() != null) {
+                query.bind("crawlEnabled", filter.crawlEnabled());
+            }
+            if (filter.websiteType() != null) {
+                query.bind("websiteType", filter.websiteType());
+            }
+            query.mapToBean(Website.class)
+                    .useStream(websites -> websites.forEach(consumer));
+        });
+    }
+
+    private static <T> List<T> column(List<Website> websites, Function<Website, T> getter) {
+        return websites.stream().map(getter).toList();
+    }
 }
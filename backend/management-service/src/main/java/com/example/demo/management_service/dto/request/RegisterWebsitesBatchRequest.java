@@ -0,0 +1,18 @@
+package com.example.demo.management_service.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request DTO for registering many websites at once.
+ * Items are validated one by one, so an invalid item fails on its own
+ * without rejecting the rest of the batch.
+ */
+public record RegisterWebsitesBatchRequest(
+        @NotEmpty(message = "At least one website is required")
+        @Size(max = 1000, message = "A batch must not exceed 1000 websites")
+        List<RegisterWebsiteRequest> websites
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.demo.management_service.dto.response;
+
+import java.util.List;
+
+/**
+ * Response DTO for batch website registration.
+ * Contains one result per requested website, in request order.
+ */
+public record BatchRegistrationResponse(
+        int total,
+        int registered,
+        int failed,
+        List<BatchRegistrationResult> results
+) {
+}
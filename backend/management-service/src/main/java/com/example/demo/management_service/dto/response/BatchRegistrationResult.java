@@ -0,0 +1,17 @@
+package com.example.demo.management_service.dto.response;
+
+import java.util.Map;
+
+/**
+ * Outcome of registering one website from a batch.
+ * Registered items carry the created website; failed items carry the reason
+ * and, for invalid fields, field-level error details.
+ */
+public record BatchRegistrationResult(
+        int index,
+        String status,
+        WebsiteResponse website,
+        String message,
+        Map<String, String> errors
+) {
+}
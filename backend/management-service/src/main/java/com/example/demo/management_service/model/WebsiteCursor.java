@@ -0,0 +1,58 @@
+package com.example.demo.management_service.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the websites listing, ordered newest first by creation time and ID.
+ * Clients receive it as an opaque URL-safe token and pass it back to fetch the next page.
+ */
+public record WebsiteCursor(OffsetDateTime createdAt, long id) {
+
+    /**
+     * Creates the cursor that continues after the given website.
+     *
+     * @param website the last website of a page
+     * @return cursor positioned after the website
+     */
+    public static WebsiteCursor after(Website website) {
+        return new WebsiteCursor(website.getCreatedAt(), website.getId());
+    }
+
+    /**
+     * Encodes the cursor as an opaque token.
+     *
+     * @return URL-safe token
+     */
+    public String encode() {
+        String position = createdAt.toInstant() + "," + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}.
+     *
+     * @param token the token
+     * @return the cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static WebsiteCursor decode(String token) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = position.indexOf(',');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            Instant createdAt = Instant.parse(position.substring(0, separator));
+            long id = Long.parseLong(position.substring(separator + 1));
+            return new WebsiteCursor(OffsetDateTime.ofInstant(createdAt, ZoneOffset.UTC), id);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.management_service.model;
+
+/**
+ * Optional criteria for listing websites. A null criterion matches every website.
+ */
+public record WebsiteFilter(
+        Boolean isActive,
+        Boolean crawlEnabled,
+        String websiteType
+) {
+}
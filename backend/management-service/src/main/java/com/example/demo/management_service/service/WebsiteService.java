@@ -2,7 +2,13 @@ package com.example.demo.management_service.service;
 
 import com.example.demo.management_service.dto.request.ContactInfo;
 import com.example.demo.management_service.dto.request.DomainConfiguration;
+import com.example.demo.management_service.dto.request.RegisterWebsiteRequest;
 import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteFilter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Service interface for website management operations.
@@ -31,4 +37,67 @@ public interface WebsiteService {
             DomainConfiguration domainConfiguration,
             Boolean crawlEnabled
     );
+
+    /**
+     * Registers many websites at once.
+     * Each item is validated on its own, and the valid items are inserted together
+     * in one statement that also skips primary domains that are already registered.
+     *
+     * @param requests the websites to register
+     * @return one result per request, in request order
+     */
+    List<RegistrationResult> registerWebsites(List<RegisterWebsiteRequest> requests);
+
+    /**
+     * Prepares one page of the websites listing, newest first.
+     * The arguments are validated immediately; the websites are read when the page is streamed.
+     *
+     * @param filter criteria the websites must match
+     * @param cursor token returned with the previous page, or null for the first page
+     * @param limit  maximum number of websites on the page, clamped to 1..500
+     * @return the page, ready to be streamed
+     * @throws com.example.demo.management_service.exception.ValidationException if an argument is invalid
+     */
+    WebsitePage listWebsites(WebsiteFilter filter, String cursor, int limit);
+
+    /**
+     * One page of the websites listing.
+     */
+    @FunctionalInterface
+    interface WebsitePage {
+
+        /**
+         * Streams the page's websites to the consumer as they are read from the database.
+         *
+         * @param consumer receives each website in order
+         * @return the cursor for the next page, or null if this is the last page
+         */
+        String forEach(Consumer<Website> consumer);
+    }
+
+    /**
+     * Outcome of registering one website from a batch.
+     *
+     * @param website the registered website, or null if registration failed
+     * @param message why registration failed, or null if it succeeded
+     * @param errors  field-level validation errors, empty unless fields were invalid
+     */
+    record RegistrationResult(Website website, String message, Map<String, String> errors) {
+
+        public static RegistrationResult registered(Website website) {
+            return new RegistrationResult(website, null, Map.of());
+        }
+
+        public static RegistrationResult failed(String message) {
+            return new RegistrationResult(null, message, Map.of());
+        }
+
+        public static RegistrationResult failed(String message, Map<String, String> errors) {
+            return new RegistrationResult(null, message, errors);
+        }
+
+        public boolean isRegistered() {
+            return website != null;
+        }
+    }
 }
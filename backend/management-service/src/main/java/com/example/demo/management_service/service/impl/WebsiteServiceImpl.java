@@ -3,20 +3,31 @@ package com.example.demo.management_service.service.impl;
 import com.example.demo.management_service.dao.WebsiteDao;
 import com.example.demo.management_service.dto.request.ContactInfo;
 import com.example.demo.management_service.dto.request.DomainConfiguration;
+import com.example.demo.management_service.dto.request.RegisterWebsiteRequest;
 import com.example.demo.management_service.dto.request.ScannableDomain;
 import com.example.demo.management_service.exception.ValidationException;
 import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteCursor;
+import com.example.demo.management_service.model.WebsiteFilter;
 import com.example.demo.management_service.service.WebsiteService;
 import com.example.demo.management_service.util.EncryptionUtil;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 
 /**
@@ -27,18 +38,24 @@ import java.util.UUID;
 @Transactional
 public class WebsiteServiceImpl implements WebsiteService {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final Set<String> WEBSITE_TYPES = Set.of("website", "internal_app", "mobile_app");
+
     private final WebsiteDao websiteDao;
     private final EncryptionUtil encryptionUtil;
     private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     public WebsiteServiceImpl(
             WebsiteDao websiteDao,
             EncryptionUtil encryptionUtil,
-            ObjectMapper objectMapper
+            ObjectMapper objectMapper,
+            Validator validator
     ) {
         this.websiteDao = websiteDao;
         this.encryptionUtil = encryptionUtil;
         this.objectMapper = objectMapper;
+        this.validator = validator;
     }
 
     @Override
@@ -54,14 +71,123 @@ public class WebsiteServiceImpl implements WebsiteService {
         // Validate business rules
         validateBusinessRules(containsPii, domainConfiguration);
 
-        // Check domain uniqueness
-        if (websiteDao.existsByPrimaryDomain(domainConfiguration.primaryDomain())) {
-            throw new ValidationException(
-                    "A website with primary domain '" + domainConfiguration.primaryDomain() +
-                            "' already exists"
-            );
+        // Insert into database; the unique primary domain index rejects duplicates atomically
+        return websiteDao.insertIfAbsent(newWebsite(
+                name,
+                description,
+                websiteType,
+                containsPii,
+                contactInfo,
+                domainConfiguration,
+                crawlEnabled
+        )).orElseThrow(() -> new ValidationException(
+                duplicateDomainMessage(domainConfiguration.primaryDomain())
+        ));
+    }
+
+    @Override
+    public List<RegistrationResult> registerWebsites(List<RegisterWebsiteRequest> requests) {
+        RegistrationResult[] results = new RegistrationResult[requests.size()];
+
+        // Validate every item, keeping the first occurrence of each primary domain
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            RegisterWebsiteRequest request = requests.get(i);
+            Map<String, String> errors = validateFields(request);
+            if (!errors.isEmpty()) {
+                results[i] = RegistrationResult.failed("Validation failed for one or more fields", errors);
+                continue;
+            }
+            try {
+                validateBusinessRules(request.containsPii(), request.domainConfiguration());
+            } catch (ValidationException e) {
+                results[i] = RegistrationResult.failed(e.getMessage());
+                continue;
+            }
+            String primaryDomain = request.domainConfiguration().primaryDomain();
+            if (candidates.putIfAbsent(primaryDomain, i) != null) {
+                results[i] = RegistrationResult.failed(
+                        "Primary domain '" + primaryDomain + "' appears more than once in this batch"
+                );
+            }
+        }
+
+        List<Website> websites = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int index : candidates.values()) {
+            RegisterWebsiteRequest request = requests.get(index);
+            try {
+                websites.add(newWebsite(
+                        request.name(),
+                        request.description(),
+                        request.websiteType(),
+                        request.containsPii(),
+                        request.contactInfo(),
+                        request.domainConfiguration(),
+                        request.crawlEnabled()
+                ));
+                indexes.add(index);
+            } catch (ValidationException e) {
+                results[index] = RegistrationResult.failed(e.getMessage());
+            }
+        }
+
+        // Insert all remaining websites in one statement, which also skips already registered domains
+        if (!websites.isEmpty()) {
+            List<Optional<Website>> inserted = websiteDao.insertAllIfAbsent(websites);
+            for (int i = 0; i < inserted.size(); i++) {
+                String primaryDomain = websites.get(i).getPrimaryDomain();
+                results[indexes.get(i)] = inserted.get(i)
+                        .map(RegistrationResult::registered)
+                        .orElseGet(() -> RegistrationResult.failed(duplicateDomainMessage(primaryDomain)));
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public WebsitePage listWebsites(WebsiteFilter filter, String cursor, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        if (filter.websiteType() != null && !WEBSITE_TYPES.contains(filter.websiteType())) {
+            throw new ValidationException("Website type must be one of: website, internal_app, mobile_app");
+        }
+        WebsiteCursor after;
+        try {
+            after = cursor == null || cursor.isBlank() ? null : WebsiteCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor", e);
         }
 
+        return consumer -> {
+            // One extra row tells whether another page follows without a separate count
+            Website[] last = new Website[1];
+            int[] read = new int[1];
+            websiteDao.forEachPage(filter, after, pageSize + 1, website -> {
+                if (++read[0] <= pageSize) {
+                    consumer.accept(website);
+                    last[0] = website;
+                }
+            });
+            return read[0] > pageSize ? WebsiteCursor.after(last[0]).encode() : null;
+        };
+    }
+
+    /**
+     * Builds a new, active Website entity with encrypted credentials and a fresh app key.
+     *
+     * @return the website ready to be inserted
+     * @throws ValidationException if the scannable domains cannot be processed
+     */
+    private Website newWebsite(
+            String name,
+            String description,
+            String websiteType,
+            Boolean containsPii,
+            ContactInfo contactInfo,
+            DomainConfiguration domainConfiguration,
+            Boolean crawlEnabled
+    ) {
         // Encrypt credentials in scannable domains
         String scannableDomainsJson = encryptCredentials(domainConfiguration.scannableDomains());
 
@@ -89,8 +215,32 @@ public class WebsiteServiceImpl implements WebsiteService {
         website.setIsActive(true);
         website.setCrawlEnabled(crawlEnabled != null ? crawlEnabled : false);
 
-        // Insert into database
-        return websiteDao.insert(website);
+        return website;
+    }
+
+    /**
+     * Applies the request's bean validation constraints, as @Valid does for single registrations.
+     *
+     * @param request the registration request
+     * @return field-level errors keyed by property path, empty if the request is valid
+     */
+    private Map<String, String> validateFields(RegisterWebsiteRequest request) {
+        Map<String, String> errors = new TreeMap<>();
+        if (request == null) {
+            errors.put("request", "Website is required");
+            return errors;
+        }
+        for (ConstraintViolation<RegisterWebsiteRequest> violation : validator.validate(request)) {
+            errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        if (request.domainConfiguration() == null) {
+            errors.put("domainConfiguration", "Domain configuration is required");
+        }
+        return errors;
+    }
+
+    private static String duplicateDomainMessage(String primaryDomain) {
+        return "A website with primary domain '" + primaryDomain + "' already exists";
     }
 
     /**
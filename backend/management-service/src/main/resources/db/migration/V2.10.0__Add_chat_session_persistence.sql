@@ -0,0 +1,30 @@
+-- Link WebSocket chat sessions to conversations and support batched message persistence (Idempotent)
+-- navigation-service stores its chat sessions in these tables through R2DBC.
+
+-- Chat session id each conversation was created for
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS session_key VARCHAR(255);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_conversations_session_key ON conversations(session_key);
+
+-- Keyset pagination of a conversation's history by (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_created_id ON messages(conversation_id, created_at, id);
+
+-- Statement-level replacement for update_conversation_on_message_insert
+CREATE OR REPLACE FUNCTION update_conversations_on_messages_insert()
+RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE conversations
+    SET updated_at = CURRENT_TIMESTAMP
+    WHERE id IN (SELECT DISTINCT conversation_id FROM inserted_messages);
+    RETURN NULL;
+END;
+$$ language 'plpgsql';
+
+-- Touch each conversation once per insert statement rather than once per row,
+-- so a multi-row batch does not update the same conversation row repeatedly
+DROP TRIGGER IF EXISTS update_conversation_on_message_insert ON messages;
+DROP TRIGGER IF EXISTS update_conversations_on_messages_insert ON messages;
+CREATE TRIGGER update_conversations_on_messages_insert
+    AFTER INSERT ON messages
+    REFERENCING NEW TABLE AS inserted_messages
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION update_conversations_on_messages_insert();
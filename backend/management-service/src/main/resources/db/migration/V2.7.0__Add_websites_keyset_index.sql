@@ -0,0 +1,8 @@
+-- Support keyset pagination of the websites listing (Idempotent)
+-- GET /api/websites pages newest first with WHERE (created_at, id) < (:createdAt, :id),
+-- which this index answers with a range scan regardless of how deep the page is.
+
+CREATE INDEX IF NOT EXISTS idx_websites_created_at_id ON websites(created_at DESC, id DESC);
+
+-- Lookups by created_at alone are served by the leading column of the new index
+DROP INDEX IF EXISTS idx_websites_created_at;
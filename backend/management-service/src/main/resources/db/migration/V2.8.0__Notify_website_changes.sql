@@ -0,0 +1,39 @@
+-- Publish website changes on the website_changes notification channel (Idempotent)
+-- Each management-service node LISTENs on this channel and evicts the affected
+-- entries from its website lookup cache. Notifications are delivered on commit.
+--
+-- Payload: {"op": "INSERT|UPDATE|DELETE|TRUNCATE", "app_key": ..., "primary_domain": ...,
+--           "old_app_key": ..., "old_primary_domain": ...}
+
+CREATE OR REPLACE FUNCTION notify_website_change()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('website_changes', json_build_object('op', TG_OP)::text);
+        RETURN NULL;
+    END IF;
+
+    PERFORM pg_notify('website_changes', json_build_object(
+        'op', TG_OP,
+        'app_key', CASE WHEN TG_OP = 'DELETE' THEN NULL ELSE NEW.app_key END,
+        'primary_domain', CASE WHEN TG_OP = 'DELETE' THEN NULL ELSE NEW.primary_domain END,
+        'old_app_key', CASE WHEN TG_OP = 'INSERT' THEN NULL ELSE OLD.app_key END,
+        'old_primary_domain', CASE WHEN TG_OP = 'INSERT' THEN NULL ELSE OLD.primary_domain END
+    )::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+COMMENT ON FUNCTION notify_website_change() IS 'Sends the keys of a changed website on the website_changes channel for cache invalidation';
+
+DROP TRIGGER IF EXISTS notify_websites_change ON websites;
+CREATE TRIGGER notify_websites_change
+    AFTER INSERT OR UPDATE OR DELETE ON websites
+    FOR EACH ROW
+    EXECUTE FUNCTION notify_website_change();
+
+DROP TRIGGER IF EXISTS notify_websites_truncate ON websites;
+CREATE TRIGGER notify_websites_truncate
+    AFTER TRUNCATE ON websites
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_website_change();
@@ -0,0 +1,27 @@
+-- Enforce one website per primary domain (Idempotent)
+-- Registration inserts with ON CONFLICT (primary_domain) DO NOTHING, which needs
+-- a unique index on the column. NULL primary domains (legacy rows) stay allowed.
+
+DO $$
+DECLARE
+    duplicates TEXT;
+BEGIN
+    SELECT string_agg(primary_domain, ', ')
+    INTO duplicates
+    FROM (
+        SELECT primary_domain
+        FROM websites
+        WHERE primary_domain IS NOT NULL
+        GROUP BY primary_domain
+        HAVING COUNT(*) > 1
+    ) AS duplicated;
+
+    IF duplicates IS NOT NULL THEN
+        RAISE EXCEPTION 'Cannot make websites.primary_domain unique, duplicated domains: %', duplicates;
+    END IF;
+END $$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_websites_primary_domain ON websites(primary_domain);
+
+-- The unique index serves primary domain lookups, so the plain index is redundant
+DROP INDEX IF EXISTS idx_websites_primary_domain;
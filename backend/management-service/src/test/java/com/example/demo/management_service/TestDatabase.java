@@ -0,0 +1,67 @@
+package com.example.demo.management_service;
+
+import org.flywaydb.core.Flyway;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.postgres.PostgresPlugin;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+/**
+ * Throwaway Postgres with the service's migrations applied, shared by the
+ * database tests and started on first use. Tests using it should be annotated
+ * {@code @Testcontainers(disabledWithoutDocker = true)} so they are skipped
+ * where Docker is not available.
+ */
+public final class TestDatabase {
+
+	// The migrations enable the vector extension, which plain postgres images lack
+	private static final DockerImageName IMAGE = DockerImageName.parse("pgvector/pgvector:pg15")
+			.asCompatibleSubstituteFor("postgres");
+
+	private static Jdbi jdbi;
+	private static DataSourceProperties properties;
+
+	private TestDatabase() {
+	}
+
+	/**
+	 * JDBI for the migrated database, configured like {@code JdbiConfiguration}.
+	 */
+	public static synchronized Jdbi jdbi() {
+		if (jdbi == null) {
+			PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(IMAGE);
+			postgres.start();
+			properties = new DataSourceProperties();
+			properties.setUrl(postgres.getJdbcUrl());
+			properties.setUsername(postgres.getUsername());
+			properties.setPassword(postgres.getPassword());
+			Flyway.configure()
+					.dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+					.locations("classpath:db/migration")
+					.load()
+					.migrate();
+			jdbi = Jdbi.create(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+					.installPlugin(new PostgresPlugin())
+					.installPlugin(new SqlObjectPlugin());
+		}
+		return jdbi;
+	}
+
+	/**
+	 * Connection settings of the migrated database, for components that open
+	 * their own connections.
+	 */
+	public static synchronized DataSourceProperties dataSourceProperties() {
+		jdbi();
+		return properties;
+	}
+
+	/**
+	 * Remove every website, and whatever references one, left by a previous test.
+	 */
+	public static void clearWebsites() {
+		jdbi().useHandle(handle -> handle.execute("TRUNCATE websites CASCADE"));
+	}
+}
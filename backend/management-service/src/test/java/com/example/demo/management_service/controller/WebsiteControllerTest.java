@@ -0,0 +1,113 @@
+package com.example.demo.management_service.controller;
+
+import com.example.demo.management_service.dao.impl.WebsiteDaoImpl;
+import com.example.demo.management_service.exception.GlobalExceptionHandler;
+import com.example.demo.management_service.mapper.WebsiteMapper;
+import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteCursor;
+import com.example.demo.management_service.model.WebsiteFilter;
+import com.example.demo.management_service.service.impl.WebsiteServiceImpl;
+import com.example.demo.management_service.util.EncryptionUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class WebsiteControllerTest {
+
+	private final FakeWebsiteDao dao = new FakeWebsiteDao();
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final MockMvc mvc = MockMvcBuilders
+		.standaloneSetup(new WebsiteController(
+			new WebsiteServiceImpl(
+				dao,
+				new EncryptionUtil(Base64.getEncoder().encodeToString(new byte[32])),
+				objectMapper,
+				Validation.buildDefaultValidatorFactory().getValidator()
+			),
+			new WebsiteMapper(objectMapper),
+			objectMapper
+		))
+		.setControllerAdvice(new GlobalExceptionHandler())
+		.build();
+
+	@Test
+	void malformedCursorIsABadRequest() throws Exception {
+		mvc.perform(get("/api/websites").param("cursor", "not a cursor"))
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.message").value("Invalid cursor"));
+		assertEquals(-1, dao.requestedLimit);
+	}
+
+	@Test
+	void oversizedPageIsClampedToTheMaximum() throws Exception {
+		MvcResult result = mvc.perform(get("/api/websites").param("limit", "10000"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+
+		mvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items.length()").value(500))
+			.andExpect(jsonPath("$.hasMore").value(true))
+			.andExpect(jsonPath("$.nextCursor").value(WebsiteCursor.after(FakeWebsiteDao.website(500)).encode()));
+		assertEquals(501, dao.requestedLimit);
+	}
+
+	@Test
+	void emptyPageIsClampedToOneWebsite() throws Exception {
+		MvcResult result = mvc.perform(get("/api/websites").param("limit", "0"))
+			.andExpect(request().asyncStarted())
+			.andReturn();
+
+		mvc.perform(asyncDispatch(result))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$.items.length()").value(1));
+		assertEquals(2, dao.requestedLimit);
+	}
+
+	/**
+	 * Answers every page with as many websites as asked for, newest first.
+	 */
+	private static final class FakeWebsiteDao extends WebsiteDaoImpl {
+		int requestedLimit = -1;
+
+		FakeWebsiteDao() {
+			super(null);
+		}
+
+		@Override
+		public void forEachPage(WebsiteFilter filter, WebsiteCursor after, int limit, Consumer<Website> consumer) {
+			requestedLimit = limit;
+			for (int i = 1; i <= limit; i++) {
+				consumer.accept(website(i));
+			}
+		}
+
+		static Website website(int index) {
+			Website website = new Website();
+			website.setId(100_000L - index);
+			website.setAppKey("key-" + index);
+			website.setName("Site " + index);
+			website.setWebsiteType("website");
+			website.setPrimaryDomain("https://site" + index + ".example");
+			website.setScannableDomainsJson("[]");
+			website.setCreatedAt(OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).minusMinutes(index));
+			return website;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package com.example.demo.management_service.dao.impl;
+
+import com.example.demo.management_service.model.Website;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingWebsiteDaoTest {
+
+	private final AtomicLong nanos = new AtomicLong();
+	private final FakeWebsiteDao database = new FakeWebsiteDao();
+	private final CachingWebsiteDao dao = new CachingWebsiteDao(database, 100, Duration.ofMinutes(10),
+		Duration.ofSeconds(30), new SimpleMeterRegistry(), nanos::get);
+
+	@AfterEach
+	void clearTransaction() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	void foundWebsitesAreCachedForTheTtl() {
+		database.save(website("key-1", "one.example"));
+
+		dao.findByAppKey("key-1");
+		advance(Duration.ofMinutes(9));
+		dao.findByAppKey("key-1");
+		assertEquals(1, database.loads.get());
+
+		advance(Duration.ofMinutes(2));
+		dao.findByAppKey("key-1");
+		assertEquals(2, database.loads.get());
+	}
+
+	@Test
+	void missesAreCachedForTheShorterNegativeTtl() {
+		assertTrue(dao.findByPrimaryDomain("missing.example").isEmpty());
+		advance(Duration.ofSeconds(20));
+		dao.findByPrimaryDomain("missing.example");
+		assertEquals(1, database.loads.get());
+
+		advance(Duration.ofSeconds(20));
+		database.save(website("key-1", "missing.example"));
+		assertEquals("key-1", dao.findByPrimaryDomain("missing.example").orElseThrow().getAppKey());
+		assertEquals(2, database.loads.get());
+	}
+
+	@Test
+	void insertEvictsAgainOnceTheTransactionCommits() {
+		TransactionSynchronizationManager.initSynchronization();
+		dao.insert(website("key-1", "one.example"));
+		// A lookup racing the uncommitted insert caches the old state
+		assertTrue(dao.findByAppKey("key-1").isEmpty());
+
+		database.save(website("key-1", "one.example"));
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+		assertEquals("one.example", dao.findByAppKey("key-1").orElseThrow().getPrimaryDomain());
+		assertEquals(2, database.loads.get());
+	}
+
+	@Test
+	void rolledBackInsertLeavesTheCacheAlone() {
+		TransactionSynchronizationManager.initSynchronization();
+		dao.insert(website("key-1", "one.example"));
+		assertTrue(dao.findByAppKey("key-1").isEmpty());
+
+		TransactionSynchronizationManager.getSynchronizations()
+			.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertTrue(dao.findByAppKey("key-1").isEmpty());
+		assertEquals(1, database.loads.get());
+	}
+
+	@Test
+	void evictingEitherKeyDropsBothEntriesOfTheWebsite() {
+		database.save(website("key-1", "one.example"));
+		dao.findByAppKey("key-1");
+		dao.findByPrimaryDomain("one.example");
+
+		dao.evictAppKey("key-1");
+		dao.findByAppKey("key-1");
+		dao.findByPrimaryDomain("one.example");
+		assertEquals(4, database.loads.get());
+
+		dao.evictPrimaryDomain("one.example");
+		dao.findByAppKey("key-1");
+		dao.findByPrimaryDomain("one.example");
+		assertEquals(6, database.loads.get());
+	}
+
+	@Test
+	void skippedInsertEvictsTheCachedMissForItsDomain() {
+		assertTrue(dao.findByPrimaryDomain("taken.example").isEmpty());
+		database.save(website("key-0", "taken.example"));
+
+		assertTrue(dao.insertIfAbsent(website("key-1", "taken.example")).isEmpty());
+
+		assertEquals("key-0", dao.findByPrimaryDomain("taken.example").orElseThrow().getAppKey());
+	}
+
+	private void advance(Duration duration) {
+		nanos.addAndGet(duration.toNanos());
+	}
+
+	private static Website website(String appKey, String primaryDomain) {
+		Website website = new Website();
+		website.setAppKey(appKey);
+		website.setPrimaryDomain(primaryDomain);
+		return website;
+	}
+
+	/**
+	 * Stands in for Postgres: inserts only become visible once saved.
+	 */
+	private static final class FakeWebsiteDao extends WebsiteDaoImpl {
+		final Map<String, Website> websites = new ConcurrentHashMap<>();
+		final AtomicInteger loads = new AtomicInteger();
+
+		FakeWebsiteDao() {
+			super(null);
+		}
+
+		void save(Website website) {
+			websites.put(website.getAppKey(), website);
+		}
+
+		@Override
+		public Website insert(Website website) {
+			return website;
+		}
+
+		@Override
+		public Optional<Website> insertIfAbsent(Website website) {
+			if (findByPrimaryDomain(website.getPrimaryDomain()).isPresent()) {
+				return Optional.empty();
+			}
+			return Optional.of(website);
+		}
+
+		@Override
+		public List<Optional<Website>> insertAllIfAbsent(List<Website> batch) {
+			return batch.stream().map(this::insertIfAbsent).toList();
+		}
+
+		@Override
+		public Optional<Website> findByAppKey(String appKey) {
+			loads.incrementAndGet();
+			return Optional.ofNullable(websites.get(appKey));
+		}
+
+		@Override
+		public Optional<Website> findByPrimaryDomain(String primaryDomain) {
+			loads.incrementAndGet();
+			return websites.values().stream()
+				.filter(website -> website.getPrimaryDomain().equals(primaryDomain))
+				.findFirst();
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.example.demo.management_service.dao.impl;
+
+import com.example.demo.management_service.TestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static com.example.demo.management_service.dao.impl.WebsiteDaoImplTest.website;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@Testcontainers(disabledWithoutDocker = true)
+class WebsiteChangeListenerTest {
+
+	private static final String LISTENERS =
+		"SELECT count(*) FROM pg_stat_activity WHERE query = 'LISTEN website_changes'";
+
+	private final Jdbi jdbi = TestDatabase.jdbi();
+	private final WebsiteDaoImpl database = new WebsiteDaoImpl(jdbi);
+	// Entries outlive the test unless a notification evicts them
+	private final CachingWebsiteDao cache = new CachingWebsiteDao(database, 100, Duration.ofHours(1),
+		Duration.ofHours(1), new SimpleMeterRegistry());
+	private final WebsiteChangeListener listener = new WebsiteChangeListener(cache,
+		TestDatabase.dataSourceProperties(), new ObjectMapper(), Duration.ofMillis(100), Duration.ofMillis(500));
+
+	@BeforeEach
+	void startListening() {
+		TestDatabase.clearWebsites();
+		listener.start();
+		await(() -> listeners() == 1);
+	}
+
+	@AfterEach
+	void stopListening() {
+		listener.stop();
+		await(() -> listeners() == 0);
+	}
+
+	@Test
+	void insertEvictsTheCachedMiss() {
+		assertTrue(cache.findByAppKey("key-1").isEmpty());
+
+		database.insert(website("key-1", "https://one.example"));
+
+		await(() -> cache.findByAppKey("key-1").isPresent());
+	}
+
+	@Test
+	void updateEvictsTheOldAndNewKeys() {
+		database.insert(website("key-1", "https://one.example"));
+		assertTrue(cache.findByPrimaryDomain("https://one.example").isPresent());
+		assertTrue(cache.findByPrimaryDomain("https://two.example").isEmpty());
+
+		jdbi.useHandle(handle -> handle.execute(
+			"UPDATE websites SET primary_domain = 'https://two.example' WHERE app_key = 'key-1'"));
+
+		await(() -> cache.findByPrimaryDomain("https://one.example").isEmpty());
+		await(() -> cache.findByPrimaryDomain("https://two.example").isPresent());
+		assertEquals("https://two.example", cache.findByAppKey("key-1").orElseThrow().getPrimaryDomain());
+	}
+
+	@Test
+	void truncateDropsTheWholeCache() {
+		database.insert(website("key-1", "https://one.example"));
+		database.insert(website("key-2", "https://two.example"));
+		assertTrue(cache.findByAppKey("key-1").isPresent());
+		assertTrue(cache.findByAppKey("key-2").isPresent());
+
+		TestDatabase.clearWebsites();
+
+		await(() -> cache.findByAppKey("key-1").isEmpty());
+		assertTrue(cache.findByAppKey("key-2").isEmpty());
+	}
+
+	@Test
+	void reconnectDropsChangesMissedWhileDisconnected() {
+		database.insert(website("key-1", "https://one.example"));
+		assertTrue(cache.findByAppKey("key-1").isPresent());
+
+		jdbi.useHandle(handle -> handle.execute(
+			"SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = 'LISTEN website_changes'"));
+		await(() -> listeners() == 0);
+		// Nobody is listening, so this notification is lost
+		jdbi.useHandle(handle -> handle.execute("DELETE FROM websites WHERE app_key = 'key-1'"));
+		assertTrue(cache.findByAppKey("key-1").isPresent());
+
+		await(() -> listeners() == 1);
+		await(() -> cache.findByAppKey("key-1").isEmpty());
+	}
+
+	private int listeners() {
+		return jdbi.withHandle(handle -> handle.createQuery(LISTENERS).mapTo(Integer.class).one());
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			if (System.nanoTime() > deadline) {
+				fail("Condition not met within 10s");
+			}
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.example.demo.management_service.dao.impl;
+
+import com.example.demo.management_service.TestDatabase;
+import com.example.demo.management_service.model.Website;
+import com.example.demo.management_service.model.WebsiteCursor;
+import com.example.demo.management_service.model.WebsiteFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class WebsiteDaoImplTest {
+
+	private final WebsiteDaoImpl dao = new WebsiteDaoImpl(TestDatabase.jdbi());
+
+	@BeforeEach
+	void clearWebsites() {
+		TestDatabase.clearWebsites();
+	}
+
+	@Test
+	void batchInsertStoresEveryColumnAndAnswersInInputOrder() {
+		Website full = website("key-1", "https://one.example");
+		full.setDescription("First site");
+		full.setContainsPII(true);
+		full.setContactName("Ada");
+		full.setContactEmail("ada@one.example");
+		full.setContactDepartment("Docs");
+		full.setContactPhone("555-123-4567");
+		full.setScannableDomainsJson("[{\"url\":\"https://one.example/app\"}]");
+		full.setCrawlEnabled(true);
+		Website sparse = website("key-2", "https://two.example");
+
+		List<Optional<Website>> inserted = dao.insertAllIfAbsent(List.of(full, sparse));
+
+		assertEquals(List.of("key-1", "key-2"), inserted.stream().map(website -> website.orElseThrow().getAppKey()).toList());
+		Website stored = dao.findByAppKey("key-1").orElseThrow();
+		assertNotNull(stored.getId());
+		assertNotNull(stored.getCreatedAt());
+		assertEquals("First site", stored.getDescription());
+		assertEquals(true, stored.getContainsPII());
+		assertEquals("Ada", stored.getContactName());
+		assertEquals("ada@one.example", stored.getContactEmail());
+		assertEquals("Docs", stored.getContactDepartment());
+		assertEquals("555-123-4567", stored.getContactPhone());
+		assertTrue(stored.getScannableDomainsJson().contains("https://one.example/app"));
+		assertEquals(true, stored.getCrawlEnabled());
+		assertEquals("https://two.example", dao.findByAppKey("key-2").orElseThrow().getPrimaryDomain());
+	}
+
+	@Test
+	void insertIfAbsentSkipsATakenDomain() {
+		assertTrue(dao.insertIfAbsent(website("key-1", "https://one.example")).isPresent());
+
+		assertTrue(dao.insertIfAbsent(website("key-2", "https://one.example")).isEmpty());
+		assertEquals("key-1", dao.findByPrimaryDomain("https://one.example").orElseThrow().getAppKey());
+		assertTrue(dao.findByAppKey("key-2").isEmpty());
+	}
+
+	@Test
+	void batchInsertMapsSkippedRowsBackByAppKey() {
+		dao.insertIfAbsent(website("key-0", "https://two.example"));
+
+		List<Optional<Website>> inserted = dao.insertAllIfAbsent(List.of(
+			website("key-1", "https://one.example"),
+			website("key-2", "https://two.example"),
+			website("key-3", "https://three.example")
+		));
+
+		assertEquals("key-1", inserted.get(0).orElseThrow().getAppKey());
+		assertTrue(inserted.get(1).isEmpty());
+		assertEquals("key-3", inserted.get(2).orElseThrow().getAppKey());
+		assertEquals("key-0", dao.findByPrimaryDomain("https://two.example").orElseThrow().getAppKey());
+	}
+
+	@Test
+	void duplicateDomainsWithinOneBatchInsertOnce() {
+		List<Optional<Website>> inserted = dao.insertAllIfAbsent(List.of(
+			website("key-1", "https://one.example"),
+			website("key-2", "https://one.example")
+		));
+
+		List<String> insertedKeys = inserted.stream().flatMap(Optional::stream).map(Website::getAppKey).toList();
+		assertEquals(1, insertedKeys.size());
+		assertEquals(insertedKeys.get(0), dao.findByPrimaryDomain("https://one.example").orElseThrow().getAppKey());
+	}
+
+	@Test
+	void pagesStayInOrderWhenCreationTimesTie() {
+		for (int i = 0; i < 5; i++) {
+			dao.insert(website("key-" + i, "https://site" + i + ".example"));
+		}
+		TestDatabase.jdbi().useHandle(handle ->
+			handle.execute("UPDATE websites SET created_at = TIMESTAMPTZ '2025-01-01 00:00:00+00'"));
+
+		List<Website> listed = new ArrayList<>();
+		WebsiteCursor after = null;
+		do {
+			List<Website> page = new ArrayList<>();
+			dao.forEachPage(new WebsiteFilter(null, null, null), after, 2, page::add);
+			listed.addAll(page);
+			after = page.size() == 2 ? WebsiteCursor.after(page.get(1)) : null;
+		} while (after != null);
+
+		List<Long> ids = listed.stream().map(Website::getId).toList();
+		assertEquals(5, ids.size());
+		assertEquals(ids.stream().sorted(Comparator.reverseOrder()).distinct().toList(), ids);
+	}
+
+	@Test
+	void emptyBatchInsertsNothing() {
+		assertEquals(List.of(), dao.insertAllIfAbsent(List.of()));
+	}
+
+	static Website website(String appKey, String primaryDomain) {
+		Website website = new Website();
+		website.setAppKey(appKey);
+		website.setName(appKey);
+		website.setWebsiteType("website");
+		website.setContainsPII(false);
+		website.setPrimaryDomain(primaryDomain);
+		website.setScannableDomainsJson("[]");
+		website.setIsActive(true);
+		website.setCrawlEnabled(false);
+		return website;
+	}
+}
@@ -0,0 +1,39 @@
+package com.example.demo.management_service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebsiteCursorTest {
+
+	@Test
+	void tokenRoundTripsToTheSameInstantAndId() {
+		OffsetDateTime createdAt = OffsetDateTime.of(2025, 3, 9, 23, 59, 58, 123_456_000, ZoneOffset.ofHours(-5));
+		WebsiteCursor cursor = new WebsiteCursor(createdAt, 9_007_199_254_740_993L);
+
+		WebsiteCursor decoded = WebsiteCursor.decode(cursor.encode());
+
+		assertEquals(createdAt.toInstant(), decoded.createdAt().toInstant());
+		assertEquals(9_007_199_254_740_993L, decoded.id());
+	}
+
+	@Test
+	void tokenIsUrlSafe() {
+		String token = new WebsiteCursor(OffsetDateTime.now(ZoneOffset.UTC), 42).encode();
+
+		assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+	}
+
+	@Test
+	void malformedTokensAreRejected() {
+		// Not base64, no separator ("123"), and neither part parseable ("x,y")
+		for (String token : new String[] {"not base64!", "MTIz", "eCx5"}) {
+			assertThrows(IllegalArgumentException.class, () -> WebsiteCursor.decode(token), token);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.example.demo.management_service.service.impl;
+
+import com.example.demo.management_service.TestDatabase;
+import com.example.demo.management_service.dao.impl.WebsiteDaoImpl;
+import com.example.demo.management_service.dto.request.ContactInfo;
+import com.example.demo.management_service.dto.request.DomainConfiguration;
+import com.example.demo.management_service.dto.request.RegisterWebsiteRequest;
+import com.example.demo.management_service.exception.ValidationException;
+import com.example.demo.management_service.service.WebsiteService.RegistrationResult;
+import com.example.demo.management_service.util.EncryptionUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class WebsiteServiceImplTest {
+
+	private final WebsiteDaoImpl dao = new WebsiteDaoImpl(TestDatabase.jdbi());
+	private final WebsiteServiceImpl service = new WebsiteServiceImpl(
+		dao,
+		new EncryptionUtil(Base64.getEncoder().encodeToString(new byte[32])),
+		new ObjectMapper(),
+		Validation.buildDefaultValidatorFactory().getValidator()
+	);
+
+	@BeforeEach
+	void clearWebsites() {
+		TestDatabase.clearWebsites();
+	}
+
+	@Test
+	void batchRegistrationReportsEachItemInRequestOrder() {
+		List<RegistrationResult> results = service.registerWebsites(Arrays.asList(
+			request("One", "https://one.example"),
+			request("", "https://blank.example"),
+			request("Two", "https://two.example"),
+			request("One again", "https://one.example"),
+			null
+		));
+
+		assertEquals(5, results.size());
+		assertTrue(results.get(0).isRegistered());
+		assertEquals("https://one.example", results.get(0).website().getPrimaryDomain());
+		assertFalse(results.get(1).isRegistered());
+		assertEquals(List.of("name"), List.copyOf(results.get(1).errors().keySet()));
+		assertTrue(results.get(2).isRegistered());
+		assertEquals("Primary domain 'https://one.example' appears more than once in this batch", results.get(3).message());
+		assertEquals("Website is required", results.get(4).errors().get("request"));
+
+		assertEquals("One", dao.findByPrimaryDomain("https://one.example").orElseThrow().getName());
+		assertTrue(dao.findByPrimaryDomain("https://two.example").isPresent());
+		assertTrue(dao.findByPrimaryDomain("https://blank.example").isEmpty());
+	}
+
+	@Test
+	void piiWithoutScannableDomainsFailsOnlyThatItem() {
+		RegisterWebsiteRequest pii = new RegisterWebsiteRequest("Private", null, "internal_app", true, null,
+			new DomainConfiguration("https://private.example", List.of()), false);
+
+		List<RegistrationResult> results = service.registerWebsites(List.of(pii, request("Public", "https://public.example")));
+
+		assertEquals("Websites containing PII must have at least one scannable domain configured", results.get(0).message());
+		assertTrue(results.get(1).isRegistered());
+	}
+
+	@Test
+	void registeringATakenDomainFails() {
+		register(request("One", "https://one.example"));
+
+		ValidationException error = assertThrows(ValidationException.class,
+			() -> register(request("Copy", "https://one.example")));
+		assertEquals("A website with primary domain 'https://one.example' already exists", error.getMessage());
+	}
+
+	@Test
+	void batchRegistrationReportsDomainsRegisteredBefore() {
+		register(request("One", "https://one.example"));
+
+		List<RegistrationResult> results = service.registerWebsites(List.of(
+			request("Copy", "https://one.example"),
+			request("Two", "https://two.example")
+		));
+
+		assertEquals("A website with primary domain 'https://one.example' already exists", results.get(0).message());
+		assertTrue(results.get(1).isRegistered());
+		assertEquals("One", dao.findByPrimaryDomain("https://one.example").orElseThrow().getName());
+	}
+
+	private void register(RegisterWebsiteRequest request) {
+		service.registerWebsite(request.name(), request.description(), request.websiteType(), request.containsPii(),
+			request.contactInfo(), request.domainConfiguration(), request.crawlEnabled());
+	}
+
+	static RegisterWebsiteRequest request(String name, String primaryDomain) {
+		return new RegisterWebsiteRequest(name, null, "website", false,
+			new ContactInfo("Ada", "ada@example.com", null, null),
+			new DomainConfiguration(primaryDomain, List.of()), false);
+	}
+}
@@ -0,0 +1,40 @@
+package com.example.demo.navigation_service.audio;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+/**
+ * Speech-to-text that works on audio as it arrives rather than on a whole recording.
+ */
+public interface AudioTranscriber {
+
+    /**
+     * Begin transcribing one voice message.
+     */
+    Transcription start(String mimeType);
+
+    /**
+     * Transcription of a single voice message, fed one chunk at a time from one thread at a time.
+     */
+    interface Transcription extends AutoCloseable {
+
+        /**
+         * Consume the next chunk. The buffer is only valid during the call;
+         * copy whatever must be kept, within a bounded window.
+         *
+         * @return partial transcript so far, or null if nothing new is available
+         */
+        String append(DataBuffer chunk);
+
+        /**
+         * Final transcript after the last chunk.
+         */
+        String finish();
+
+        /**
+         * Release any resources, whether or not the message was finished.
+         */
+        @Override
+        default void close() {
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.demo.navigation_service.chat;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Chat completion that delivers its reply token by token as the model produces it.
+ */
+public interface StreamingChatClient {
+
+    /**
+     * The reply to {@code message}, in order; concatenated the tokens form the whole reply.
+     */
+    Flux<String> stream(String message);
+}
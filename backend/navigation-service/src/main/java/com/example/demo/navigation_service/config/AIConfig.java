@@ -1,9 +1,16 @@
 package com.example.demo.navigation_service.config;
 
+import com.example.demo.navigation_service.audio.AudioTranscriber;
+import com.example.demo.navigation_service.chat.StreamingChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
 
 /**
  * AI Configuration for development and testing.
@@ -22,20 +29,48 @@ public class AIConfig {
     @Bean
     @Primary
     @ConditionalOnProperty(name = "spring.ai.openai.chat.enabled", havingValue = "false", matchIfMissing = true)
-    public MockChatClient mockChatClient() {
-        return new MockChatClient();
+    public MockChatClient mockChatClient(@Value("${app.ai.mock.token-delay:30ms}") Duration tokenDelay) {
+        return new MockChatClient(tokenDelay);
+    }
+
+    /**
+     * Mock transcriber for development until a speech-to-text service is configured.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.audio.transcriber", havingValue = "mock", matchIfMissing = true)
+    public MockTranscriber mockTranscriber() {
+        return new MockTranscriber();
     }
 
     /**
      * Simple mock implementation of chat functionality.
      * Returns predefined responses for development/testing.
      */
-    public static class MockChatClient {
+    public static class MockChatClient implements StreamingChatClient {
+
+        private final Duration tokenDelay;
+
+        public MockChatClient() {
+            this(Duration.ofMillis(30));
+        }
+
+        public MockChatClient(Duration tokenDelay) {
+            this.tokenDelay = tokenDelay;
+        }
         
         public String chat(String message) {
             return "Mock response: I received your message '" + message + "'. " +
                    "This is a development mock. Configure OpenAI API key for real AI responses.";
         }
+
+        /**
+         * The same response as {@link #chat}, one word at a time with tokenDelay between words.
+         */
+        @Override
+        public Flux<String> stream(String message) {
+            Flux<String> tokens = Flux.fromArray(chat(message).split("(?<= )"));
+            return tokenDelay.isZero() ? tokens : tokens.delayElements(tokenDelay);
+        }
         
         public boolean isAvailable() {
             return false; // Indicates this is a mock
@@ -45,4 +80,31 @@ public class AIConfig {
             return "Mock AI Provider";
         }
     }
+
+    /**
+     * Mock transcriber that reports how much audio it has heard.
+     * Keeps only counters, whatever the length of the message.
+     */
+    public static class MockTranscriber implements AudioTranscriber {
+
+        @Override
+        public Transcription start(String mimeType) {
+            return new Transcription() {
+                private int chunks;
+                private long bytes;
+
+                @Override
+                public String append(DataBuffer chunk) {
+                    chunks++;
+                    bytes += chunk.readableByteCount();
+                    return "Listening... (" + chunks + " chunks, " + bytes + " bytes)";
+                }
+
+                @Override
+                public String finish() {
+                    return "Mock transcript of " + bytes + " bytes of " + mimeType + " audio";
+                }
+            };
+        }
+    }
 }
@@ -1,17 +1,31 @@
 package com.example.demo.navigation_service.config;
 
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Database configuration for Netty-based reactive application.
  *
  * This configuration provides:
- * - Flyway configuration customization for reactive setup
+ * - Flyway configuration customization for reactive setup, with a history
+ *   table of its own (spring.flyway.table) separate from management-service's
  * - R2DBC remains the primary reactive database access
  * - No JDBC DataSource to avoid conflicts with reactive stack
  * - In-memory vector store with async persistence queue
@@ -20,6 +34,11 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class DatabaseConfig {
 
+    /**
+     * History table both services recorded their migrations in before each got its own.
+     */
+    private static final String SHARED_HISTORY_TABLE = "flyway_schema_history";
+
     /**
      * Flyway configuration for Netty reactive setup.
      * Ensures migrations run without affecting the reactive stack.
@@ -31,7 +50,7 @@ public class DatabaseConfig {
         return configuration -> {
             // Migration settings for reactive setup
             configuration.baselineOnMigrate(true);
-            configuration.baselineVersion("0");
+            configuration.baselineVersion(carriedOverBaseline(configuration.getDataSource(), configuration.getTable()));
             configuration.validateOnMigrate(false);
             configuration.outOfOrder(true);
             configuration.locations("classpath:db/migration");
@@ -40,4 +59,48 @@ public class DatabaseConfig {
             configuration.cleanDisabled(false);
         };
     }
+
+    /**
+     * Baseline for a newly created history table. Databases migrated while the
+     * history table was shared already have this service's migrations applied and
+     * recorded in {@link #SHARED_HISTORY_TABLE}, so the new table is baselined at
+     * the newest of them instead of re-running them. Otherwise "0", so every
+     * migration runs. Only used by Flyway while the history table is empty.
+     */
+    private static String carriedOverBaseline(DataSource dataSource, String table) {
+        if (dataSource == null || SHARED_HISTORY_TABLE.equals(table)) {
+            return "0";
+        }
+        MigrationVersion newest = MigrationVersion.fromVersion("0");
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT version FROM " + SHARED_HISTORY_TABLE + " WHERE success AND script = ANY (?)")) {
+            Array scripts = connection.createArrayOf("varchar", migrationScripts().toArray());
+            statement.setArray(1, scripts);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    MigrationVersion version = MigrationVersion.fromVersion(rows.getString(1));
+                    if (version.isNewerThan(newest)) {
+                        newest = version;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            // No shared history table: nothing to carry over
+            return "0";
+        }
+        return newest.getVersion();
+    }
+
+    private static List<String> migrationScripts() {
+        List<String> scripts = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath:db/migration/*.sql")) {
+                scripts.add(resource.getFilename());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot list the Flyway migrations", e);
+        }
+        return scripts;
+    }
 }
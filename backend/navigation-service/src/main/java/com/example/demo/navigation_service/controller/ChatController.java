@@ -1,12 +1,18 @@
 package com.example.demo.navigation_service.controller;
 
+import com.example.demo.navigation_service.repository.ChatMessageRepository;
+import com.example.demo.navigation_service.service.MessagePersistenceService;
+import com.example.demo.navigation_service.service.MessagePersistenceService.ChatMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,9 +22,14 @@ import java.util.Map;
 @RestController
 @RequestMapping("/api/chat")
 @RequiredArgsConstructor
-@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"})
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:3002"},
+        exposedHeaders = ChatController.NEXT_CURSOR_HEADER)
 public class ChatController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final MessagePersistenceService messagePersistenceService;
+
     /**
      * Health check endpoint for chat service
      */
@@ -45,7 +56,10 @@ public class ChatController {
                 "features", Map.of(
                         "messageCount", "Tracks messages per session",
                         "sessionManagement", "Automatic session cleanup",
-                        "errorHandling", "Graceful error responses"
+                        "errorHandling", "Graceful error responses",
+                        "binaryAudio", "Voice messages as raw audio chunks in binary frames",
+                        "streaming", "Set \"stream\": true to receive the reply as delta messages",
+                        "batching", "Connect with ?batch=true to receive bursts of replies as JSON arrays"
                 ),
                 "sampleMessage", Map.of(
                         "type", "message",
@@ -75,4 +89,33 @@ public class ChatController {
                 "service", "navigation-service"
         )));
     }
+
+    /**
+     * Persisted history of a chat session, newest first. When more messages may
+     * follow, the X-Next-Cursor header holds the cursor to pass for the next page.
+     * Ids of messages seen on the live stream are provisional, so pages continue
+     * only from cursors issued here.
+     */
+    @GetMapping("/sessions/{sessionId}/messages")
+    public Mono<ResponseEntity<List<ChatMessage>>> history(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        ChatMessageRepository.Cursor before;
+        try {
+            before = cursor != null ? ChatMessageRepository.Cursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor"));
+        }
+        int pageSize = Math.clamp(limit, 1, 200);
+        return messagePersistenceService.getMessageHistory(sessionId, before, pageSize)
+            .collectList()
+            .map(page -> {
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                if (page.size() == pageSize) {
+                    response.header(NEXT_CURSOR_HEADER, ChatMessageRepository.Cursor.after(page.getLast()).encode());
+                }
+                return response.body(page);
+            });
+    }
 }
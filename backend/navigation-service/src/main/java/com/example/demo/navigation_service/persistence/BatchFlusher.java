@@ -0,0 +1,438 @@
+package com.example.demo.navigation_service.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bounded queue that hands items to a batch sink as soon as a full batch is
+ * waiting or the oldest item has lingered for {@code maxLinger}, whichever comes first.
+ *
+ * Once triggered it keeps flushing until the queue is empty, so a burst drains
+ * at the speed of the sink rather than one batch per tick. Flushes run one at a
+ * time; the batch size grows while full batches finish within the target
+ * latency and halves when a flush overruns it.
+ *
+ * Producers first {@link #reserve} room and then {@link #offer} the item, or do
+ * both with {@link #submit}. When {@code capacity} items are queued or reserved
+ * the {@link OverflowPolicy} decides: BLOCK completes the reservation only once
+ * a flush frees room, SPILL sends the item to a {@link SpillLog} that is fed
+ * back in order as room frees up, and REJECT fails the reservation. A
+ * reservation discarded by a cancelled pipeline should be given back with
+ * {@link #release}, e.g. through {@code doOnDiscard(Permit.class, flusher::release)}.
+ *
+ * A sink that fails should hand its batch back through {@link #requeue}; the
+ * flusher then waits for the next linger tick instead of retrying immediately.
+ *
+ * Metrics, tagged with {@code queue=<name>}: {@code persistence.queue.depth},
+ * {@code persistence.queue.blocked}, {@code persistence.batch.size},
+ * {@code persistence.flush.latency}, {@code persistence.flushed},
+ * {@code persistence.rejected}, {@code persistence.spilled} and
+ * {@code persistence.spill.bytes}.
+ */
+public final class BatchFlusher<T> {
+
+    private static final Mono<Permit> QUEUE_PERMIT = Mono.just(Permit.QUEUE);
+    private static final Mono<Permit> SPILL_PERMIT = Mono.just(Permit.SPILL);
+
+    private final String name;
+    private final Policy policy;
+    private final Overflow<T> overflow;
+    private final Function<List<T>, Mono<Integer>> sink;
+    private final ConcurrentLinkedDeque<T> queue = new ConcurrentLinkedDeque<>();
+    // Queued items, and queued plus reserved items (what capacity bounds)
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger occupied = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final Sinks.Many<Long> wakeups = Sinks.many().multicast().directBestEffort();
+    private final Sinks.One<Boolean> stop = Sinks.one();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Timer flushLatency;
+    private final Counter flushed;
+    private final Counter rejected;
+    private final Counter spilled;
+    private final Disposable loop;
+
+    // Only changed by the flush loop
+    private volatile int batchSize;
+    private volatile boolean lastFlushFailed;
+
+    public BatchFlusher(String name, Policy policy, Function<List<T>, Mono<Integer>> sink, MeterRegistry registry) {
+        this(name, policy, Overflow.unbounded(), sink, registry);
+    }
+
+    public BatchFlusher(String name, Policy policy, Overflow<T> overflow,
+                        Function<List<T>, Mono<Integer>> sink, MeterRegistry registry) {
+        this.name = name;
+        this.policy = policy;
+        this.overflow = overflow;
+        this.sink = sink;
+        this.batchSize = policy.maxBatchSize();
+
+        Gauge.builder("persistence.queue.depth", depth, AtomicInteger::get)
+            .tag("queue", name)
+            .description("Items waiting to be flushed")
+            .register(registry);
+        Gauge.builder("persistence.queue.blocked", waiters, ConcurrentLinkedQueue::size)
+            .tag("queue", name)
+            .description("Producers waiting for room in the queue")
+            .register(registry);
+        Gauge.builder("persistence.batch.size", this, flusher -> flusher.batchSize)
+            .tag("queue", name)
+            .description("Current adaptive batch size")
+            .register(registry);
+        this.flushLatency = Timer.builder("persistence.flush.latency")
+            .tag("queue", name)
+            .register(registry);
+        this.flushed = Counter.builder("persistence.flushed")
+            .tag("queue", name)
+            .register(registry);
+        this.rejected = Counter.builder("persistence.rejected")
+            .tag("queue", name)
+            .description("Items refused because the queue was full")
+            .register(registry);
+        this.spilled = Counter.builder("persistence.spilled")
+            .tag("queue", name)
+            .description("Items written to the spill log because the queue was full")
+            .register(registry);
+        if (overflow.spill() != null) {
+            Gauge.builder("persistence.spill.bytes", overflow.spill(), SpillLog::bytes)
+                .tag("queue", name)
+                .description("Bytes waiting in the spill log")
+                .register(registry);
+        }
+
+        this.loop = Flux.merge(wakeups.asFlux(), Flux.interval(policy.maxLinger()))
+            .takeUntilOther(stop.asMono())
+            // Triggers arriving mid-flush are redundant: the flush drains until empty
+            .onBackpressureDrop()
+            .concatMap(tick -> drainBacklog(), 1)
+            .doFinally(signal -> stopped.countDown())
+            .subscribe(
+                // Flushed counts are reported by the persistence.flushed counter
+                count -> { },
+                error -> System.err.println("Error in " + name + " flusher: " + error.getMessage())
+            );
+    }
+
+    /**
+     * Reserve room for one item according to the overflow policy.
+     */
+    public Mono<Permit> reserve() {
+        if (tryAcquire()) {
+            return QUEUE_PERMIT;
+        }
+        return switch (overflow.policy()) {
+            case SPILL -> SPILL_PERMIT;
+            case REJECT -> {
+                rejected.increment();
+                yield Mono.error(new RejectedExecutionException(
+                    name + " queue is full (" + overflow.capacity() + " items)"));
+            }
+            case BLOCK -> Mono.create(sink -> {
+                Waiter waiter = new Waiter(sink);
+                sink.onCancel(() -> {
+                    if (waiter.granted.compareAndSet(false, true)) {
+                        waiters.remove(waiter);
+                    }
+                });
+                waiters.offer(waiter);
+                // Room may have been freed between tryAcquire and joining the waiters
+                grantWaiters();
+            });
+        };
+    }
+
+    /**
+     * Queue an item using a permit from {@link #reserve}. While spilled items are
+     * pending, new items are spilled behind them so the queue stays in order.
+     *
+     * @throws UncheckedIOException if the item had to be spilled and the spill log failed
+     */
+    public void offer(T item, Permit permit) {
+        SpillLog<T> spill = overflow.spill();
+        if (spill == null) {
+            enqueue(item);
+            return;
+        }
+        synchronized (spill) {
+            if (permit == Permit.QUEUE && spill.size() == 0) {
+                enqueue(item);
+                return;
+            }
+            release(permit);
+            try {
+                spill.append(item);
+                spilled.increment();
+            } catch (IOException e) {
+                rejected.increment();
+                throw new UncheckedIOException("Failed to spill " + name + " item to " + spill.path(), e);
+            }
+        }
+    }
+
+    /**
+     * Reserve room and queue an item; completes once the item is queued or spilled.
+     */
+    public Mono<Void> submit(T item) {
+        return reserve()
+            .doOnNext(permit -> offer(item, permit))
+            .then();
+    }
+
+    /**
+     * Give back a permit that will not be offered.
+     */
+    public void release(Permit permit) {
+        if (permit == Permit.QUEUE) {
+            occupied.decrementAndGet();
+            grantWaiters();
+        }
+    }
+
+    /**
+     * Put items back at the head of the queue, keeping their order. They bypass
+     * the capacity check: a failed batch was already admitted once.
+     */
+    public void requeue(List<T> items) {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            queue.offerFirst(items.get(i));
+        }
+        occupied.addAndGet(items.size());
+        depth.addAndGet(items.size());
+    }
+
+    /**
+     * Remove up to {@code max} items from the head of the queue, topping it up
+     * from the spill log first.
+     */
+    public List<T> drain(int max) {
+        refillFromSpill();
+        List<T> batch = new ArrayList<>(Math.min(max, Math.max(depth.get(), 0)));
+        T item;
+        while (batch.size() < max && (item = queue.pollFirst()) != null) {
+            batch.add(item);
+        }
+        depth.addAndGet(-batch.size());
+        occupied.addAndGet(-batch.size());
+        grantWaiters();
+        return batch;
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Stop triggering flushes and wait up to {@code timeout} for a flush in
+     * progress to finish. Whatever is still queued afterwards stays available to
+     * {@link #drain}, so the caller can persist it synchronously.
+     */
+    public void close(Duration timeout) {
+        stop.tryEmitValue(Boolean.TRUE);
+        try {
+            if (!stopped.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                loop.dispose();
+            }
+        } catch (InterruptedException e) {
+            loop.dispose();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = occupied.get();
+            if (current >= overflow.capacity()) {
+                return false;
+            }
+        } while (!occupied.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void enqueue(T item) {
+        queue.offerLast(item);
+        if (depth.incrementAndGet() >= batchSize && wakeupPending.compareAndSet(false, true)) {
+            if (wakeups.tryEmitNext(0L).isFailure()) {
+                wakeupPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * Hand freed room to blocked producers, oldest first.
+     */
+    private void grantWaiters() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            Waiter waiter = waiters.poll();
+            if (waiter == null || !waiter.grant()) {
+                occupied.decrementAndGet();
+                if (waiter == null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void refillFromSpill() {
+        SpillLog<T> spill = overflow.spill();
+        if (spill == null) {
+            return;
+        }
+        synchronized (spill) {
+            int room = overflow.capacity() - occupied.get();
+            if (spill.size() == 0 || room <= 0) {
+                return;
+            }
+            try {
+                List<T> items = spill.read(room);
+                occupied.addAndGet(items.size());
+                items.forEach(queue::offerLast);
+                depth.addAndGet(items.size());
+            } catch (IOException e) {
+                System.err.println("Failed to read " + name + " spill log: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean hasBacklog() {
+        return !queue.isEmpty() || (overflow.spill() != null && overflow.spill().size() > 0);
+    }
+
+    private Mono<Integer> drainBacklog() {
+        wakeupPending.set(false);
+        lastFlushFailed = false;
+        return Mono.defer(this::flushOnce)
+            .repeat(() -> hasBacklog() && !lastFlushFailed)
+            .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> flushOnce() {
+        List<T> batch = drain(batchSize);
+        if (batch.isEmpty()) {
+            return Mono.just(0);
+        }
+        long start = System.nanoTime();
+        return sink.apply(batch)
+            .defaultIfEmpty(0)
+            .doOnNext(flushed::increment)
+            .doOnSuccess(count -> adapt(batch.size(), System.nanoTime() - start))
+            .onErrorResume(error -> {
+                lastFlushFailed = true;
+                flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                System.err.println("Failed to flush " + batch.size() + " " + name + ": " + error.getMessage());
+                return Mono.just(0);
+            });
+    }
+
+    private void adapt(int size, long nanos) {
+        flushLatency.record(nanos, TimeUnit.NANOSECONDS);
+        int current = batchSize;
+        if (nanos > policy.targetLatency().toNanos()) {
+            batchSize = Math.max(policy.minBatchSize(), current / 2);
+        } else if (size >= current) {
+            batchSize = Math.min(policy.maxBatchSize(), current + Math.max(1, current / 4));
+        }
+    }
+
+    /**
+     * Where a reserved item goes: into the in-memory queue, or straight to the spill log.
+     */
+    public enum Permit {
+        QUEUE,
+        SPILL
+    }
+
+    /**
+     * @param minBatchSize  floor for the adaptive batch size
+     * @param maxBatchSize  ceiling for the adaptive batch size, and its starting value
+     * @param maxLinger     longest an item waits when fewer than a batch are queued
+     * @param targetLatency flush duration above which the batch size is halved
+     */
+    public record Policy(int minBatchSize, int maxBatchSize, Duration maxLinger, Duration targetLatency) {
+
+        public Policy {
+            if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+                throw new IllegalArgumentException("Batch sizes must satisfy 1 <= min <= max");
+            }
+            if (maxLinger.isZero() || maxLinger.isNegative()) {
+                throw new IllegalArgumentException("maxLinger must be positive");
+            }
+        }
+
+        /**
+         * Policy whose batch size may shrink to a sixteenth of {@code maxBatchSize}.
+         */
+        public static Policy of(int maxBatchSize, Duration maxLinger, Duration targetLatency) {
+            int max = Math.max(1, maxBatchSize);
+            return new Policy(Math.max(1, max / 16), max, maxLinger, targetLatency);
+        }
+    }
+
+    /**
+     * @param capacity most items queued or reserved at once
+     * @param policy   what happens to items beyond capacity
+     * @param spill    log for overflowing items; required by, and only used with, SPILL
+     */
+    public record Overflow<T>(int capacity, OverflowPolicy policy, SpillLog<T> spill) {
+
+        public Overflow {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Queue capacity must be positive");
+            }
+            if ((policy == OverflowPolicy.SPILL) != (spill != null)) {
+                throw new IllegalArgumentException("A spill log is required by, and only used with, the SPILL policy");
+            }
+        }
+
+        public static <T> Overflow<T> unbounded() {
+            return new Overflow<>(Integer.MAX_VALUE, OverflowPolicy.BLOCK, null);
+        }
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final AtomicBoolean granted = new AtomicBoolean();
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * @return false if the producer cancelled first, leaving the room unclaimed
+         */
+        private boolean grant() {
+            if (!granted.compareAndSet(false, true)) {
+                return false;
+            }
+            sink.success(Permit.QUEUE);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.navigation_service.persistence;
+
+import java.util.Locale;
+
+/**
+ * What a bounded {@link BatchFlusher} does with an item when its queue is full.
+ */
+public enum OverflowPolicy {
+
+    /** Hold the producer's Mono until a flush frees room, propagating backpressure upstream. */
+    BLOCK,
+
+    /** Append the item to a local disk log and feed it back into the queue as room frees up. */
+    SPILL,
+
+    /** Fail the producer's Mono with a {@link java.util.concurrent.RejectedExecutionException}. */
+    REJECT;
+
+    /**
+     * Parse a configuration value such as {@code spill}, case-insensitively.
+     */
+    public static OverflowPolicy parse(String value) {
+        if (value == null || value.isBlank()) {
+            return BLOCK;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown overflow policy: " + value);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.demo.navigation_service.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File-backed FIFO that holds items a full {@link BatchFlusher} queue could not take.
+ *
+ * Records are framed as {@code [int length][codec bytes]} after a header holding
+ * the position of the oldest record not yet read, and are read back in append
+ * order; once every record has been read the file is truncated to the header.
+ * Appends are fsynced before they return, and each read fsyncs the advanced
+ * header, so opening with {@code recover} keeps exactly the records a previous
+ * run spilled but had not handed out, dropping a torn tail. Otherwise any
+ * previous contents are discarded.
+ */
+public final class SpillLog<T> implements AutoCloseable {
+
+    private static final int HEADER_BYTES = Long.BYTES;
+
+    private final Path path;
+    private final Codec<T> codec;
+    private final FileChannel channel;
+    private long readPosition;
+    private long writePosition;
+    private int size;
+
+    private SpillLog(Path path, Codec<T> codec, FileChannel channel) {
+        this.path = path;
+        this.codec = codec;
+        this.channel = channel;
+    }
+
+    public static <T> SpillLog<T> open(Path path, Codec<T> codec, boolean recover) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SpillLog<T> log = new SpillLog<>(path, codec, channel);
+        long fileSize = channel.size();
+        if (!recover || fileSize < HEADER_BYTES) {
+            log.reset();
+            return log;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        log.readFully(header, 0);
+        log.readPosition = header.getLong(0);
+        if (log.readPosition < HEADER_BYTES || log.readPosition > fileSize) {
+            // Interrupted between emptying the file and rewriting the header
+            log.reset();
+            return log;
+        }
+        log.writePosition = log.readPosition;
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        while (log.writePosition + Integer.BYTES <= fileSize) {
+            length.clear();
+            channel.read(length, log.writePosition);
+            long next = log.writePosition + Integer.BYTES + length.getInt(0);
+            if (length.getInt(0) < 0 || next > fileSize) {
+                break;
+            }
+            log.writePosition = next;
+            log.size++;
+        }
+        channel.truncate(log.writePosition);
+        return log;
+    }
+
+    public void append(T item) throws IOException {
+        appendAll(List.of(item));
+    }
+
+    /**
+     * Append records with a single fsync.
+     */
+    public synchronized void appendAll(List<T> items) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(256 * items.size());
+        DataOutputStream framed = new DataOutputStream(records);
+        for (T item : items) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            codec.write(item, out);
+            out.flush();
+            framed.writeInt(bytes.size());
+            bytes.writeTo(framed);
+        }
+        framed.flush();
+        ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+        long position = writePosition;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+        writePosition = position;
+        size += items.size();
+    }
+
+    /**
+     * Remove and return up to {@code max} of the oldest records. The advanced read
+     * position is fsynced before they are returned, so they are not recovered
+     * again after a restart.
+     */
+    public synchronized List<T> read(int max) throws IOException {
+        List<T> items = new ArrayList<>(Math.min(max, size));
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        while (items.size() < max && size > 0) {
+            header.clear();
+            readFully(header, readPosition);
+            ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+            readFully(body, readPosition + Integer.BYTES);
+            items.add(codec.read(new DataInputStream(new ByteArrayInputStream(body.array()))));
+            readPosition += Integer.BYTES + body.capacity();
+            size--;
+        }
+        if (size == 0) {
+            reset();
+        } else if (!items.isEmpty()) {
+            writeHeader();
+        }
+        return items;
+    }
+
+    /**
+     * Number of records waiting to be read.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held by records waiting to be read.
+     */
+    public synchronized long bytes() {
+        return writePosition - readPosition;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void reset() throws IOException {
+        channel.truncate(HEADER_BYTES);
+        readPosition = HEADER_BYTES;
+        writePosition = HEADER_BYTES;
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(0, readPosition);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(false);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated spill record in " + path);
+            }
+        }
+    }
+
+    /**
+     * Binary encoding of spilled items.
+     */
+    public interface Codec<T> {
+
+        void write(T item, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+}
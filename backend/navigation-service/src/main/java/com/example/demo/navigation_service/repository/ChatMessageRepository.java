@@ -0,0 +1,194 @@
+package com.example.demo.navigation_service.repository;
+
+import com.example.demo.navigation_service.service.MessagePersistenceService.ChatMessage;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * R2DBC access to the shared conversations/messages tables for chat history.
+ *
+ * Each chat session maps to one conversation row keyed by {@code session_key},
+ * created on first write and cached afterwards. Messages are written with one
+ * multi-row INSERT per call, and history is read newest first with keyset
+ * pagination on {@code (created_at, id)} so deep pages cost the same as the first.
+ * The tables, including {@code session_key}, are migrated by management-service.
+ */
+@Repository
+public class ChatMessageRepository {
+
+    private static final String UPSERT_CONVERSATION = """
+        INSERT INTO conversations (user_id, status, session_key)
+        SELECT id, 'active', $1 FROM users WHERE username = $2
+        ON CONFLICT (session_key) DO UPDATE SET session_key = EXCLUDED.session_key
+        RETURNING id
+        """;
+
+    private static final String SELECT_HISTORY = """
+        SELECT m.id, m.role, m.content, m.created_at
+        FROM messages m
+        JOIN conversations c ON c.id = m.conversation_id
+        WHERE c.session_key = $1
+        """;
+
+    private static final String INSERT_COLUMNS = "INSERT INTO messages (conversation_id, role, content, created_at) VALUES ";
+    private static final int INSERT_PARAMETERS = 4;
+
+    /** PostgreSQL accepts at most 65535 bind parameters per statement. */
+    public static final int MAX_ROWS_PER_STATEMENT = 65535 / INSERT_PARAMETERS;
+
+    private final DatabaseClient databaseClient;
+    private final String ownerUsername;
+    private final Map<String, Long> conversationIds = new ConcurrentHashMap<>();
+
+    public ChatMessageRepository(
+            DatabaseClient databaseClient,
+            @Value("${app.chat.persistence.owner-username:admin}") String ownerUsername) {
+        this.databaseClient = databaseClient;
+        this.ownerUsername = ownerUsername;
+    }
+
+    /**
+     * Insert messages with a single multi-row statement, creating conversations for new sessions.
+     *
+     * @return number of rows inserted
+     */
+    public Mono<Long> insertAll(List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return Mono.just(0L);
+        }
+        if (messages.size() > MAX_ROWS_PER_STATEMENT) {
+            return Mono.error(new IllegalArgumentException(
+                "At most " + MAX_ROWS_PER_STATEMENT + " messages can be inserted per statement"));
+        }
+        Map<String, Long> resolved = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            resolved.put(message.getSessionId(), conversationIds.get(message.getSessionId()));
+        }
+        return Flux.fromIterable(resolved.entrySet())
+            .filter(entry -> entry.getValue() == null)
+            .concatMap(entry -> conversationId(entry.getKey()).doOnNext(entry::setValue))
+            .then(Mono.defer(() -> {
+                DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(insertSql(messages.size()));
+                int index = 0;
+                for (ChatMessage message : messages) {
+                    spec = spec.bind(index++, resolved.get(message.getSessionId()))
+                        .bind(index++, message.getRole())
+                        .bind(index++, message.getContent())
+                        .bind(index++, message.getTimestamp().atZone(ZoneId.systemDefault()).toOffsetDateTime());
+                }
+                return spec.fetch().rowsUpdated();
+            }));
+    }
+
+    /**
+     * Read one page of a session's history, newest first.
+     *
+     * @param before cursor from the last message of the previous page, or null for the newest page
+     */
+    public Flux<ChatMessage> findPage(String sessionId, Cursor before, int limit) {
+        DatabaseClient.GenericExecuteSpec spec;
+        if (before == null) {
+            spec = databaseClient.sql(SELECT_HISTORY + "ORDER BY m.created_at DESC, m.id DESC LIMIT $2")
+                .bind(0, sessionId)
+                .bind(1, limit);
+        } else {
+            spec = databaseClient.sql(SELECT_HISTORY
+                    + "AND (m.created_at, m.id) < ($2, $3) ORDER BY m.created_at DESC, m.id DESC LIMIT $4")
+                .bind(0, sessionId)
+                .bind(1, before.createdAt().atZone(ZoneId.systemDefault()).toOffsetDateTime())
+                .bind(2, before.id())
+                .bind(3, limit);
+        }
+        return spec.map(row -> toMessage(sessionId, row)).all();
+    }
+
+    private Mono<Long> conversationId(String sessionId) {
+        return databaseClient.sql(UPSERT_CONVERSATION)
+            .bind(0, sessionId)
+            .bind(1, ownerUsername)
+            .map(row -> row.get("id", Long.class))
+            .one()
+            .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                "Conversation owner '" + ownerUsername + "' does not exist")))
+            .doOnNext(id -> conversationIds.put(sessionId, id));
+    }
+
+    private static ChatMessage toMessage(String sessionId, Readable row) {
+        OffsetDateTime createdAt = row.get("created_at", OffsetDateTime.class);
+        return new ChatMessage(
+            row.get("id", Long.class),
+            sessionId,
+            row.get("content", String.class),
+            row.get("role", String.class),
+            createdAt.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+        );
+    }
+
+    static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_COLUMNS.length() + rows * 24).append(INSERT_COLUMNS);
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column < INSERT_PARAMETERS; column++) {
+                sql.append(column == 0 ? "$" : ", $").append(row * INSERT_PARAMETERS + column + 1);
+            }
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Keyset position in a session's history; built from the last message of a page.
+     *
+     * Only rows read back from the database carry their database id: messages on
+     * the live stream have provisional ids that do not order against persisted
+     * rows, so cursors are only ever issued from {@link #findPage} results.
+     */
+    public record Cursor(LocalDateTime createdAt, long id) {
+
+        /**
+         * Cursor for the page following a message read by {@link #findPage}.
+         */
+        public static Cursor after(ChatMessage message) {
+            return new Cursor(message.getTimestamp(), message.getId());
+        }
+
+        /**
+         * Opaque token form of this cursor, safe for URLs.
+         */
+        public String encode() {
+            String value = createdAt + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @throws IllegalArgumentException if the token was not produced by {@link #encode}
+         */
+        public static Cursor decode(String token) {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int comma = value.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            try {
+                return new Cursor(LocalDateTime.parse(value.substring(0, comma)), Long.parseLong(value.substring(comma + 1)));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed cursor", e);
+            }
+        }
+    }
+}
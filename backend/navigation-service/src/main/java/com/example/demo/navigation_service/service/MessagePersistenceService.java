@@ -1,153 +1,493 @@
 package com.example.demo.navigation_service.service;
 
+import com.example.demo.navigation_service.persistence.BatchFlusher;
+import com.example.demo.navigation_service.persistence.OverflowPolicy;
+import com.example.demo.navigation_service.persistence.SpillLog;
+import com.example.demo.navigation_service.repository.ChatMessageRepository;
+import com.example.demo.navigation_service.stream.RecentHistory;
+import com.example.demo.navigation_service.stream.SessionSinks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import io.r2dbc.spi.R2dbcTransientException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Reactive message persistence service for in-memory storage with async persistence.
- * 
+ *
  * This service provides:
- * - In-memory message storage for fast access
+ * - In-memory message storage for fast access: the last history-size messages of each
+ *   session are replayed from memory, within a size budget and idle timeout
+ *   (app.chat.recent-cache.max-size, idle-timeout)
  * - Async queue for background persistence
  * - Non-blocking operations for Netty compatibility
- * - Message batching for efficient persistence
+ * - Message batching for efficient persistence, flushed by size or linger time with
+ *   adaptive batch sizes (app.chat.persistence.batch-size, max-linger, target-flush-latency)
+ * - Multi-row R2DBC inserts into the messages table with bounded concurrency (app.chat.persistence.*)
+ * - Keyset-paginated history reads
+ * - A bounded persistence queue that blocks, spills to disk or rejects when full
+ *   (app.chat.persistence.queue-capacity, overflow, spill-dir)
+ * - Retries of inserts that failed transiently, and a dead-letter log for messages the
+ *   database rejects or that keep failing (app.chat.persistence.max-attempts, dead-letter-dir)
+ * - Per-subscriber bounded stream buffers that drop the oldest messages for slow
+ *   subscribers (app.chat.stream.subscriber-buffer)
+ * - Per-session stream sinks, so a message is only offered to its own session's subscribers
  */
 @Service
 public class MessagePersistenceService {
 
-    private final ConcurrentLinkedQueue<ChatMessage> persistenceQueue = new ConcurrentLinkedQueue<>();
-    private final Sinks.Many<ChatMessage> messageSink = Sinks.many().multicast().onBackpressureBuffer();
+    // Roles accepted by the messages_role_check constraint
+    private static final Set<String> ROLES = Set.of("user", "assistant", "system");
+
+    // Each subscriber gets its own bounded buffer, so a slow one cannot hold messages for the rest
+    private final SessionSinks<String, ChatMessage> sessionSinks = new SessionSinks<>();
+    private final Sinks.Many<ChatMessage> allMessagesSink = Sinks.many().multicast().directBestEffort();
     private final AtomicLong messageIdCounter = new AtomicLong(1);
+    private final RecentHistory<String, ChatMessage> recentHistory;
+
+    private final ChatMessageRepository repository;
+    private final BatchFlusher<ChatMessage> persistenceFlusher;
+    private final int rowsPerStatement;
+    private final int maxConcurrency;
+    private final int historySize;
+    private final int subscriberBuffer;
+    private final Counter streamDropped;
+    private final Counter historyHits;
+    private final Counter historyMisses;
+    private final SpillLog<ChatMessage> spillLog;
+    private final int maxAttempts;
+    private final Path deadLetterPath;
+    private final Counter deadLettered;
+    // Failed inserts per message awaiting retry; ChatMessage has identity equality
+    private final Map<ChatMessage, Integer> failedAttempts = new ConcurrentHashMap<>();
+    // Opened on first use, guarded by this
+    private SpillLog<ChatMessage> deadLetterLog;
+
+    public MessagePersistenceService(
+            ChatMessageRepository repository,
+            @Value("${app.chat.persistence.batch-size:1000}") int batchSize,
+            @Value("${app.chat.persistence.max-linger:1s}") Duration maxLinger,
+            @Value("${app.chat.persistence.target-flush-latency:250ms}") Duration targetFlushLatency,
+            @Value("${app.chat.persistence.rows-per-statement:250}") int rowsPerStatement,
+            @Value("${app.chat.persistence.max-concurrency:4}") int maxConcurrency,
+            @Value("${app.chat.persistence.history-size:50}") int historySize,
+            @Value("${app.chat.persistence.queue-capacity:100000}") int queueCapacity,
+            @Value("${app.chat.persistence.overflow:block}") String overflow,
+            @Value("${app.chat.persistence.spill-dir:data/chat-spill}") String spillDir,
+            @Value("${app.chat.persistence.max-attempts:30}") int maxAttempts,
+            @Value("${app.chat.persistence.dead-letter-dir:data/chat-dead-letter}") String deadLetterDir,
+            @Value("${app.chat.stream.subscriber-buffer:256}") int subscriberBuffer,
+            @Value("${app.chat.recent-cache.max-size:64MB}") DataSize recentCacheSize,
+            @Value("${app.chat.recent-cache.idle-timeout:30m}") Duration recentCacheIdleTimeout,
+            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.rowsPerStatement = Math.clamp(rowsPerStatement, 1, ChatMessageRepository.MAX_ROWS_PER_STATEMENT);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.historySize = Math.max(0, historySize);
+        this.subscriberBuffer = Math.max(1, subscriberBuffer);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.deadLetterPath = Path.of(deadLetterDir, "chat-messages.dead");
+        this.deadLettered = Counter.builder("chat.persistence.dead-lettered")
+            .description("Messages given up on and written to the dead-letter log")
+            .register(meterRegistry);
+        this.streamDropped = Counter.builder("chat.stream.dropped")
+            .description("Messages dropped from slow stream subscribers' buffers")
+            .register(meterRegistry);
+        Gauge.builder("chat.stream.sessions", sessionSinks, SessionSinks::size)
+            .description("Chat sessions with at least one stream subscriber")
+            .register(meterRegistry);
+
+        this.recentHistory = new RecentHistory<>(this.historySize, recentCacheSize.toBytes(),
+            recentCacheIdleTimeout, ChatMessage::estimatedSize, Clock.systemUTC());
+        Gauge.builder("chat.history.cache.sessions", recentHistory, RecentHistory::size)
+            .description("Chat sessions with recent messages held in memory")
+            .register(meterRegistry);
+        Gauge.builder("chat.history.cache.bytes", recentHistory, RecentHistory::weight)
+            .description("Estimated size of the recent messages held in memory")
+            .register(meterRegistry);
+        Gauge.builder("chat.history.cache.evictions", recentHistory, RecentHistory::evictions)
+            .description("Sessions evicted from the recent message cache for size or idleness")
+            .register(meterRegistry);
+        this.historyHits = Counter.builder("chat.history.cache.requests")
+            .tag("result", "hit")
+            .description("Session streams whose history was replayed from memory")
+            .register(meterRegistry);
+        this.historyMisses = Counter.builder("chat.history.cache.requests")
+            .tag("result", "miss")
+            .description("Session streams whose history was read from the database")
+            .register(meterRegistry);
+
+        OverflowPolicy overflowPolicy = OverflowPolicy.parse(overflow);
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            try {
+                // Messages spilled before a restart are still unpersisted, so keep them
+                this.spillLog = SpillLog.open(Path.of(spillDir, "chat-messages.spill"), new ChatMessageCodec(), true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open chat message spill log in " + spillDir, e);
+            }
+            if (spillLog.size() > 0) {
+                System.out.println("Recovered " + spillLog.size() + " spilled chat messages");
+            }
+        } else {
+            this.spillLog = null;
+        }
 
-    public MessagePersistenceService() {
         // Start background persistence processor
-        startPersistenceProcessor();
+        this.persistenceFlusher = new BatchFlusher<>("chat-messages",
+            BatchFlusher.Policy.of(batchSize, maxLinger, targetFlushLatency),
+            new BatchFlusher.Overflow<>(Math.max(1, queueCapacity), overflowPolicy, spillLog),
+            this::persistBatch, meterRegistry);
     }
 
     /**
-     * Store message in memory and queue for async persistence.
+     * Store message in memory and queue for async persistence. When the queue is
+     * full the returned Mono waits, spills or fails according to the overflow policy.
      */
     public Mono<ChatMessage> storeMessage(String sessionId, String content, String role) {
-        return Mono.fromCallable(() -> {
-            ChatMessage message = new ChatMessage(
-                messageIdCounter.getAndIncrement(),
-                sessionId,
-                content,
-                role,
-                LocalDateTime.now()
-            );
-            
-            // Add to persistence queue (non-blocking)
-            persistenceQueue.offer(message);
-            
-            // Emit to reactive stream
-            messageSink.tryEmitNext(message);
-            
-            return message;
-        }).subscribeOn(Schedulers.boundedElastic());
+        // Rejected up front: one row violating a constraint would fail its whole insert statement
+        if (!ROLES.contains(role)) {
+            return Mono.error(new IllegalArgumentException("Unsupported message role: " + role));
+        }
+        if (content == null || content.isBlank()) {
+            return Mono.error(new IllegalArgumentException("Message content must not be empty"));
+        }
+        return persistenceFlusher.reserve()
+            .map(permit -> {
+                ChatMessage message = new ChatMessage(
+                    messageIdCounter.getAndIncrement(),
+                    sessionId,
+                    content,
+                    role,
+                    // The database keeps microseconds, so the timestamp reads back unchanged
+                    LocalDateTime.now().truncatedTo(ChronoUnit.MICROS)
+                );
+
+                // Add to persistence queue (non-blocking once room is reserved)
+                persistenceFlusher.offer(message, permit);
+
+                // Record before emitting, so a subscriber that replays and then listens sees it exactly once
+                recentHistory.append(sessionId, message);
+
+                // Emit to the session's stream and the monitoring stream
+                sessionSinks.emit(sessionId, message);
+                allMessagesSink.tryEmitNext(message);
+
+                return message;
+            })
+            // A reservation dropped by cancellation must not leak queue capacity
+            .doOnDiscard(BatchFlusher.Permit.class, persistenceFlusher::release)
+            .subscribeOn(Schedulers.boundedElastic());
     }
 
     /**
-     * Get messages for a session from in-memory storage.
+     * Get a session's recent messages followed by its live ones. Recent messages
+     * come from memory when the session is cached, and otherwise from the database
+     * together with those not persisted yet.
      */
     public Flux<ChatMessage> getSessionMessages(String sessionId) {
-        return messageSink.asFlux()
-            .filter(message -> sessionId.equals(message.getSessionId()))
-            .startWith(getPersistedMessages(sessionId));
+        return Flux.defer(() -> {
+            // Listen before taking the snapshot, so nothing stored in between is missed. What
+            // arrives meanwhile is held until the snapshot has been streamed: a published flux
+            // would drop it while nobody is subscribed yet
+            Sinks.Many<ChatMessage> held = Sinks.many().unicast().onBackpressureBuffer();
+            Disposable connection = sessionSinks.subscribe(sessionId)
+                .subscribe(held::tryEmitNext, held::tryEmitError, held::tryEmitComplete);
+            Flux<ChatMessage> live = held.asFlux()
+                .onBackpressureBuffer(subscriberBuffer, dropped -> streamDropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
+            List<ChatMessage> recent = recentHistory.replay(sessionId);
+            if (recent == null) {
+                historyMisses.increment();
+                // Messages stored while the page is read may be both in it and on the live stream
+                Set<HistoryKey> read = ConcurrentHashMap.newKeySet();
+                return getPersistedMessages(sessionId, recentHistory.held(sessionId))
+                    .doOnNext(message -> read.add(HistoryKey.of(message)))
+                    .concatWith(live.filter(message -> !read.contains(HistoryKey.of(message))))
+                    .doFinally(signal -> connection.dispose());
+            }
+            historyHits.increment();
+            Set<ChatMessage> replayed = Collections.newSetFromMap(new IdentityHashMap<>());
+            replayed.addAll(recent);
+            return Flux.fromIterable(recent)
+                .concatWith(live.filter(message -> !replayed.contains(message)))
+                .doFinally(signal -> connection.dispose());
+        });
+    }
+
+    /**
+     * Get one page of a session's persisted history, newest first.
+     *
+     * @param before cursor from the last message of the previous page, or null for the newest page
+     */
+    public Flux<ChatMessage> getMessageHistory(String sessionId, ChatMessageRepository.Cursor before, int limit) {
+        return repository.findPage(sessionId, before, limit);
     }
 
     /**
      * Get all messages stream for monitoring/debugging.
      */
     public Flux<ChatMessage> getAllMessages() {
-        return messageSink.asFlux();
+        return allMessagesSink.asFlux()
+            .onBackpressureBuffer(subscriberBuffer, dropped -> streamDropped.increment(), BufferOverflowStrategy.DROP_OLDEST);
     }
 
     /**
-     * Background processor for async persistence.
-     * Runs on separate thread pool to avoid blocking Netty.
+     * Persist what is still queued before the connection pool shuts down.
      */
-    private void startPersistenceProcessor() {
-        Flux.interval(java.time.Duration.ofSeconds(5))
-            .subscribeOn(Schedulers.boundedElastic())
-            .flatMap(tick -> processPersistenceQueue())
-            .subscribe(
-                count -> {
-                    if (count > 0) {
-                        System.out.println("Persisted " + count + " messages to background storage");
-                    }
-                },
-                error -> System.err.println("Error in persistence processor: " + error.getMessage())
-            );
+    @PreDestroy
+    public void shutdown() {
+        persistenceFlusher.close(Duration.ofSeconds(10));
+        List<ChatMessage> remaining = persistenceFlusher.drain(Integer.MAX_VALUE);
+        if (!remaining.isEmpty()) {
+            persistBatch(remaining)
+                .onErrorResume(error -> {
+                    System.err.println("Failed to persist " + remaining.size() + " messages on shutdown: " + error.getMessage());
+                    return Mono.just(0);
+                })
+                .block(Duration.ofSeconds(10));
+        }
+        if (spillLog != null) {
+            try {
+                spillLog.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close chat message spill log: " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            if (deadLetterLog != null) {
+                try {
+                    deadLetterLog.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close chat message dead-letter log: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist one flushed batch as multi-row inserts, running up to
+     * max-concurrency statements at a time.
+     */
+    private Mono<Integer> persistBatch(List<ChatMessage> batch) {
+        List<List<ChatMessage>> statements = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += rowsPerStatement) {
+            statements.add(batch.subList(from, Math.min(batch.size(), from + rowsPerStatement)));
+        }
+        // Errors are delayed so every statement runs and requeues its own rows before the flush fails
+        return Flux.fromIterable(statements)
+            .flatMapDelayError(this::persistMessages, maxConcurrency, 1)
+            .reduce(0, Integer::sum);
+    }
+
+    /**
+     * Insert one statement's worth of messages. Each statement is atomic, so on a
+     * transient failure exactly its rows are queued again; history is ordered by
+     * message timestamp, so retried rows still read back in place. A statement the
+     * database rejects outright is retried row by row, so only the offending rows
+     * are dead-lettered and the rest of the batch is not held back by them.
+     */
+    private Mono<Integer> persistMessages(List<ChatMessage> messages) {
+        return repository.insertAll(messages)
+            .map(Long::intValue)
+            .doOnNext(count -> messages.forEach(failedAttempts::remove))
+            .onErrorResume(error -> {
+                if (isTransient(error)) {
+                    return retryLater(messages, error);
+                }
+                if (messages.size() > 1) {
+                    return Flux.fromIterable(messages)
+                        .concatMapDelayError(message -> persistMessages(List.of(message)))
+                        .reduce(0, Integer::sum);
+                }
+                deadLetter(messages, error);
+                return Mono.just(0);
+            });
     }
 
     /**
-     * Process messages from queue and persist them.
-     * This could write to database, file, external service, etc.
+     * Requeue messages whose insert failed transiently, dead-lettering those that
+     * have now failed max-attempts times. Fails with {@code error} while anything
+     * was requeued, so the flusher backs off until the next linger tick.
      */
-    private Mono<Integer> processPersistenceQueue() {
-        return Mono.fromCallable(() -> {
-            int count = 0;
-            ChatMessage message;
-            
-            // Process up to 100 messages per batch
-            while ((message = persistenceQueue.poll()) != null && count < 100) {
-                // TODO: Implement actual persistence logic here
-                // Examples:
-                // - Write to R2DBC database
-                // - Send to message queue (RabbitMQ, Kafka)
-                // - Write to file
-                // - Send to external API
-                
-                persistMessage(message);
-                count++;
+    private Mono<Integer> retryLater(List<ChatMessage> messages, Throwable error) {
+        List<ChatMessage> retry = new ArrayList<>(messages.size());
+        List<ChatMessage> exhausted = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (failedAttempts.merge(message, 1, Integer::sum) < maxAttempts) {
+                retry.add(message);
+            } else {
+                exhausted.add(message);
             }
-            
-            return count;
-        }).subscribeOn(Schedulers.boundedElastic());
+        }
+        if (!exhausted.isEmpty()) {
+            deadLetter(exhausted, error);
+        }
+        if (retry.isEmpty()) {
+            return Mono.just(0);
+        }
+        persistenceFlusher.requeue(retry);
+        return Mono.error(error);
     }
 
     /**
-     * Actual persistence implementation.
-     * Replace with your preferred persistence mechanism.
+     * Give up on messages, keeping them in the dead-letter log for an operator to
+     * inspect or replay. The log is kept across restarts.
      */
-    private void persistMessage(ChatMessage message) {
-        // Example implementations:
-        
-        // 1. Log to console (for development)
-        System.out.println("PERSIST: " + message);
-        
-        // 2. TODO: Write to R2DBC database
-        // r2dbcTemplate.insert(message).subscribe();
-        
-        // 3. TODO: Send to message queue
-        // rabbitTemplate.convertAndSend("chat.messages", message);
-        
-        // 4. TODO: Write to file
-        // Files.write(Paths.get("messages.log"), message.toString().getBytes(), StandardOpenOption.APPEND);
-        
-        // 5. TODO: Send to external service
-        // webClient.post().uri("/api/messages").bodyValue(message).retrieve().toBodilessEntity().subscribe();
+    private void deadLetter(List<ChatMessage> messages, Throwable error) {
+        messages.forEach(failedAttempts::remove);
+        deadLettered.increment(messages.size());
+        System.err.println("Dead-lettering " + messages.size() + " chat messages: " + error.getMessage());
+        try {
+            deadLetterLog().appendAll(messages);
+        } catch (IOException e) {
+            System.err.println("Failed to write " + messages.size() + " chat messages to " + deadLetterPath
+                + ", they are lost: " + e.getMessage());
+        }
+    }
+
+    private synchronized SpillLog<ChatMessage> deadLetterLog() throws IOException {
+        if (deadLetterLog == null) {
+            deadLetterLog = SpillLog.open(deadLetterPath, new ChatMessageCodec(), true);
+        }
+        return deadLetterLog;
+    }
+
+    /**
+     * Whether a failed insert may succeed if retried: lost connections, exhausted
+     * resources, timeouts and rollbacks, whether reported by R2DBC directly or
+     * translated by Spring. Constraint violations, bad SQL and the like are not.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                || cause instanceof RecoverableDataAccessException
+                || cause instanceof DataAccessResourceFailureException
+                || cause instanceof R2dbcTransientException
+                || cause instanceof R2dbcNonTransientResourceException
+                || cause instanceof IOException
+                || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Most recent messages of a session, oldest first: a page read from the
+     * database merged with the {@code held} messages recorded in memory, which
+     * may still be queued, spilled or being inserted. A complete page seeds the
+     * recent message cache unless messages arrived meanwhile.
+     */
+    private Flux<ChatMessage> getPersistedMessages(String sessionId, List<ChatMessage> held) {
+        if (historySize == 0) {
+            return Flux.empty();
+        }
+        return repository.findPage(sessionId, null, historySize)
+            .collectList()
+            .map(page -> merge(page.reversed(), held))
+            .doOnNext(history -> recentHistory.seed(sessionId, history))
+            .flatMapIterable(history -> history)
+            .onErrorResume(error -> {
+                System.err.println("Failed to load history for session " + sessionId + ": " + error.getMessage());
+                return Flux.fromIterable(held);
+            });
+    }
+
+    /**
+     * The last history-size messages of a page and the held messages it does not
+     * contain yet, in timestamp order.
+     */
+    private List<ChatMessage> merge(List<ChatMessage> page, List<ChatMessage> held) {
+        if (held.isEmpty()) {
+            return page;
+        }
+        Set<HistoryKey> persisted = new HashSet<>();
+        for (ChatMessage message : page) {
+            persisted.add(HistoryKey.of(message));
+        }
+        List<ChatMessage> merged = new ArrayList<>(page);
+        for (ChatMessage message : held) {
+            if (!persisted.contains(HistoryKey.of(message))) {
+                merged.add(message);
+            }
+        }
+        merged.sort(Comparator.comparing(ChatMessage::getTimestamp));
+        return merged.subList(Math.max(0, merged.size() - historySize), merged.size());
+    }
+
+    /**
+     * What a stored message and its persisted row have in common: rows read back
+     * carry their database id rather than the provisional one, so the two copies
+     * are matched on timestamp, role and content instead.
+     */
+    private record HistoryKey(LocalDateTime timestamp, String role, String content) {
+
+        static HistoryKey of(ChatMessage message) {
+            return new HistoryKey(message.getTimestamp(), message.getRole(), message.getContent());
+        }
     }
 
     /**
-     * Retrieve persisted messages (placeholder for actual implementation).
+     * Spill log encoding of a chat message.
      */
-    private Flux<ChatMessage> getPersistedMessages(String sessionId) {
-        // TODO: Implement retrieval from persistent storage
-        // Examples:
-        // - Query R2DBC database
-        // - Read from file
-        // - Query external API
-        
-        return Flux.empty(); // Return empty for now
+    private static final class ChatMessageCodec implements SpillLog.Codec<ChatMessage> {
+
+        @Override
+        public void write(ChatMessage message, DataOutput out) throws IOException {
+            out.writeLong(message.getId());
+            out.writeUTF(message.getSessionId());
+            out.writeUTF(message.getRole());
+            // writeUTF is limited to 64KB, message content is not
+            byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(content.length);
+            out.write(content);
+            out.writeUTF(message.getTimestamp().toString());
+        }
+
+        @Override
+        public ChatMessage read(DataInput in) throws IOException {
+            long id = in.readLong();
+            String sessionId = in.readUTF();
+            String role = in.readUTF();
+            byte[] content = new byte[in.readInt()];
+            in.readFully(content);
+            LocalDateTime timestamp = LocalDateTime.parse(in.readUTF());
+            return new ChatMessage(id, sessionId, new String(content, StandardCharsets.UTF_8), role, timestamp);
+        }
     }
 
     /**
@@ -175,6 +515,13 @@ public class MessagePersistenceService {
         public String getRole() { return role; }
         public LocalDateTime getTimestamp() { return timestamp; }
 
+        /**
+         * Rough heap footprint, two bytes per character plus object overhead.
+         */
+        public long estimatedSize() {
+            return 96L + 2L * (content.length() + sessionId.length() + role.length());
+        }
+
         @Override
         public String toString() {
             return String.format("ChatMessage{id=%d, sessionId='%s', role='%s', content='%s', timestamp=%s}",
@@ -1,16 +1,47 @@
 package com.example.demo.navigation_service.service;
 
+import com.example.demo.navigation_service.persistence.BatchFlusher;
+import com.example.demo.navigation_service.persistence.OverflowPolicy;
+import com.example.demo.navigation_service.persistence.SpillLog;
+import com.example.demo.navigation_service.vector.FloatVectorStore;
+import com.example.demo.navigation_service.vector.FloatVectors;
+import com.example.demo.navigation_service.vector.HnswIndex;
+import com.example.demo.navigation_service.vector.Quantization;
+import com.example.demo.navigation_service.vector.SegmentDirectory;
+import com.example.demo.navigation_service.vector.VectorSegment;
+import com.example.demo.navigation_service.vector.WriteAheadLog;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -18,62 +49,244 @@ import java.util.concurrent.atomic.AtomicLong;
  * 
  * This service provides:
  * - In-memory vector storage for fast similarity search
- * - Async queue for background persistence of embeddings
+ * - Primitive float[] columnar storage with precomputed norms
+ * - Bounded top-K heap selection instead of sorting every scored document
+ * - Optional HNSW approximate nearest-neighbour index (app.vector-store.hnsw.*)
+ * - Partitioned exact search across cores for large stores (app.vector-store.search.*)
+ * - Metadata pre-filtering through an inverted bitmap index
+ * - Optional int8/binary quantized first pass with full-precision rescoring (app.vector-store.quantization.*)
+ * - Async queue for background persistence of embeddings, flushed by size or linger time
+ *   with adaptive batch sizes (app.vector-store.persistence.*)
+ * - A bounded persistence queue that blocks writers, spills to disk or rejects when full
+ *   (app.vector-store.persistence.queue-capacity, overflow)
+ * - Append-only memory-mapped segment files for warm start (app.vector-store.data-dir)
+ * - Group-commit write-ahead log for durable writes and crash recovery (app.vector-store.wal.*)
+ * - Background segment compaction that drops superseded documents and tombstones (app.vector-store.compaction.*)
  * - Non-blocking operations for Netty compatibility
  * - Simple cosine similarity search
  */
+@Slf4j
 @Service
 public class ReactiveVectorStoreService {
 
-    private final Map<String, VectorDocument> inMemoryStore = new ConcurrentHashMap<>();
-    private final ConcurrentLinkedQueue<VectorDocument> persistenceQueue = new ConcurrentLinkedQueue<>();
-    private final Sinks.Many<VectorDocument> vectorSink = Sinks.many().multicast().onBackpressureBuffer();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    // Vectors live in the columnar store; payloads are the documents without their embedding
+    private final FloatVectorStore<VectorDocument> vectorStore;
+    private final Sinks.Many<VectorDocument> vectorSink = Sinks.many().multicast().directBestEffort();
     private final AtomicLong documentIdCounter = new AtomicLong(1);
 
-    public ReactiveVectorStoreService() {
-        // Start background persistence processor
-        startVectorPersistenceProcessor();
+    // Dedicated CPU-bound workers for partitioned scans, shared fairly by concurrent queries
+    private final Scheduler searchScheduler;
+    private final int searchParallelism;
+    private final int minShardSize;
+    private final boolean hnswEnabled;
+
+    // Segment files and write-ahead log; both null keeps the store memory-only
+    private final SegmentDirectory segmentDirectory;
+    private final WriteAheadLog writeAheadLog;
+    // Orders log sequence numbers and persistence queue entries identically
+    private final Object walLock = new Object();
+    private final ObjectMapper objectMapper;
+    private final int compactionMergeFactor;
+    private final long compactionMaxSegmentBytes;
+    // Failed batches go back to the head of the queue so segments keep log order
+    private final BatchFlusher<PendingWrite> persistenceFlusher;
+    private final SpillLog<PendingWrite> spillLog;
+    private final Disposable compactionProcessor;
+
+    public ReactiveVectorStoreService(
+            @Value("${app.vector-store.hnsw.enabled:false}") boolean hnswEnabled,
+            @Value("${app.vector-store.hnsw.m:16}") int hnswM,
+            @Value("${app.vector-store.hnsw.ef-construction:200}") int hnswEfConstruction,
+            @Value("${app.vector-store.hnsw.ef-search:64}") int hnswEfSearch,
+            @Value("${app.vector-store.search.parallelism:0}") int searchParallelism,
+            @Value("${app.vector-store.search.min-shard-size:8192}") int minShardSize,
+            @Value("${app.vector-store.quantization.mode:none}") String quantization,
+            @Value("${app.vector-store.quantization.rescore-multiplier:4}") int rescoreMultiplier,
+            @Value("${app.vector-store.data-dir:}") String dataDir,
+            @Value("${app.vector-store.wal.max-file-bytes:16777216}") long walMaxFileBytes,
+            @Value("${app.vector-store.compaction.merge-factor:10}") int compactionMergeFactor,
+            @Value("${app.vector-store.compaction.max-segment-bytes:1073741824}") long compactionMaxSegmentBytes,
+            @Value("${app.vector-store.persistence.batch-size:500}") int persistenceBatchSize,
+            @Value("${app.vector-store.persistence.max-linger:2s}") Duration persistenceMaxLinger,
+            @Value("${app.vector-store.persistence.target-flush-latency:500ms}") Duration persistenceTargetLatency,
+            @Value("${app.vector-store.persistence.queue-capacity:50000}") int persistenceQueueCapacity,
+            @Value("${app.vector-store.persistence.overflow:block}") String persistenceOverflow,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.hnswEnabled = hnswEnabled;
+        // Segments carry the same graph and codes as the store, so a warm start adopts them
+        VectorSegment.Indexes indexes = new VectorSegment.Indexes(
+            hnswEnabled ? new HnswIndex.Config(hnswM, hnswEfConstruction, hnswEfSearch) : null,
+            Quantization.parse(quantization)
+        );
+        this.vectorStore = new FloatVectorStore<>(
+            indexes.graph(),
+            VectorDocument::getMetadata,
+            indexes.quantization(),
+            rescoreMultiplier
+        );
+        this.searchParallelism = searchParallelism > 0
+            ? searchParallelism
+            : Runtime.getRuntime().availableProcessors();
+        this.minShardSize = Math.max(1, minShardSize);
+        this.searchScheduler = Schedulers.newParallel("vector-search", this.searchParallelism, true);
+        this.objectMapper = objectMapper;
+        this.compactionMergeFactor = Math.max(2, compactionMergeFactor);
+        this.compactionMaxSegmentBytes = compactionMaxSegmentBytes;
+        OverflowPolicy overflowPolicy = OverflowPolicy.parse(persistenceOverflow);
+        List<PendingWrite> replayed = new ArrayList<>();
+        if (dataDir == null || dataDir.isBlank()) {
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                throw new IllegalArgumentException("The spill overflow policy requires app.vector-store.data-dir");
+            }
+            this.segmentDirectory = null;
+            this.writeAheadLog = null;
+        } else {
+            this.segmentDirectory = openSegments(Path.of(dataDir), indexes);
+            this.writeAheadLog = recoverWriteAheadLog(Path.of(dataDir).resolve("wal"), walMaxFileBytes, replayed);
+        }
+        this.spillLog = overflowPolicy == OverflowPolicy.SPILL ? openSpillLog(Path.of(dataDir)) : null;
+
+        // Start background persistence processor once the segment directory is in place
+        this.persistenceFlusher = new BatchFlusher<>("vector-documents",
+            BatchFlusher.Policy.of(persistenceBatchSize, persistenceMaxLinger, persistenceTargetLatency),
+            new BatchFlusher.Overflow<>(Math.max(1, persistenceQueueCapacity), overflowPolicy, spillLog),
+            this::persistBatch, meterRegistry);
+        // Replayed records were admitted before the restart, so they bypass the capacity check
+        persistenceFlusher.requeue(replayed);
+        this.compactionProcessor = segmentDirectory != null ? startCompactionProcessor() : null;
     }
 
     /**
      * Store document with embedding in memory and queue for async persistence.
      */
     public Mono<VectorDocument> storeDocument(String content, List<Double> embedding, Map<String, Object> metadata) {
-        return Mono.fromCallable(() -> {
-            String id = "doc_" + documentIdCounter.getAndIncrement();
-            VectorDocument document = new VectorDocument(
-                id,
-                content,
-                embedding,
-                metadata,
-                LocalDateTime.now()
-            );
-            
-            // Store in memory for fast access
-            inMemoryStore.put(id, document);
-            
-            // Add to persistence queue (non-blocking)
-            persistenceQueue.offer(document);
-            
-            // Emit to reactive stream
-            vectorSink.tryEmitNext(document);
-            
-            return document;
-        }).subscribeOn(Schedulers.boundedElastic());
+        return Mono.fromCallable(() -> FloatVectors.toArray(embedding))
+            .flatMap(vector -> storeDocument(content, vector, metadata));
+    }
+
+    /**
+     * Store document with a primitive embedding in memory and queue for async persistence.
+     * With a data directory configured, completes once the write-ahead log record is fsynced.
+     * When the persistence queue is full, waits, spills or fails according to the overflow policy.
+     */
+    public Mono<VectorDocument> storeDocument(String content, float[] embedding, Map<String, Object> metadata) {
+        return persistenceFlusher.reserve()
+            .publishOn(Schedulers.boundedElastic())
+            .map(permit -> {
+                String id = "doc_" + documentIdCounter.getAndIncrement();
+                VectorDocument document = new VectorDocument(
+                    id,
+                    content,
+                    embedding,
+                    metadata,
+                    LocalDateTime.now()
+                );
+
+                // Store in memory for fast access (vector is copied into the columnar store)
+                try {
+                    vectorStore.put(id, embedding, document.withoutVector());
+                } catch (RuntimeException e) {
+                    persistenceFlusher.release(permit);
+                    throw e;
+                }
+
+                // Log and add to persistence queue (non-blocking once room is reserved)
+                CompletableFuture<Long> durable;
+                try {
+                    durable = logAndQueue(document, permit);
+                } catch (RuntimeException e) {
+                    vectorStore.remove(id);
+                    throw e;
+                }
+
+                // A write that is not durable must not stay searchable; only durable ones are emitted
+                return durable
+                    .whenComplete((sequence, error) -> {
+                        if (error != null) {
+                            vectorStore.remove(id);
+                        } else {
+                            vectorSink.tryEmitNext(document);
+                        }
+                    })
+                    .thenApply(sequence -> document);
+            })
+            .doOnDiscard(BatchFlusher.Permit.class, persistenceFlusher::release)
+            .flatMap(Mono::fromFuture);
     }
 
     /**
      * Perform similarity search using cosine similarity.
+     * Uses the HNSW index when enabled, otherwise an exact scan.
      */
     public Flux<SimilarityResult> similaritySearch(List<Double> queryEmbedding, int topK, double threshold) {
-        return Flux.fromIterable(inMemoryStore.values())
-            .subscribeOn(Schedulers.boundedElastic())
-            .map(doc -> new SimilarityResult(
-                doc,
-                cosineSimilarity(queryEmbedding, doc.getEmbedding())
+        return similaritySearch(FloatVectors.toArray(queryEmbedding), topK, threshold, Map.of());
+    }
+
+    /**
+     * Perform similarity search restricted to documents whose metadata matches every
+     * filter entry. A collection value matches any of its elements.
+     */
+    public Flux<SimilarityResult> similaritySearch(List<Double> queryEmbedding, int topK, double threshold,
+                                                   Map<String, Object> filter) {
+        return similaritySearch(FloatVectors.toArray(queryEmbedding), topK, threshold, filter);
+    }
+
+    /**
+     * Perform similarity search using cosine similarity with a primitive query vector.
+     */
+    public Flux<SimilarityResult> similaritySearch(float[] queryEmbedding, int topK, double threshold) {
+        return similaritySearch(queryEmbedding, topK, threshold, Map.of());
+    }
+
+    /**
+     * Perform filtered similarity search with a primitive query vector.
+     * The filter is resolved to candidate ordinals before any vector is scored;
+     * large candidate sets without an HNSW index are scanned in parallel shards.
+     */
+    public Flux<SimilarityResult> similaritySearch(float[] queryEmbedding, int topK, double threshold,
+                                                   Map<String, Object> filter) {
+        // Sized per subscription, so a later or repeated subscription sees the current store
+        Flux<FloatVectorStore.Match<VectorDocument>> matches = Flux.defer(() -> {
+            int candidates = filter == null || filter.isEmpty() ? vectorStore.size() : vectorStore.count(filter);
+            int shards = hnswEnabled ? 1 : Math.min(searchParallelism, candidates / minShardSize);
+            return shards > 1
+                ? partitionedSearch(queryEmbedding, topK, (float) threshold, filter, shards)
+                : Mono.fromCallable(() -> vectorStore.search(queryEmbedding, topK, (float) threshold, filter))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapIterable(result -> result);
+        });
+
+        return matches.map(match -> new SimilarityResult(
+            match.payload().withVector(match.vector()),
+            match.score()
+        ));
+    }
+
+    /**
+     * Split the ordinal space into shards, compute each shard's top-K on the
+     * search scheduler and merge the (at most shards * topK) partial results.
+     */
+    private Flux<FloatVectorStore.Match<VectorDocument>> partitionedSearch(
+            float[] queryEmbedding, int topK, float threshold, Map<String, Object> filter, int shards) {
+        int limit = vectorStore.ordinalLimit();
+        int shardSize = (limit + shards - 1) / shards;
+
+        return Flux.range(0, shards)
+            .parallel(shards)
+            .runOn(searchScheduler)
+            .map(shard -> vectorStore.searchExact(
+                queryEmbedding, topK, threshold, filter,
+                shard * shardSize, Math.min(limit, (shard + 1) * shardSize)
             ))
-            .filter(result -> result.getScore() >= threshold)
-            .sort((a, b) -> Double.compare(b.getScore(), a.getScore()))
+            .sequential()
+            .flatMapIterable(result -> result)
+            .collectSortedList(Comparator.comparingDouble(
+                (FloatVectorStore.Match<VectorDocument> match) -> match.score()).reversed())
+            .flatMapIterable(result -> result)
             .take(topK);
     }
 
@@ -81,7 +294,7 @@ public class ReactiveVectorStoreService {
      * Get document by ID.
      */
     public Mono<VectorDocument> getDocument(String id) {
-        return Mono.fromCallable(() -> inMemoryStore.get(id))
+        return Mono.fromCallable(() -> vectorStore.get(id, VectorDocument::withVector))
             .subscribeOn(Schedulers.boundedElastic());
     }
 
@@ -89,123 +302,391 @@ public class ReactiveVectorStoreService {
      * Get all documents stream.
      */
     public Flux<VectorDocument> getAllDocuments() {
-        return Flux.fromIterable(inMemoryStore.values())
-            .subscribeOn(Schedulers.boundedElastic());
+        return Mono.fromCallable(() -> vectorStore.getAll(VectorDocument::withVector))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapIterable(documents -> documents);
     }
 
     /**
-     * Delete document from memory and mark for deletion in persistence.
+     * Mark document for deletion in persistence, then delete it from memory.
+     * A deletion that cannot be logged leaves the document in place.
      */
     public Mono<Boolean> deleteDocument(String id) {
-        return Mono.fromCallable(() -> {
-            VectorDocument removed = inMemoryStore.remove(id);
-            if (removed != null) {
-                // Mark for deletion in persistence layer
-                VectorDocument deletionMarker = new VectorDocument(
-                    id, null, null, Map.of("_deleted", true), LocalDateTime.now()
-                );
-                persistenceQueue.offer(deletionMarker);
-                return true;
+        return persistenceFlusher.reserve()
+            .publishOn(Schedulers.boundedElastic())
+            .map(permit -> {
+                if (vectorStore.get(id, (document, vector) -> document) == null) {
+                    persistenceFlusher.release(permit);
+                    return CompletableFuture.completedFuture(false);
+                }
+                return logAndQueue(deletionMarker(id), permit)
+                    .thenApply(sequence -> vectorStore.remove(id) != null);
+            })
+            .doOnDiscard(BatchFlusher.Permit.class, persistenceFlusher::release)
+            .flatMap(Mono::fromFuture);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Closing the log completes every accepted record, which queues it for the drain below
+        if (writeAheadLog != null) {
+            try {
+                writeAheadLog.close();
+            } catch (IOException e) {
+                log.warn("Error closing vector write-ahead log", e);
             }
-            return false;
-        }).subscribeOn(Schedulers.boundedElastic());
+        }
+        persistenceFlusher.close(Duration.ofSeconds(30));
+        if (compactionProcessor != null) {
+            compactionProcessor.dispose();
+        }
+        // Flush whatever is still queued so it survives the restart
+        List<PendingWrite> batch;
+        while (!(batch = persistenceFlusher.drain(persistenceFlusher.batchSize())).isEmpty()) {
+            try {
+                persistPendingBatch(batch);
+            } catch (IOException e) {
+                log.warn("Failed to write vector segment on shutdown", e);
+                break;
+            }
+        }
+        if (spillLog != null) {
+            try {
+                spillLog.close();
+            } catch (IOException e) {
+                log.warn("Error closing vector spill log", e);
+            }
+        }
+        searchScheduler.dispose();
+    }
+
+    /**
+     * Append a mutation to the write-ahead log and queue it for the next segment
+     * once the record is durable, so a failed append never reaches a segment. The
+     * permit is consumed either way: offered with the mutation, or released if
+     * logging fails.
+     *
+     * @return completes with the log sequence number once the record is durable and queued
+     */
+    private CompletableFuture<Long> logAndQueue(VectorDocument document, BatchFlusher.Permit permit) {
+        if (writeAheadLog == null) {
+            persistenceFlusher.offer(new PendingWrite(document, 0), permit);
+            return CompletableFuture.completedFuture(0L);
+        }
+        // The log completes records in sequence order. Appending and registering the callback
+        // under one lock keeps queue order equal to log order, even for a record already durable.
+        synchronized (walLock) {
+            CompletableFuture<Long> durable;
+            try {
+                byte[] payload = document.getVector() != null ? encodePayload(document) : null;
+                durable = payload != null
+                    ? writeAheadLog.appendPut(document.getId(), document.getVector(), payload)
+                    : writeAheadLog.appendDelete(document.getId());
+            } catch (RuntimeException e) {
+                persistenceFlusher.release(permit);
+                throw e;
+            }
+            return durable.whenComplete((sequence, error) -> {
+                if (error != null) {
+                    persistenceFlusher.release(permit);
+                } else {
+                    persistenceFlusher.offer(new PendingWrite(document, sequence), permit);
+                }
+            });
+        }
+    }
+
+    /**
+     * Overflow log for the persistence queue. Spilled writes are also in the
+     * write-ahead log, which replays them after a restart, so old contents are discarded.
+     */
+    private SpillLog<PendingWrite> openSpillLog(Path dataDir) {
+        try {
+            return SpillLog.open(dataDir.resolve("spill").resolve("vector-documents.spill"), new PendingWriteCodec(), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open vector spill log in " + dataDir, e);
+        }
+    }
+
+    private static VectorDocument deletionMarker(String id) {
+        return new VectorDocument(id, null, (float[]) null, Map.of("_deleted", true), LocalDateTime.now());
+    }
+
+    /**
+     * Replay log records newer than the segments, re-queueing them for the next segment.
+     */
+    private WriteAheadLog recoverWriteAheadLog(Path walDir, long maxFileBytes, List<PendingWrite> replayed) {
+        try {
+            WriteAheadLog recovered = WriteAheadLog.open(walDir, maxFileBytes, segmentDirectory.checkpoint(), record -> {
+                VectorDocument document;
+                if (record.deleted()) {
+                    vectorStore.remove(record.id());
+                    document = deletionMarker(record.id());
+                } else {
+                    document = decodeDocument(record.id(), ByteBuffer.wrap(record.payload()));
+                    vectorStore.put(record.id(), record.vector(), document);
+                    document = document.withVector(record.vector());
+                }
+                advanceIdCounter(record.id());
+                replayed.add(new PendingWrite(document, record.sequence()));
+            });
+            if (!replayed.isEmpty()) {
+                log.info("Replayed {} vector write-ahead log records", replayed.size());
+            }
+            return recovered;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover vector write-ahead log in " + walDir, e);
+        }
     }
 
     /**
-     * Calculate cosine similarity between two vectors.
+     * Map existing segments into the store; vectors and payloads stay in the file
+     * mappings, only the metadata to index is read on startup, and stored graphs
+     * and codes are adopted where they match the configuration.
      */
-    private double cosineSimilarity(List<Double> vectorA, List<Double> vectorB) {
-        if (vectorA.size() != vectorB.size()) {
-            throw new IllegalArgumentException("Vectors must have the same dimension");
+    private SegmentDirectory openSegments(Path dataDir, VectorSegment.Indexes indexes) {
+        try {
+            long start = System.nanoTime();
+            SegmentDirectory directory = new SegmentDirectory(dataDir, indexes);
+            List<VectorSegment> segments = directory.openAll();
+            for (VectorSegment segment : segments) {
+                vectorStore.load(segment, this::decodeDocument, this::readMetadata);
+                for (int i = 0; i < segment.size(); i++) {
+                    advanceIdCounter(segment.id(i));
+                }
+                segment.tombstones().forEach(this::advanceIdCounter);
+            }
+            log.info("Mapped {} vector segments ({} documents) from {} in {} ms", segments.size(), vectorStore.size(),
+                directory.path(), (System.nanoTime() - start) / 1_000_000);
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open vector segments in " + dataDir, e);
         }
+    }
 
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+    /**
+     * Rebuild a stored document (without its vector) from a segment payload.
+     */
+    private VectorDocument decodeDocument(String id, ByteBuffer payload) {
+        try {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            StoredPayload stored = objectMapper.readValue(bytes, StoredPayload.class);
+            return new VectorDocument(id, stored.content(), (float[]) null, stored.metadata(),
+                stored.timestamp() != null ? LocalDateTime.parse(stored.timestamp()) : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt payload for vector document " + id, e);
+        }
+    }
 
-        for (int i = 0; i < vectorA.size(); i++) {
-            dotProduct += vectorA.get(i) * vectorB.get(i);
-            normA += Math.pow(vectorA.get(i), 2);
-            normB += Math.pow(vectorB.get(i), 2);
+    /**
+     * Read only the metadata of a segment payload, skipping over the content
+     * without decoding it.
+     */
+    private Map<String, Object> readMetadata(String id, ByteBuffer payload) {
+        try (JsonParser parser = objectMapper.createParser(new ByteBufferBackedInputStream(payload))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (field.equals("metadata")) {
+                    return objectMapper.readValue(parser, METADATA_TYPE);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt payload for vector document " + id, e);
         }
+    }
 
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    /**
+     * Keep generated ids ahead of every id already present on disk.
+     */
+    private void advanceIdCounter(String id) {
+        if (id.startsWith("doc_")) {
+            try {
+                long value = Long.parseLong(id.substring(4));
+                documentIdCounter.accumulateAndGet(value + 1, Math::max);
+            } catch (NumberFormatException ignored) {
+                // Externally assigned id, nothing to reserve
+            }
+        }
     }
 
     /**
-     * Background processor for async vector persistence.
+     * Background compaction of small segments into larger ones.
+     * The live store keeps its existing mappings; merged files take effect on the next start.
      */
-    private void startVectorPersistenceProcessor() {
-        Flux.interval(java.time.Duration.ofSeconds(10))
-            .subscribeOn(Schedulers.boundedElastic())
-            .flatMap(tick -> processVectorPersistenceQueue())
-            .subscribe(
-                count -> {
-                    if (count > 0) {
-                        System.out.println("Persisted " + count + " vector documents to background storage");
-                    }
-                },
-                error -> System.err.println("Error in vector persistence processor: " + error.getMessage())
-            );
+    private Disposable startCompactionProcessor() {
+        return Flux.interval(Duration.ofMinutes(1))
+            .onBackpressureDrop()
+            .concatMap(tick -> Mono.fromCallable(
+                    () -> segmentDirectory.compact(compactionMergeFactor, compactionMaxSegmentBytes))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(error -> {
+                    log.warn("Error compacting vector segments", error);
+                    return Mono.just(0);
+                }))
+            .subscribe(merged -> {
+                if (merged > 0) {
+                    log.info("Compacted {} vector segments", merged);
+                }
+            });
     }
 
     /**
-     * Process vectors from queue and persist them.
+     * Flush one batch to a segment off the event loop. A failed write puts the
+     * batch back at the head of the queue, ahead of anything logged after it.
      */
-    private Mono<Integer> processVectorPersistenceQueue() {
+    private Mono<Integer> persistBatch(List<PendingWrite> batch) {
         return Mono.fromCallable(() -> {
-            int count = 0;
-            VectorDocument document;
-            
-            // Process up to 50 documents per batch
-            while ((document = persistenceQueue.poll()) != null && count < 50) {
-                persistVectorDocument(document);
-                count++;
-            }
-            
-            return count;
+            try {
+                persistPendingBatch(batch);
+                return batch.size();
+            } catch (IOException e) {
+                persistenceFlusher.requeue(batch);
+                throw e;
+            }
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
     /**
-     * Actual vector persistence implementation.
+     * Serializes segment writes between the flusher and shutdown.
      */
-    private void persistVectorDocument(VectorDocument document) {
-        // Example implementations:
-        
-        // 1. Log to console (for development)
-        System.out.println("PERSIST VECTOR: " + document.getId() + " (embedding size: " + 
-            (document.getEmbedding() != null ? document.getEmbedding().size() : "deleted") + ")");
-        
-        // 2. TODO: Write to vector database (Pinecone, Weaviate, etc.)
-        // vectorDbClient.upsert(document).subscribe();
-        
-        // 3. TODO: Write to file-based vector store
-        // Files.write(Paths.get("vectors/" + document.getId() + ".json"), 
-        //     objectMapper.writeValueAsBytes(document));
-        
-        // 4. TODO: Send to external vector service
-        // webClient.post().uri("/api/vectors").bodyValue(document).retrieve().toBodilessEntity().subscribe();
-        
-        // 5. TODO: Store in PostgreSQL with pgvector (via separate service)
-        // persistenceServiceClient.storeVector(document).subscribe();
+    private synchronized void persistPendingBatch(List<PendingWrite> batch) throws IOException {
+        persistVectorDocuments(batch);
+    }
+
+    /**
+     * Actual vector persistence implementation: one segment file per batch.
+     */
+    private void persistVectorDocuments(List<PendingWrite> batch) throws IOException {
+        if (segmentDirectory == null) {
+            // No data directory (development): nothing to write
+            if (log.isDebugEnabled()) {
+                for (PendingWrite pending : batch) {
+                    VectorDocument document = pending.document();
+                    log.debug("Persist vector {} (embedding size: {})", document.getId(),
+                        document.getVector() != null ? document.getVector().length : "deleted");
+                }
+            }
+            return;
+        }
+
+        List<VectorSegment.Entry> entries = new ArrayList<>(batch.size());
+        Set<String> tombstones = new LinkedHashSet<>();
+        int dimension = 0;
+        long walSequence = 0;
+        for (PendingWrite pending : batch) {
+            VectorDocument document = pending.document();
+            walSequence = Math.max(walSequence, pending.sequence());
+            if (document.getVector() == null) {
+                tombstones.add(document.getId());
+                continue;
+            }
+            dimension = document.getVector().length;
+            entries.add(new VectorSegment.Entry(document.getId(), document.getVector(), encodePayload(document)));
+        }
+        VectorSegment segment = segmentDirectory.append(dimension, entries, tombstones, walSequence);
+        log.debug("Persisted {} vector documents and {} deletions to {}", entries.size(), tombstones.size(),
+            segment.path().getFileName());
+
+        // Log records up to this batch are now in a segment
+        if (writeAheadLog != null) {
+            writeAheadLog.checkpoint(walSequence);
+        }
+    }
+
+    private byte[] encodePayload(VectorDocument document) {
+        try {
+            return objectMapper.writeValueAsBytes(new StoredPayload(
+                document.getContent(),
+                document.getMetadata(),
+                document.getTimestamp() != null ? document.getTimestamp().toString() : null
+            ));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode vector document " + document.getId(), e);
+        }
+    }
+
+    /**
+     * Segment and log payload: everything about a document except its id and vector.
+     */
+    private record StoredPayload(String content, Map<String, Object> metadata, String timestamp) {
+    }
+
+    /**
+     * A queued mutation and the log sequence number that made it durable (0 without a log).
+     */
+    private record PendingWrite(VectorDocument document, long sequence) {
+    }
+
+    /**
+     * Spill log encoding of a queued mutation: sequence, id, then vector and payload unless it is a deletion.
+     */
+    private final class PendingWriteCodec implements SpillLog.Codec<PendingWrite> {
+
+        @Override
+        public void write(PendingWrite pending, DataOutput out) throws IOException {
+            VectorDocument document = pending.document();
+            out.writeLong(pending.sequence());
+            out.writeUTF(document.getId());
+            float[] vector = document.getVector();
+            out.writeInt(vector != null ? vector.length : -1);
+            if (vector == null) {
+                return;
+            }
+            for (float value : vector) {
+                out.writeFloat(value);
+            }
+            byte[] payload = encodePayload(document);
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+
+        @Override
+        public PendingWrite read(DataInput in) throws IOException {
+            long sequence = in.readLong();
+            String id = in.readUTF();
+            int dimension = in.readInt();
+            if (dimension < 0) {
+                return new PendingWrite(deletionMarker(id), sequence);
+            }
+            float[] vector = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                vector[i] = in.readFloat();
+            }
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return new PendingWrite(decodeDocument(id, ByteBuffer.wrap(payload)).withVector(vector), sequence);
+        }
     }
 
     /**
      * Vector document data class.
+     * The embedding is held as a primitive float[]; {@link #getEmbedding()} exposes
+     * a boxed read-only view for existing callers.
      */
     public static class VectorDocument {
         private final String id;
         private final String content;
-        private final List<Double> embedding;
+        private final float[] vector;
         private final Map<String, Object> metadata;
         private final LocalDateTime timestamp;
 
         public VectorDocument(String id, String content, List<Double> embedding, 
                             Map<String, Object> metadata, LocalDateTime timestamp) {
+            this(id, content, FloatVectors.toArray(embedding), metadata, timestamp);
+        }
+
+        public VectorDocument(String id, String content, float[] vector,
+                            Map<String, Object> metadata, LocalDateTime timestamp) {
             this.id = id;
             this.content = content;
-            this.embedding = embedding;
+            this.vector = vector;
             this.metadata = metadata;
             this.timestamp = timestamp;
         }
@@ -213,9 +694,18 @@ public class ReactiveVectorStoreService {
         // Getters
         public String getId() { return id; }
         public String getContent() { return content; }
-        public List<Double> getEmbedding() { return embedding; }
+        public List<Double> getEmbedding() { return FloatVectors.asDoubleList(vector); }
+        public float[] getVector() { return vector; }
         public Map<String, Object> getMetadata() { return metadata; }
         public LocalDateTime getTimestamp() { return timestamp; }
+
+        VectorDocument withVector(float[] vector) {
+            return new VectorDocument(id, content, vector, metadata, timestamp);
+        }
+
+        VectorDocument withoutVector() {
+            return withVector(null);
+        }
     }
 
     /**
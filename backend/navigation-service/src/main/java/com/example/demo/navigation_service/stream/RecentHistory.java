@@ -0,0 +1,174 @@
+package com.example.demo.navigation_service.stream;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Last {@code perKey} items of each key, such as a chat session, kept in memory
+ * so a reconnecting subscriber can replay them without a database read.
+ *
+ * A key only answers {@link #replay} once its window is known to be complete:
+ * after {@link #seed} installed it from the store, or once it has filled up by
+ * appends alone. Until then the caller should go to the store and seed from there.
+ *
+ * Whole keys are evicted least recently used first while the estimated size of
+ * all items exceeds {@code maxWeight}, and when untouched for {@code idleTimeout}.
+ * All operations run under one lock and are O(1) apart from the evictions they perform.
+ */
+public final class RecentHistory<K, T> {
+
+    private final int perKey;
+    private final long maxWeight;
+    private final long idleMillis;
+    private final ToLongFunction<T> weigher;
+    private final Clock clock;
+    // Access order, so the eldest entry is both the least recently used and the longest idle
+    private final LinkedHashMap<K, Window<T>> windows = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long evictions;
+
+    public RecentHistory(int perKey, long maxWeight, Duration idleTimeout, ToLongFunction<T> weigher, Clock clock) {
+        this.perKey = Math.max(0, perKey);
+        this.maxWeight = Math.max(0, maxWeight);
+        this.idleMillis = idleTimeout.toMillis();
+        this.weigher = weigher;
+        this.clock = clock;
+    }
+
+    /**
+     * Record a new item for {@code key}, dropping its oldest item once the window is full.
+     */
+    public synchronized void append(K key, T item) {
+        if (perKey == 0) {
+            return;
+        }
+        long now = clock.millis();
+        Window<T> window = windows.get(key);
+        if (window == null) {
+            window = new Window<>(perKey);
+            windows.put(key, window);
+        }
+        add(window, item);
+        if (window.items.size() == perKey) {
+            window.complete = true;
+        }
+        window.touched = now;
+        evict(now);
+    }
+
+    /**
+     * Install the complete recent history of {@code key}, oldest first, unless
+     * items were appended for it since it was last evicted.
+     *
+     * @return true if the history was installed
+     */
+    public synchronized boolean seed(K key, List<T> items) {
+        if (perKey == 0 || windows.containsKey(key)) {
+            return false;
+        }
+        long now = clock.millis();
+        Window<T> window = new Window<>(perKey);
+        for (T item : items.subList(Math.max(0, items.size() - perKey), items.size())) {
+            add(window, item);
+        }
+        window.complete = true;
+        window.touched = now;
+        windows.put(key, window);
+        evict(now);
+        return windows.containsKey(key);
+    }
+
+    /**
+     * Recent items of {@code key}, oldest first, or null if its window is missing or incomplete.
+     */
+    public synchronized List<T> replay(K key) {
+        if (perKey == 0) {
+            return List.of();
+        }
+        long now = clock.millis();
+        evict(now);
+        Window<T> window = windows.get(key);
+        if (window == null || !window.complete) {
+            return null;
+        }
+        window.touched = now;
+        return List.copyOf(window.items);
+    }
+
+    /**
+     * Items held for {@code key}, oldest first, whether or not its window is
+     * complete; empty if there are none. Appended items the store may not have
+     * yet are merged from here into what was read from it.
+     */
+    public synchronized List<T> held(K key) {
+        Window<T> window = windows.get(key);
+        return window == null ? List.of() : List.copyOf(window.items);
+    }
+
+    /**
+     * Forget everything held for {@code key}.
+     */
+    public synchronized void invalidate(K key) {
+        Window<T> window = windows.remove(key);
+        if (window != null) {
+            weight -= window.weight;
+        }
+    }
+
+    /** Number of keys held. */
+    public synchronized int size() {
+        return windows.size();
+    }
+
+    /** Estimated size of all items held. */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /** Keys evicted for size or idleness so far. */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private void add(Window<T> window, T item) {
+        if (window.items.size() == perKey) {
+            long dropped = weigher.applyAsLong(window.items.removeFirst());
+            window.weight -= dropped;
+            weight -= dropped;
+        }
+        long added = weigher.applyAsLong(item);
+        window.items.addLast(item);
+        window.weight += added;
+        weight += added;
+    }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<K, Window<T>>> eldest = windows.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Window<T> window = eldest.next().getValue();
+            if (weight <= maxWeight && now - window.touched < idleMillis) {
+                return;
+            }
+            eldest.remove();
+            weight -= window.weight;
+            evictions++;
+        }
+    }
+
+    private static final class Window<T> {
+        final ArrayDeque<T> items;
+        long weight;
+        long touched;
+        boolean complete;
+
+        Window(int capacity) {
+            this.items = new ArrayDeque<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.navigation_service.stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fan-out of items to subscribers of one key, such as a chat session.
+ *
+ * Each key gets its own multicast sink, created when its first subscriber
+ * arrives and removed when the last one cancels or completes. Emitting is a
+ * single map lookup, so the cost per item does not grow with the number of
+ * keys being watched; items for a key nobody subscribes to are dropped.
+ */
+public final class SessionSinks<K, T> {
+
+    private final ConcurrentHashMap<K, Channel<T>> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Live items emitted for {@code key} from the moment of subscription.
+     */
+    public Flux<T> subscribe(K key) {
+        return Flux.defer(() -> {
+            // compute serializes with release, so a channel is never handed out after removal
+            Channel<T> channel = channels.compute(key, (k, existing) -> {
+                Channel<T> acquired = existing != null ? existing : new Channel<>();
+                acquired.subscribers++;
+                return acquired;
+            });
+            return channel.sink.asFlux()
+                .doFinally(signal -> release(key, channel));
+        });
+    }
+
+    /**
+     * Deliver an item to the current subscribers of {@code key}.
+     *
+     * @return false if nobody was subscribed or every subscriber was saturated
+     */
+    public boolean emit(K key, T item) {
+        Channel<T> channel = channels.get(key);
+        return channel != null && channel.sink.tryEmitNext(item).isSuccess();
+    }
+
+    /**
+     * Number of keys with at least one subscriber.
+     */
+    public int size() {
+        return channels.size();
+    }
+
+    private void release(K key, Channel<T> channel) {
+        channels.computeIfPresent(key, (k, current) -> {
+            if (current != channel) {
+                return current;
+            }
+            return --current.subscribers == 0 ? null : current;
+        });
+    }
+
+    private static final class Channel<T> {
+        final Sinks.Many<T> sink = Sinks.many().multicast().directBestEffort();
+        // Only touched inside compute on this channel's key
+        int subscribers;
+    }
+}
@@ -0,0 +1,712 @@
+package com.example.demo.navigation_service.vector;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Columnar in-memory storage for fixed-dimension float vectors.
+ *
+ * Vectors are laid out back to back in primitive {@code float[]} chunks of
+ * {@link #CHUNK_SIZE} slots each and addressed by a dense int ordinal, with the
+ * L2 norm of every vector computed once on insert. A similarity scan is then a
+ * tight loop over primitive arrays with no boxing and no per-document objects,
+ * using the {@link SimilarityKernel} selected at startup.
+ *
+ * Each ordinal also carries an opaque payload (the document without its vector)
+ * so callers can materialize results. Freed ordinals are recycled on insert.
+ * Reads share a read lock; inserts and removals take the write lock.
+ *
+ * When constructed with an {@link HnswIndex.Config} the store also maintains an
+ * HNSW graph on every insert and removal and answers {@link #search} from it;
+ * {@link #searchExact} always performs the brute-force scan.
+ *
+ * When constructed with a metadata extractor, payload metadata is kept in a
+ * {@link MetadataIndex} and every search accepts an optional filter that is
+ * resolved to a bitmap of candidate ordinals before any vector is scored.
+ *
+ * With a {@link Quantization} other than NONE, exact scans run a first pass over
+ * compressed {@link QuantizedCodes} and rescore only the best
+ * {@code topK * rescoreMultiplier} candidates against the full-precision vectors.
+ *
+ * {@link #load} attaches a {@link VectorSegment} without copying its vectors:
+ * each run of {@link #CHUNK_SIZE} segment vectors becomes a chunk backed by the
+ * file mapping, scored in place off-heap. Mapped chunks are never written to;
+ * replacing or removing a mapped vector just retires its ordinal. Payloads of
+ * mapped documents stay in the segment too and are decoded whenever they are read.
+ * Quantized codes stored with the segment are copied rather than re-encoded, and
+ * its stored graph is adopted instead of rebuilt when the store's graph is still
+ * empty; documents of later segments are inserted into that graph as usual.
+ *
+ * @param <T> payload type kept alongside every vector
+ */
+public final class FloatVectorStore<T> {
+
+    static final int CHUNK_SHIFT = 8;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final SimilarityKernel KERNEL = SimilarityKernels.preferred();
+
+    /**
+     * Filtered HNSW queries whose filter matches at most this many documents are
+     * answered by scanning the matching ordinals exactly, which is both cheaper and
+     * more accurate than walking a graph in which most nodes are rejected.
+     */
+    static final int FILTERED_EXACT_SCAN_LIMIT = 10_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final HnswIndex hnsw;
+    private final MetadataIndex metadataIndex;
+    private final Function<? super T, ? extends Map<String, ?>> metadataExtractor;
+    private final Quantization quantization;
+    private final int rescoreMultiplier;
+    // Mapped vectors are copied here when both sides of a graph comparison are off-heap
+    private final ThreadLocal<float[]> scratch = ThreadLocal.withInitial(() -> new float[0]);
+    private QuantizedCodes codes;
+
+    private int dimension;
+    private float[][] chunks = new float[0][];
+    private FloatBuffer[] mappedChunks = new FloatBuffer[0];
+    private MappedPayloads[] mappedPayloads = new MappedPayloads[0];
+    private float[] norms = new float[0];
+    private Object[] payloads = new Object[0];
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+    private int highWater;
+
+    public FloatVectorStore() {
+        this(null, null);
+    }
+
+    public FloatVectorStore(HnswIndex.Config hnswConfig) {
+        this(hnswConfig, null);
+    }
+
+    /**
+     * @param hnswConfig        HNSW parameters, or null for exact search only
+     * @param metadataExtractor metadata to index for each payload, or null to disable filtering
+     */
+    public FloatVectorStore(HnswIndex.Config hnswConfig,
+                            Function<? super T, ? extends Map<String, ?>> metadataExtractor) {
+        this(hnswConfig, metadataExtractor, Quantization.NONE, 1);
+    }
+
+    /**
+     * @param quantization      compressed first-pass representation for exact scans
+     * @param rescoreMultiplier candidates rescored at full precision per requested result
+     */
+    public FloatVectorStore(HnswIndex.Config hnswConfig,
+                            Function<? super T, ? extends Map<String, ?>> metadataExtractor,
+                            Quantization quantization, int rescoreMultiplier) {
+        if (rescoreMultiplier < 1) {
+            throw new IllegalArgumentException("rescoreMultiplier must be at least 1");
+        }
+        this.hnsw = hnswConfig != null ? new HnswIndex(hnswConfig, new StoreScorer()) : null;
+        this.metadataExtractor = metadataExtractor;
+        this.metadataIndex = metadataExtractor != null ? new MetadataIndex() : null;
+        this.quantization = quantization != null ? quantization : Quantization.NONE;
+        this.rescoreMultiplier = rescoreMultiplier;
+    }
+
+    /**
+     * Insert or replace the vector stored under {@code id}.
+     * The dimension is fixed by the first vector ever stored.
+     *
+     * @return the previous payload for this id, or null if it was absent
+     */
+    public T put(String id, float[] vector, T payload) {
+        if (vector == null || vector.length == 0) {
+            throw new IllegalArgumentException("Embedding must not be empty");
+        }
+        lock.writeLock().lock();
+        try {
+            if (dimension == 0) {
+                dimension = vector.length;
+                if (quantization != Quantization.NONE) {
+                    codes = new QuantizedCodes(quantization, dimension);
+                }
+            } else if (vector.length != dimension) {
+                throw new IllegalArgumentException("Vectors must have the same dimension");
+            }
+
+            Integer existing = ordinalsById.get(id);
+            T previous = existing != null ? payloadAt(existing) : null;
+            if (existing != null && isMapped(existing)) {
+                retire(existing);
+                existing = null;
+            }
+            int ordinal = existing != null ? existing : allocateOrdinal();
+            if (existing != null) {
+                unindex(ordinal);
+            }
+
+            float[] chunk = chunks[ordinal >>> CHUNK_SHIFT];
+            System.arraycopy(vector, 0, chunk, (ordinal & CHUNK_MASK) * dimension, dimension);
+            norms[ordinal] = FloatVectors.norm(vector);
+            if (codes != null) {
+                codes.encode(ordinal, vector);
+            }
+            payloads[ordinal] = payload;
+            live.set(ordinal);
+            ordinalsById.put(id, ordinal);
+            if (hnsw != null) {
+                hnsw.insert(ordinal);
+            }
+            if (metadataIndex != null) {
+                metadataIndex.add(ordinal, metadataExtractor.apply(payload));
+            }
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the vector stored under {@code id} and recycle its ordinal.
+     *
+     * @return the removed payload, or null if the id was unknown
+     */
+    public T remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinalsById.remove(id);
+            if (ordinal == null) {
+                return null;
+            }
+            T removed = payloadAt(ordinal);
+            retire(ordinal);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Attach a segment's documents, then apply its tombstones. Vectors stay in
+     * the segment's mapping; documents replace any entry with the same id.
+     *
+     * @param decoder builds the payload from a document id and its stored payload bytes
+     */
+    public void load(VectorSegment segment, BiFunction<String, ByteBuffer, ? extends T> decoder) {
+        load(segment, decoder, metadataExtractor == null ? null
+            : (id, payload) -> metadataExtractor.apply(decoder.apply(id, payload)));
+    }
+
+    /**
+     * Attach a segment as above. Payloads are only decoded when read, so loading
+     * keeps nothing of them on the heap beyond the metadata that gets indexed.
+     *
+     * @param metadataReader reads just the metadata to index from a document id and its
+     *                       stored payload bytes; unused when metadata filtering is disabled
+     */
+    public void load(VectorSegment segment, BiFunction<String, ByteBuffer, ? extends T> decoder,
+                     BiFunction<String, ByteBuffer, ? extends Map<String, ?>> metadataReader) {
+        lock.writeLock().lock();
+        try {
+            int count = segment.size();
+            if (count > 0) {
+                if (dimension == 0) {
+                    dimension = segment.dimension();
+                    if (quantization != Quantization.NONE) {
+                        codes = new QuantizedCodes(quantization, dimension);
+                    }
+                } else if (segment.dimension() != dimension) {
+                    throw new IllegalArgumentException("Vectors must have the same dimension");
+                }
+
+                // Start on a chunk boundary; the rest of the current heap chunk stays allocatable
+                int base = (highWater + CHUNK_MASK) & ~CHUNK_MASK;
+                for (int ordinal = highWater; ordinal < base; ordinal++) {
+                    releaseOrdinal(ordinal);
+                }
+                int firstChunk = base >>> CHUNK_SHIFT;
+                int chunkCount = (count + CHUNK_MASK) >>> CHUNK_SHIFT;
+                growChunks(firstChunk + chunkCount);
+                for (int c = 0; c < chunkCount; c++) {
+                    int from = c << CHUNK_SHIFT;
+                    mappedChunks[firstChunk + c] = segment.vectors(from, Math.min(CHUNK_SIZE, count - from));
+                    mappedPayloads[firstChunk + c] = new MappedPayloads(segment, from, decoder, metadataReader);
+                }
+                // Unused tail slots of the last mapped chunk are never handed out
+                highWater = base + (chunkCount << CHUNK_SHIFT);
+
+                boolean adoptGraph = hnsw != null && hnsw.size() == 0 && segment.graphM() == hnsw.config().m();
+                if (adoptGraph) {
+                    hnsw.adopt(base, count, segment.graph(), segment.graphEntryPoint());
+                }
+                boolean storedCodes = codes != null && segment.quantization() == quantization;
+
+                for (int i = 0; i < count; i++) {
+                    int ordinal = base + i;
+                    String id = segment.id(i);
+                    Integer existing = ordinalsById.get(id);
+                    if (existing != null) {
+                        retire(existing);
+                    }
+                    norms[ordinal] = segment.norm(i);
+                    live.set(ordinal);
+                    ordinalsById.put(id, ordinal);
+                    if (storedCodes) {
+                        codes.read(ordinal, segment.code(i));
+                    } else if (codes != null) {
+                        codes.encode(ordinal, copyVector(ordinal));
+                    }
+                    if (hnsw != null && !adoptGraph) {
+                        hnsw.insert(ordinal);
+                    }
+                    if (metadataIndex != null) {
+                        metadataIndex.add(ordinal, metadataAt(ordinal));
+                    }
+                }
+            }
+
+            for (String id : segment.tombstones()) {
+                Integer ordinal = ordinalsById.remove(id);
+                if (ordinal != null) {
+                    retire(ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Look up a single entry and map its payload and a copy of its vector.
+     */
+    public <R> R get(String id, BiFunction<? super T, float[], R> mapper) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinalsById.get(id);
+            return ordinal != null ? mapper.apply(payloadAt(ordinal), copyVector(ordinal)) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Map every live entry, in ordinal order.
+     */
+    public <R> List<R> getAll(BiFunction<? super T, float[], R> mapper) {
+        lock.readLock().lock();
+        try {
+            List<R> result = new ArrayList<>(ordinalsById.size());
+            for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+                result.add(mapper.apply(payloadAt(ordinal), copyVector(ordinal)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cosine similarity search, approximate when an HNSW index is configured.
+     *
+     * @return at most {@code topK} matches scoring at least {@code threshold}, best first
+     */
+    public List<Match<T>> search(float[] query, int topK, float threshold) {
+        return search(query, topK, threshold, null);
+    }
+
+    /**
+     * Cosine similarity search over documents whose metadata matches {@code filter}.
+     * A null or empty filter matches everything.
+     */
+    public List<Match<T>> search(float[] query, int topK, float threshold, Map<String, ?> filter) {
+        return hnsw != null
+            ? searchApproximate(query, topK, threshold, filter, hnsw.config().efSearch())
+            : searchExact(query, topK, threshold, filter, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exact cosine similarity search over all live vectors.
+     *
+     * @return at most {@code topK} matches scoring at least {@code threshold}, best first
+     */
+    public List<Match<T>> searchExact(float[] query, int topK, float threshold) {
+        return searchExact(query, topK, threshold, null, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Exact search over filtered ordinals in {@code [fromOrdinal, toOrdinal)}.
+     * Disjoint ranges can be scanned concurrently and their results merged;
+     * see {@link #ordinalLimit()} for the upper bound of the ordinal space.
+     */
+    public List<Match<T>> searchExact(float[] query, int topK, float threshold,
+                                      Map<String, ?> filter, int fromOrdinal, int toOrdinal) {
+        lock.readLock().lock();
+        try {
+            if (topK <= 0 || ordinalsById.isEmpty()) {
+                return List.of();
+            }
+            checkDimension(query);
+            float queryNorm = FloatVectors.norm(query);
+            if (queryNorm == 0f) {
+                return List.of();
+            }
+            RoaringBitmap candidates = resolveFilter(filter);
+            return toMatches(scan(query, queryNorm, topK, threshold, candidates, fromOrdinal, toOrdinal));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * HNSW search with an explicit candidate list size, for recall/latency tuning.
+     */
+    List<Match<T>> searchApproximate(float[] query, int topK, float threshold,
+                                     Map<String, ?> filter, int efSearch) {
+        lock.readLock().lock();
+        try {
+            if (topK <= 0 || ordinalsById.isEmpty()) {
+                return List.of();
+            }
+            checkDimension(query);
+            float queryNorm = FloatVectors.norm(query);
+            if (queryNorm == 0f) {
+                return List.of();
+            }
+
+            RoaringBitmap accepted = resolveFilter(filter);
+            if (accepted != null && accepted.getCardinality() <= FILTERED_EXACT_SCAN_LIMIT) {
+                return toMatches(scan(query, queryNorm, topK, threshold, accepted, 0, Integer.MAX_VALUE));
+            }
+
+            TopKCollector candidates = hnsw.search(query, queryNorm, topK, efSearch,
+                accepted != null ? accepted::contains : null);
+            int[] ordinals = new int[candidates.size()];
+            float[] scores = new float[candidates.size()];
+            int count = candidates.drainDescending(ordinals, scores);
+
+            TopKCollector collector = new TopKCollector(Math.min(topK, ordinalsById.size()));
+            for (int i = 0; i < count; i++) {
+                if (scores[i] >= threshold) {
+                    collector.offer(ordinals[i], scores[i]);
+                }
+            }
+            return toMatches(collector);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live documents matching {@code filter} (all documents for an empty filter).
+     */
+    public int count(Map<String, ?> filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = resolveFilter(filter);
+            return matches != null ? matches.getCardinality() : ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live vectors.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exclusive upper bound of allocated ordinals, used to partition scans.
+     */
+    public int ordinalLimit() {
+        lock.readLock().lock();
+        try {
+            return highWater;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Vector dimension, or 0 while the store has never held a vector.
+     */
+    public int dimension() {
+        lock.readLock().lock();
+        try {
+            return dimension;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top-K scan over live ordinals in range, or only over {@code candidates} when given.
+     */
+    private TopKCollector scan(float[] query, float queryNorm, int topK, float threshold,
+                               RoaringBitmap candidates, int fromOrdinal, int toOrdinal) {
+        // Only the best K candidates are ever retained
+        TopKCollector collector = new TopKCollector(Math.min(topK, ordinalsById.size()));
+        if (codes == null) {
+            forEachCandidate(candidates, fromOrdinal, toOrdinal, ordinal -> {
+                float score = score(query, queryNorm, ordinal);
+                if (score >= threshold) {
+                    collector.offer(ordinal, score);
+                }
+            });
+            return collector;
+        }
+
+        // First pass on compressed codes, keeping a shortlist for the full-precision rescore
+        QuantizedCodes.Query encoded = codes.prepare(query);
+        boolean scaleByNorm = codes.needsNorm();
+        TopKCollector shortlist = new TopKCollector(
+            (int) Math.min((long) topK * rescoreMultiplier, ordinalsById.size()));
+        forEachCandidate(candidates, fromOrdinal, toOrdinal, ordinal -> {
+            float norm = norms[ordinal];
+            if (norm != 0f) {
+                float key = codes.approximate(encoded, ordinal);
+                shortlist.offer(ordinal, scaleByNorm ? key / norm : key);
+            }
+        });
+
+        int[] ordinals = new int[shortlist.size()];
+        float[] keys = new float[shortlist.size()];
+        int count = shortlist.drainDescending(ordinals, keys);
+        for (int i = 0; i < count; i++) {
+            float score = score(query, queryNorm, ordinals[i]);
+            if (score >= threshold) {
+                collector.offer(ordinals[i], score);
+            }
+        }
+        return collector;
+    }
+
+    private void forEachCandidate(RoaringBitmap candidates, int fromOrdinal, int toOrdinal, IntConsumer action) {
+        int limit = Math.min(toOrdinal, highWater);
+        if (candidates == null) {
+            for (int ordinal = live.nextSetBit(fromOrdinal); ordinal >= 0 && ordinal < limit;
+                    ordinal = live.nextSetBit(ordinal + 1)) {
+                action.accept(ordinal);
+            }
+            return;
+        }
+        PeekableIntIterator ordinals = candidates.getIntIterator();
+        ordinals.advanceIfNeeded(fromOrdinal);
+        while (ordinals.hasNext()) {
+            int ordinal = ordinals.next();
+            if (ordinal >= limit) {
+                break;
+            }
+            action.accept(ordinal);
+        }
+    }
+
+    /**
+     * Candidate bitmap for a filter, or null when the filter is empty (no restriction).
+     */
+    private RoaringBitmap resolveFilter(Map<String, ?> filter) {
+        if (filter == null || filter.isEmpty()) {
+            return null;
+        }
+        if (metadataIndex == null) {
+            throw new IllegalStateException("Metadata filtering is not enabled for this store");
+        }
+        return metadataIndex.match(filter);
+    }
+
+    /**
+     * Drop a live ordinal from every index; only heap ordinals are recycled.
+     * The caller has already removed (or is about to replace) the id mapping.
+     */
+    private void retire(int ordinal) {
+        unindex(ordinal);
+        live.clear(ordinal);
+        payloads[ordinal] = null;
+        if (!isMapped(ordinal)) {
+            releaseOrdinal(ordinal);
+        }
+    }
+
+    private boolean isMapped(int ordinal) {
+        return mappedChunks[ordinal >>> CHUNK_SHIFT] != null;
+    }
+
+    private void unindex(int ordinal) {
+        if (hnsw != null) {
+            hnsw.remove(ordinal);
+        }
+        if (metadataIndex != null) {
+            metadataIndex.remove(ordinal, metadataAt(ordinal));
+        }
+    }
+
+    private float score(float[] query, float queryNorm, int ordinal) {
+        float norm = norms[ordinal];
+        if (norm == 0f) {
+            return Float.NaN;
+        }
+        return dot(query, 0, ordinal) / (queryNorm * norm);
+    }
+
+    private float score(int ordinalA, int ordinalB) {
+        float normA = norms[ordinalA];
+        float normB = norms[ordinalB];
+        if (normA == 0f || normB == 0f) {
+            return Float.NaN;
+        }
+        float[] chunkA = chunks[ordinalA >>> CHUNK_SHIFT];
+        float[] chunkB = chunks[ordinalB >>> CHUNK_SHIFT];
+        float dot;
+        if (chunkA != null) {
+            dot = dot(chunkA, (ordinalA & CHUNK_MASK) * dimension, ordinalB);
+        } else if (chunkB != null) {
+            dot = dot(chunkB, (ordinalB & CHUNK_MASK) * dimension, ordinalA);
+        } else {
+            float[] vectorA = scratch.get();
+            if (vectorA.length < dimension) {
+                vectorA = new float[dimension];
+                scratch.set(vectorA);
+            }
+            mappedChunks[ordinalA >>> CHUNK_SHIFT].get((ordinalA & CHUNK_MASK) * dimension, vectorA, 0, dimension);
+            dot = dot(vectorA, 0, ordinalB);
+        }
+        return dot / (normA * normB);
+    }
+
+    /**
+     * Dot product of a heap vector slice with the vector at {@code ordinal}, wherever it lives.
+     */
+    private float dot(float[] vector, int offset, int ordinal) {
+        int chunkIndex = ordinal >>> CHUNK_SHIFT;
+        int slot = (ordinal & CHUNK_MASK) * dimension;
+        float[] chunk = chunks[chunkIndex];
+        return chunk != null
+            ? KERNEL.dot(vector, offset, chunk, slot, dimension)
+            : KERNEL.dot(vector, offset, mappedChunks[chunkIndex], slot, dimension);
+    }
+
+    private List<Match<T>> toMatches(TopKCollector collector) {
+        int[] ordinals = new int[collector.size()];
+        float[] scores = new float[collector.size()];
+        int count = collector.drainDescending(ordinals, scores);
+        List<Match<T>> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(new Match<>(payloadAt(ordinals[i]), copyVector(ordinals[i]), scores[i]));
+        }
+        return matches;
+    }
+
+    private void checkDimension(float[] query) {
+        if (query == null || query.length != dimension) {
+            throw new IllegalArgumentException("Vectors must have the same dimension");
+        }
+    }
+
+    private float[] copyVector(int ordinal) {
+        float[] vector = new float[dimension];
+        int chunkIndex = ordinal >>> CHUNK_SHIFT;
+        int slot = (ordinal & CHUNK_MASK) * dimension;
+        float[] chunk = chunks[chunkIndex];
+        if (chunk != null) {
+            System.arraycopy(chunk, slot, vector, 0, dimension);
+        } else {
+            mappedChunks[chunkIndex].get(slot, vector);
+        }
+        return vector;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T payloadAt(int ordinal) {
+        if (isMapped(ordinal) && live.get(ordinal)) {
+            return (T) mappedPayloads[ordinal >>> CHUNK_SHIFT].decode(ordinal & CHUNK_MASK);
+        }
+        return (T) payloads[ordinal];
+    }
+
+    private Map<String, ?> metadataAt(int ordinal) {
+        if (isMapped(ordinal)) {
+            return mappedPayloads[ordinal >>> CHUNK_SHIFT].metadata(ordinal & CHUNK_MASK);
+        }
+        return metadataExtractor.apply(payloadAt(ordinal));
+    }
+
+    private int allocateOrdinal() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        int ordinal = highWater++;
+        int chunkIndex = ordinal >>> CHUNK_SHIFT;
+        if (chunkIndex == chunks.length) {
+            growChunks(chunkIndex + 1);
+            chunks[chunkIndex] = new float[CHUNK_SIZE * dimension];
+        }
+        return ordinal;
+    }
+
+    private void growChunks(int chunkCount) {
+        chunks = Arrays.copyOf(chunks, chunkCount);
+        mappedChunks = Arrays.copyOf(mappedChunks, chunkCount);
+        mappedPayloads = Arrays.copyOf(mappedPayloads, chunkCount);
+        int capacity = chunkCount << CHUNK_SHIFT;
+        norms = Arrays.copyOf(norms, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    private void releaseOrdinal(int ordinal) {
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+    }
+
+    /**
+     * Where the payloads of one mapped chunk live: a run of a segment's records
+     * starting at {@code first}, decoded on every read.
+     */
+    private record MappedPayloads(VectorSegment segment, int first,
+                                  BiFunction<String, ByteBuffer, ?> decoder,
+                                  BiFunction<String, ByteBuffer, ? extends Map<String, ?>> metadataReader) {
+
+        Object decode(int slot) {
+            return decoder.apply(segment.id(first + slot), segment.payload(first + slot));
+        }
+
+        Map<String, ?> metadata(int slot) {
+            return metadataReader.apply(segment.id(first + slot), segment.payload(first + slot));
+        }
+    }
+
+    private final class StoreScorer implements HnswIndex.VectorScorer {
+        @Override
+        public float score(float[] query, float queryNorm, int ordinal) {
+            return FloatVectorStore.this.score(query, queryNorm, ordinal);
+        }
+
+        @Override
+        public float score(int ordinalA, int ordinalB) {
+            return FloatVectorStore.this.score(ordinalA, ordinalB);
+        }
+    }
+
+    /**
+     * A scored search hit: the stored payload plus a copy of its vector.
+     */
+    public record Match<T>(T payload, float[] vector, float score) {
+    }
+}
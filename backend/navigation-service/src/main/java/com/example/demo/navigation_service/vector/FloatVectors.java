@@ -0,0 +1,79 @@
+package com.example.demo.navigation_service.vector;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Helpers for working with embeddings as primitive float arrays.
+ *
+ * Embeddings arrive from callers as {@code List<Double>}; these helpers convert
+ * them once at the API boundary so the store and the similarity loops only ever
+ * touch contiguous {@code float[]} data.
+ */
+public final class FloatVectors {
+
+    private FloatVectors() {
+    }
+
+    /**
+     * Copy a boxed embedding into a primitive array.
+     */
+    public static float[] toArray(List<? extends Number> values) {
+        if (values == null) {
+            return null;
+        }
+        float[] vector = new float[values.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = values.get(i).floatValue();
+        }
+        return vector;
+    }
+
+    /**
+     * Read-only {@code List<Double>} view over a primitive vector for callers
+     * that still consume the boxed representation. Values are boxed on access.
+     */
+    public static List<Double> asDoubleList(float[] vector) {
+        return vector != null ? new DoubleListView(vector) : null;
+    }
+
+    /**
+     * Dot product of {@code length} components starting at the given offsets.
+     */
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        return SimilarityKernels.preferred().dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Euclidean norm of {@code length} components starting at {@code offset}.
+     */
+    public static float norm(float[] vector, int offset, int length) {
+        return (float) Math.sqrt(dot(vector, offset, vector, offset, length));
+    }
+
+    /**
+     * Euclidean norm of a whole vector.
+     */
+    public static float norm(float[] vector) {
+        return norm(vector, 0, vector.length);
+    }
+
+    private static final class DoubleListView extends AbstractList<Double> implements RandomAccess {
+        private final float[] vector;
+
+        private DoubleListView(float[] vector) {
+            this.vector = vector;
+        }
+
+        @Override
+        public Double get(int index) {
+            return (double) vector[index];
+        }
+
+        @Override
+        public int size() {
+            return vector.length;
+        }
+    }
+}
@@ -0,0 +1,648 @@
+package com.example.demo.navigation_service.vector;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph over {@link FloatVectorStore} ordinals.
+ *
+ * The graph is maintained incrementally: every insert links the new node into
+ * each of its layers using the neighbour-selection heuristic from the HNSW paper,
+ * and every removal unlinks the node and reconnects every node that linked to it.
+ * Inbound links are tracked per node, so a removal only touches its neighbourhood.
+ *
+ * A graph over ordinals {@code [0, count)} can be serialized with {@link #writeTo}
+ * and later adopted by an empty index at any ordinal offset with {@link #adopt},
+ * so a {@link VectorSegment} can carry its graph instead of having it rebuilt.
+ * Vectors are never copied; similarities are read through a {@link VectorScorer}
+ * backed by the store's chunks.
+ *
+ * Not thread-safe on its own: the owning store calls {@link #insert} and
+ * {@link #remove} under its write lock and {@link #search} under its read lock.
+ */
+public final class HnswIndex {
+
+    /**
+     * Tuning knobs.
+     *
+     * @param m              max links per node on upper layers (layer 0 allows 2 * m)
+     * @param efConstruction candidate list size while linking new nodes
+     * @param efSearch       candidate list size at query time (raised to topK if smaller)
+     */
+    public record Config(int m, int efConstruction, int efSearch) {
+        public Config {
+            if (m < 2 || efConstruction < 1 || efSearch < 1) {
+                throw new IllegalArgumentException("HNSW requires m >= 2 and positive ef values");
+            }
+        }
+    }
+
+    /**
+     * Similarity lookups against stored vectors, higher is more similar.
+     */
+    interface VectorScorer {
+        float score(float[] query, float queryNorm, int ordinal);
+
+        float score(int ordinalA, int ordinalB);
+    }
+
+    private static final int[][] NO_LAYERS = new int[0][];
+
+    private final Config config;
+    private final VectorScorer scorer;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+
+    // links[ordinal][level] = {count, neighbour...}; empty for ordinals not in the graph
+    private int[][][] links = new int[0][][];
+    // inbound[ordinal][level] = {count, node...}: nodes whose links on that level name the ordinal
+    private int[][][] inbound = new int[0][][];
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int nodeCount;
+
+    HnswIndex(Config config, VectorScorer scorer) {
+        this.config = config;
+        this.scorer = scorer;
+        this.levelMultiplier = 1.0 / Math.log(config.m());
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Link a newly stored ordinal into the graph.
+     */
+    void insert(int ordinal) {
+        ensureCapacity(ordinal + 1);
+        int level = randomLevel();
+        int[][] layers = new int[level + 1][];
+        int[][] incoming = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            layers[l] = new int[maxConnections(l) + 1];
+            incoming[l] = new int[maxConnections(l) + 1];
+        }
+        links[ordinal] = layers;
+        inbound[ordinal] = incoming;
+        nodeCount++;
+
+        if (entryPoint < 0) {
+            entryPoint = ordinal;
+            maxLevel = level;
+            return;
+        }
+
+        NodeScorer toNode = other -> safeScore(scorer.score(ordinal, other));
+        int current = entryPoint;
+        float currentScore = toNode.score(current);
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(toNode, current, currentScore, l);
+            currentScore = toNode.score(current);
+        }
+
+        int[] entryPoints = {current};
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            TopKCollector found = searchLayer(toNode, entryPoints, config.efConstruction(), l, null);
+            int[] candidates = new int[found.size()];
+            float[] scores = new float[found.size()];
+            int count = found.drainDescending(candidates, scores);
+
+            int[] selected = selectNeighbours(candidates, scores, count, config.m());
+            for (int neighbour : selected) {
+                addLink(ordinal, neighbour, l);
+                addLink(neighbour, ordinal, l);
+            }
+            entryPoints = Arrays.copyOf(candidates, count);
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = ordinal;
+        }
+    }
+
+    /**
+     * Unlink an ordinal and reconnect the nodes that pointed at it.
+     * Must be called before the ordinal's slot is reused.
+     *
+     * Links are not always reciprocated (pruning a full neighbour list drops only
+     * one direction), so the removed node's own lists do not name every node
+     * pointing at it. Its inbound lists do, which keeps a recycled ordinal from
+     * inheriting edges meant for the old vector without sweeping the graph.
+     */
+    void remove(int ordinal) {
+        if (ordinal >= links.length || links[ordinal].length == 0) {
+            return;
+        }
+        int[][] layers = links[ordinal];
+        int[][] incoming = inbound[ordinal];
+        links[ordinal] = NO_LAYERS;
+        inbound[ordinal] = NO_LAYERS;
+        nodeCount--;
+
+        for (int l = 0; l < layers.length; l++) {
+            for (int i = 1; i <= layers[l][0]; i++) {
+                removeInbound(layers[l][i], ordinal, l);
+            }
+            for (int i = 1; i <= incoming[l][0]; i++) {
+                repairLinks(incoming[l][i], ordinal, layers[l], l);
+            }
+        }
+
+        if (ordinal == entryPoint) {
+            electEntryPoint(layers);
+        }
+    }
+
+    /**
+     * Number of ints {@link #writeTo} produces for ordinals {@code [0, count)}.
+     */
+    long serializedInts(int count) {
+        long ints = 0;
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            int[][] layers = ordinal < links.length ? links[ordinal] : NO_LAYERS;
+            ints += 1 + layers.length;
+            for (int[] layer : layers) {
+                ints += layer[0];
+            }
+        }
+        return ints;
+    }
+
+    /**
+     * Serialize the graph over ordinals {@code [0, count)}, which must hold every
+     * node: per ordinal its number of layers, then per layer its link count and links.
+     */
+    void writeTo(int count, IntWriter out) throws IOException {
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            int[][] layers = ordinal < links.length ? links[ordinal] : NO_LAYERS;
+            out.write(layers.length);
+            for (int[] layer : layers) {
+                for (int i = 0; i <= layer[0]; i++) {
+                    out.write(layer[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entry point of the graph, or -1 while it is empty.
+     */
+    int entryPoint() {
+        return entryPoint;
+    }
+
+    /**
+     * Take over a graph serialized by {@link #writeTo} with the same {@code m},
+     * shifting its ordinals by {@code base}. Only valid while this index is empty.
+     */
+    void adopt(int base, int count, IntBuffer in, int entry) {
+        if (nodeCount != 0) {
+            throw new IllegalStateException("Only an empty graph can adopt another");
+        }
+        ensureCapacity(base + count);
+        int position = 0;
+        for (int local = 0; local < count; local++) {
+            int[][] layers = new int[in.get(position++)][];
+            int[][] incoming = new int[layers.length][];
+            for (int l = 0; l < layers.length; l++) {
+                int linkCount = in.get(position++);
+                if (linkCount > maxConnections(l)) {
+                    throw new IllegalArgumentException("Serialized graph has more links than m allows");
+                }
+                layers[l] = new int[maxConnections(l) + 1];
+                layers[l][0] = linkCount;
+                for (int i = 1; i <= linkCount; i++) {
+                    layers[l][i] = base + in.get(position++);
+                }
+                incoming[l] = new int[maxConnections(l) + 1];
+            }
+            if (layers.length > 0) {
+                links[base + local] = layers;
+                inbound[base + local] = incoming;
+                nodeCount++;
+            }
+        }
+        for (int ordinal = base; ordinal < base + count; ordinal++) {
+            for (int l = 0; l < links[ordinal].length; l++) {
+                int[] neighbours = links[ordinal][l];
+                for (int i = 1; i <= neighbours[0]; i++) {
+                    addInbound(neighbours[i], ordinal, l);
+                }
+            }
+        }
+        if (nodeCount > 0) {
+            entryPoint = base + entry;
+            maxLevel = links[entryPoint].length - 1;
+        }
+    }
+
+    /**
+     * Approximate nearest neighbours of {@code query}.
+     *
+     * @param accept optional filter; rejected nodes are still traversed but never returned
+     * @return a collector holding up to {@code max(efSearch, topK)} best accepted ordinals
+     */
+    TopKCollector search(float[] query, float queryNorm, int topK, int efSearch, IntPredicate accept) {
+        if (entryPoint < 0) {
+            return new TopKCollector(1);
+        }
+        NodeScorer toQuery = ordinal -> safeScore(scorer.score(query, queryNorm, ordinal));
+        int current = entryPoint;
+        float currentScore = toQuery.score(current);
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedyClosest(toQuery, current, currentScore, l);
+            currentScore = toQuery.score(current);
+        }
+        return searchLayer(toQuery, new int[] {current}, Math.max(efSearch, topK), 0, accept);
+    }
+
+    /**
+     * Current links of an ordinal on one layer; empty if it is not on that layer.
+     */
+    int[] neighbours(int ordinal, int level) {
+        if (!hasLevel(ordinal, level)) {
+            return new int[0];
+        }
+        int[] neighbours = links[ordinal][level];
+        return Arrays.copyOfRange(neighbours, 1, neighbours[0] + 1);
+    }
+
+    private int greedyClosest(NodeScorer scorer, int start, float startScore, int level) {
+        int current = start;
+        float best = startScore;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int candidate = neighbours[i];
+                if (!hasLevel(candidate, level)) {
+                    continue;
+                }
+                float score = scorer.score(candidate);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private TopKCollector searchLayer(NodeScorer scorer, int[] entryPoints, int ef, int level, IntPredicate accept) {
+        VisitedSet visited = visitedSets.get();
+        visited.reset(links.length);
+        CandidateQueue candidates = new CandidateQueue(ef * 2);
+        TopKCollector results = new TopKCollector(ef);
+
+        for (int entry : entryPoints) {
+            if (visited.visit(entry)) {
+                float score = scorer.score(entry);
+                candidates.push(entry, score);
+                if (accept == null || accept.test(entry)) {
+                    results.offer(entry, score);
+                }
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            float candidateScore = candidates.peekScore();
+            if (results.size() == ef && candidateScore < results.minScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int[] neighbours = links[candidate][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (!visited.visit(neighbour) || !hasLevel(neighbour, level)) {
+                    continue;
+                }
+                float score = scorer.score(neighbour);
+                if (results.size() < ef || score > results.minScore()) {
+                    candidates.push(neighbour, score);
+                    if (accept == null || accept.test(neighbour)) {
+                        results.offer(neighbour, score);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour-selection heuristic: keep a candidate only if it is closer to the
+     * base node than to every neighbour already kept, which preserves links into
+     * distinct clusters. Pruned candidates back-fill any remaining slots.
+     */
+    private int[] selectNeighbours(int[] candidates, float[] scores, int count, int max) {
+        if (count <= max) {
+            return Arrays.copyOf(candidates, count);
+        }
+        int[] selected = new int[max];
+        int selectedCount = 0;
+        int[] pruned = new int[count];
+        int prunedCount = 0;
+        for (int i = 0; i < count && selectedCount < max; i++) {
+            boolean keep = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (safeScore(scorer.score(candidates[i], selected[j])) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[selectedCount++] = candidates[i];
+            } else {
+                pruned[prunedCount++] = candidates[i];
+            }
+        }
+        for (int i = 0; i < prunedCount && selectedCount < max; i++) {
+            selected[selectedCount++] = pruned[i];
+        }
+        return Arrays.copyOf(selected, selectedCount);
+    }
+
+    private void addLink(int from, int to, int level) {
+        if (from == to) {
+            return;
+        }
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        for (int i = 1; i <= count; i++) {
+            if (neighbours[i] == to) {
+                return;
+            }
+        }
+        if (count < neighbours.length - 1) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            addInbound(to, from, level);
+            return;
+        }
+        // Full: re-select among existing links plus the new one
+        int[] pool = Arrays.copyOfRange(neighbours, 1, count + 2);
+        pool[count] = to;
+        relink(from, pool, pool.length, level);
+    }
+
+    private void repairLinks(int node, int removed, int[] removedLinks, int level) {
+        int[] neighbours = links[node][level];
+        int[] pool = new int[neighbours[0] + removedLinks[0]];
+        int poolSize = 0;
+        for (int i = 1; i <= neighbours[0]; i++) {
+            if (neighbours[i] != removed) {
+                pool[poolSize++] = neighbours[i];
+            }
+        }
+        for (int i = 1; i <= removedLinks[0]; i++) {
+            int candidate = removedLinks[i];
+            if (candidate != node && hasLevel(candidate, level) && !contains(pool, poolSize, candidate)) {
+                pool[poolSize++] = candidate;
+            }
+        }
+        relink(node, pool, poolSize, level);
+    }
+
+    private void relink(int node, int[] pool, int poolSize, int level) {
+        float[] scores = new float[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            scores[i] = safeScore(scorer.score(node, pool[i]));
+        }
+        sortDescending(pool, scores, poolSize);
+        int[] selected = selectNeighbours(pool, scores, poolSize, maxConnections(level));
+        int[] neighbours = links[node][level];
+        for (int i = 1; i <= neighbours[0]; i++) {
+            if (!contains(selected, selected.length, neighbours[i])) {
+                removeInbound(neighbours[i], node, level);
+            }
+        }
+        for (int neighbour : selected) {
+            if (!contains(neighbours, 1, neighbours[0] + 1, neighbour)) {
+                addInbound(neighbour, node, level);
+            }
+        }
+        System.arraycopy(selected, 0, neighbours, 1, selected.length);
+        neighbours[0] = selected.length;
+    }
+
+    private void addInbound(int target, int from, int level) {
+        int[] incoming = inbound[target][level];
+        int count = incoming[0];
+        if (count == incoming.length - 1) {
+            incoming = Arrays.copyOf(incoming, incoming.length * 2);
+            inbound[target][level] = incoming;
+        }
+        incoming[count + 1] = from;
+        incoming[0] = count + 1;
+    }
+
+    private void removeInbound(int target, int from, int level) {
+        if (!hasLevel(target, level)) {
+            return;
+        }
+        int[] incoming = inbound[target][level];
+        int count = incoming[0];
+        for (int i = 1; i <= count; i++) {
+            if (incoming[i] == from) {
+                incoming[i] = incoming[count];
+                incoming[0] = count - 1;
+                return;
+            }
+        }
+    }
+
+    private void electEntryPoint(int[][] removedLayers) {
+        // Prefer a former neighbour on the top layer, falling back to a full scan
+        int top = removedLayers.length - 1;
+        int[] neighbours = removedLayers[top];
+        for (int i = 1; i <= neighbours[0]; i++) {
+            if (hasLevel(neighbours[i], top)) {
+                entryPoint = neighbours[i];
+                maxLevel = links[entryPoint].length - 1;
+                return;
+            }
+        }
+        entryPoint = -1;
+        maxLevel = -1;
+        for (int ordinal = 0; ordinal < links.length; ordinal++) {
+            if (links[ordinal].length - 1 > maxLevel) {
+                entryPoint = ordinal;
+                maxLevel = links[ordinal].length - 1;
+            }
+        }
+    }
+
+    private boolean hasLevel(int ordinal, int level) {
+        return ordinal < links.length && links[ordinal].length > level;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? config.m() * 2 : config.m();
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > links.length) {
+            int oldLength = links.length;
+            links = Arrays.copyOf(links, Math.max(capacity, oldLength + (oldLength >> 1) + 16));
+            Arrays.fill(links, oldLength, links.length, NO_LAYERS);
+            inbound = Arrays.copyOf(inbound, links.length);
+            Arrays.fill(inbound, oldLength, inbound.length, NO_LAYERS);
+        }
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        return contains(values, 0, length, value);
+    }
+
+    private static boolean contains(int[] values, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sortDescending(int[] ordinals, float[] scores, int length) {
+        // Insertion sort: pools are bounded by 2 * m + 1 entries
+        for (int i = 1; i < length; i++) {
+            int ordinal = ordinals[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ordinals[j + 1] = ordinals[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ordinals[j + 1] = ordinal;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * Zero-norm vectors score NaN; rank them below everything so heaps stay ordered.
+     */
+    private static float safeScore(float score) {
+        return Float.isNaN(score) ? Float.NEGATIVE_INFINITY : score;
+    }
+
+    /**
+     * Destination of a serialized graph.
+     */
+    @FunctionalInterface
+    interface IntWriter {
+        void write(int value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface NodeScorer {
+        float score(int ordinal);
+    }
+
+    /**
+     * Generation-stamped visited marks, reused per thread to avoid a fresh
+     * allocation for every search.
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[capacity];
+                generation = 0;
+            }
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        boolean visit(int ordinal) {
+            if (marks[ordinal] == generation) {
+                return false;
+            }
+            marks[ordinal] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * Growable max-heap of candidates to expand, best score on top.
+     */
+    private static final class CandidateQueue {
+        private int[] ordinals;
+        private float[] scores;
+        private int size;
+
+        CandidateQueue(int capacity) {
+            ordinals = new int[Math.max(capacity, 4)];
+            scores = new float[ordinals.length];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int ordinal, float score) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                ordinals[index] = ordinals[parent];
+                scores[index] = scores[parent];
+                index = parent;
+            }
+            ordinals[index] = ordinal;
+            scores[index] = score;
+        }
+
+        int pop() {
+            int top = ordinals[0];
+            int ordinal = ordinals[--size];
+            float score = scores[size];
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && scores[child + 1] > scores[child]) {
+                    child++;
+                }
+                if (score >= scores[child]) {
+                    break;
+                }
+                ordinals[index] = ordinals[child];
+                scores[index] = scores[child];
+                index = child;
+            }
+            ordinals[index] = ordinal;
+            scores[index] = score;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.demo.navigation_service.vector;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index from metadata key/value pairs to compressed bitmaps of ordinals.
+ *
+ * Filters are a map of required key/value pairs; all pairs must match, and a
+ * {@link Collection} value matches any of its elements. Resolving a filter is a
+ * handful of bitmap intersections, so a filtered search only scores the
+ * documents that can actually match.
+ *
+ * Values are normalized so {@code 42}, {@code 42L} and {@code 42.0} match each
+ * other. Collection-valued metadata is indexed under every element.
+ * Not thread-safe; {@link FloatVectorStore} guards it with its lock.
+ */
+final class MetadataIndex {
+
+    private final Map<String, Map<Object, RoaringBitmap>> postings = new HashMap<>();
+
+    void add(int ordinal, Map<String, ?> metadata) {
+        if (metadata == null) {
+            return;
+        }
+        metadata.forEach((key, value) -> forEachValue(value, normalized ->
+            postings.computeIfAbsent(key, k -> new HashMap<>())
+                .computeIfAbsent(normalized, v -> new RoaringBitmap())
+                .add(ordinal)));
+    }
+
+    void remove(int ordinal, Map<String, ?> metadata) {
+        if (metadata == null) {
+            return;
+        }
+        metadata.forEach((key, value) -> forEachValue(value, normalized -> {
+            Map<Object, RoaringBitmap> values = postings.get(key);
+            RoaringBitmap bitmap = values != null ? values.get(normalized) : null;
+            if (bitmap != null) {
+                bitmap.remove(ordinal);
+                if (bitmap.isEmpty()) {
+                    values.remove(normalized);
+                    if (values.isEmpty()) {
+                        postings.remove(key);
+                    }
+                }
+            }
+        }));
+    }
+
+    /**
+     * Ordinals matching every term of {@code filter}, as a new bitmap the caller may modify.
+     */
+    RoaringBitmap match(Map<String, ?> filter) {
+        RoaringBitmap result = null;
+        for (Map.Entry<String, ?> term : filter.entrySet()) {
+            RoaringBitmap termMatches = matchTerm(term.getKey(), term.getValue());
+            if (result == null) {
+                result = termMatches;
+            } else {
+                result.and(termMatches);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result != null ? result : new RoaringBitmap();
+    }
+
+    private RoaringBitmap matchTerm(String key, Object value) {
+        Map<Object, RoaringBitmap> values = postings.get(key);
+        RoaringBitmap matches = new RoaringBitmap();
+        if (values != null) {
+            forEachValue(value, normalized -> {
+                RoaringBitmap bitmap = values.get(normalized);
+                if (bitmap != null) {
+                    matches.or(bitmap);
+                }
+            });
+        }
+        return matches;
+    }
+
+    private static void forEachValue(Object value, Consumer<Object> action) {
+        if (value instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                if (element != null) {
+                    action.accept(normalize(element));
+                }
+            }
+        } else if (value != null) {
+            action.accept(normalize(value));
+        }
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number number) {
+            double d = number.doubleValue();
+            return d == Math.rint(d) && !Double.isInfinite(d) ? (Object) (long) d : (Object) d;
+        }
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Enum<?> e) {
+            return e.name();
+        }
+        return value.toString();
+    }
+}
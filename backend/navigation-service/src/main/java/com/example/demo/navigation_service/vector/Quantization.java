@@ -0,0 +1,36 @@
+package com.example.demo.navigation_service.vector;
+
+import java.util.Locale;
+
+/**
+ * Compressed representation used for the first pass of an exact scan.
+ *
+ * Quantized scans score every candidate on compact codes and then rescore only
+ * the best {@code topK * rescoreMultiplier} of them against the full-precision
+ * vectors, trading a little recall for far less memory traffic per query.
+ */
+public enum Quantization {
+
+    /** Score full-precision floats directly. */
+    NONE,
+
+    /** One signed byte per component with a per-vector scale (4x smaller than float). */
+    INT8,
+
+    /** One sign bit per component compared by Hamming distance (32x smaller than float). */
+    BINARY;
+
+    /**
+     * Parse a configuration value such as {@code int8}, case-insensitively.
+     */
+    public static Quantization parse(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown vector quantization: " + value);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.demo.navigation_service.vector;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.example.demo.navigation_service.vector.FloatVectorStore.CHUNK_MASK;
+import static com.example.demo.navigation_service.vector.FloatVectorStore.CHUNK_SHIFT;
+import static com.example.demo.navigation_service.vector.FloatVectorStore.CHUNK_SIZE;
+
+/**
+ * Compressed copies of the store's vectors, addressed by the same ordinals and
+ * chunked the same way.
+ *
+ * INT8 codes use symmetric per-vector scaling ({@code code = round(v * 127 / max|v|)}),
+ * so the approximate dot product is the integer dot product times both scales.
+ * BINARY codes keep only the sign of each component packed into longs, and the
+ * approximate similarity is the negated Hamming distance. Either way the value
+ * is only a ranking key; final scores always come from the full-precision rescore.
+ *
+ * Codes are deterministic per vector, so a {@link VectorSegment} can store them
+ * ({@link #writeCode}) and a store can install them without re-encoding ({@link #read}).
+ */
+final class QuantizedCodes {
+
+    private final Quantization quantization;
+    private final int dimension;
+    private final int words;
+
+    private byte[][] int8Chunks = new byte[0][];
+    private float[] scales = new float[0];
+    private long[][] bitChunks = new long[0][];
+
+    QuantizedCodes(Quantization quantization, int dimension) {
+        if (quantization == Quantization.NONE) {
+            throw new IllegalArgumentException("Quantization must not be NONE");
+        }
+        this.quantization = quantization;
+        this.dimension = dimension;
+        this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Encode {@code vector} into the slot for {@code ordinal}, growing by a chunk if needed.
+     */
+    void encode(int ordinal, float[] vector) {
+        ensureCapacity(ordinal);
+        int chunk = ordinal >>> CHUNK_SHIFT;
+        int slot = ordinal & CHUNK_MASK;
+        if (quantization == Quantization.INT8) {
+            scales[ordinal] = encodeInt8(vector, int8Chunks[chunk], slot * dimension);
+        } else {
+            encodeBits(vector, bitChunks[chunk], slot * words);
+        }
+    }
+
+    /**
+     * Install a code serialized by {@link #writeCode} into the slot for {@code ordinal}.
+     */
+    void read(int ordinal, ByteBuffer code) {
+        ensureCapacity(ordinal);
+        int chunk = ordinal >>> CHUNK_SHIFT;
+        int slot = ordinal & CHUNK_MASK;
+        int position = code.position();
+        if (quantization == Quantization.INT8) {
+            scales[ordinal] = code.getFloat(position);
+            code.get(position + Float.BYTES, int8Chunks[chunk], slot * dimension, dimension);
+        } else {
+            long[] bits = bitChunks[chunk];
+            for (int w = 0; w < words; w++) {
+                bits[slot * words + w] = code.getLong(position + w * Long.BYTES);
+            }
+        }
+    }
+
+    /**
+     * Size of one serialized code: the INT8 scale and components, or the BINARY sign words.
+     */
+    static int codeBytes(Quantization quantization, int dimension) {
+        return quantization == Quantization.INT8
+            ? Float.BYTES + dimension
+            : (dimension + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+    }
+
+    /**
+     * Serialize the code of {@code vector} at the buffer's position, advancing it.
+     */
+    static void writeCode(Quantization quantization, float[] vector, ByteBuffer out) {
+        if (quantization == Quantization.INT8) {
+            byte[] codes = new byte[vector.length];
+            out.putFloat(encodeInt8(vector, codes, 0)).put(codes);
+        } else {
+            long[] bits = new long[(vector.length + Long.SIZE - 1) / Long.SIZE];
+            encodeBits(vector, bits, 0);
+            for (long word : bits) {
+                out.putLong(word);
+            }
+        }
+    }
+
+    /**
+     * Encode a query once so it can be compared against many stored codes.
+     */
+    Query prepare(float[] query) {
+        if (quantization == Quantization.INT8) {
+            byte[] codes = new byte[dimension];
+            return new Query(codes, encodeInt8(query, codes, 0), null);
+        }
+        long[] bits = new long[words];
+        encodeBits(query, bits, 0);
+        return new Query(null, 0f, bits);
+    }
+
+    /**
+     * Approximate similarity between a prepared query and a stored code; higher is closer.
+     * INT8 keys are dot products and still need dividing by the stored vector's norm.
+     */
+    float approximate(Query query, int ordinal) {
+        int chunk = ordinal >>> CHUNK_SHIFT;
+        int slot = ordinal & CHUNK_MASK;
+        if (quantization == Quantization.INT8) {
+            int dot = dotInt8(query.codes, int8Chunks[chunk], slot * dimension, dimension);
+            return dot * query.scale * scales[ordinal];
+        }
+        return -hamming(query.bits, bitChunks[chunk], slot * words, words);
+    }
+
+    /**
+     * True when {@link #approximate} yields a dot product that must be norm-scaled.
+     */
+    boolean needsNorm() {
+        return quantization == Quantization.INT8;
+    }
+
+    private void ensureCapacity(int ordinal) {
+        int chunk = ordinal >>> CHUNK_SHIFT;
+        if (quantization == Quantization.INT8) {
+            while (chunk >= int8Chunks.length) {
+                int8Chunks = Arrays.copyOf(int8Chunks, int8Chunks.length + 1);
+                int8Chunks[int8Chunks.length - 1] = new byte[CHUNK_SIZE * dimension];
+                scales = Arrays.copyOf(scales, int8Chunks.length << CHUNK_SHIFT);
+            }
+        } else {
+            while (chunk >= bitChunks.length) {
+                bitChunks = Arrays.copyOf(bitChunks, bitChunks.length + 1);
+                bitChunks[bitChunks.length - 1] = new long[CHUNK_SIZE * words];
+            }
+        }
+    }
+
+    private static float encodeInt8(float[] vector, byte[] out, int offset) {
+        float maxAbs = 0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        if (maxAbs == 0f) {
+            Arrays.fill(out, offset, offset + vector.length, (byte) 0);
+            return 0f;
+        }
+        float inverse = 127f / maxAbs;
+        for (int i = 0; i < vector.length; i++) {
+            out[offset + i] = (byte) Math.round(vector[i] * inverse);
+        }
+        return maxAbs / 127f;
+    }
+
+    private static void encodeBits(float[] vector, long[] out, int offset) {
+        int words = (vector.length + Long.SIZE - 1) / Long.SIZE;
+        Arrays.fill(out, offset, offset + words, 0L);
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0f) {
+                out[offset + (i >>> 6)] |= 1L << (i & 63);
+            }
+        }
+    }
+
+    private static int dotInt8(byte[] a, byte[] b, int bOffset, int length) {
+        int s0 = 0;
+        int s1 = 0;
+        int s2 = 0;
+        int s3 = 0;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[bOffset + i];
+            s1 += a[i + 1] * b[bOffset + i + 1];
+            s2 += a[i + 2] * b[bOffset + i + 2];
+            s3 += a[i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static int hamming(long[] a, long[] b, int bOffset, int words) {
+        int distance = 0;
+        for (int i = 0; i < words; i++) {
+            distance += Long.bitCount(a[i] ^ b[bOffset + i]);
+        }
+        return distance;
+    }
+
+    /**
+     * A query encoded with the same scheme as the stored codes.
+     */
+    record Query(byte[] codes, float scale, long[] bits) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.navigation_service.vector;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Portable kernel used when the Vector API module is not available.
+ *
+ * Loops are unrolled by four with independent accumulators so the JIT can keep
+ * several multiply-adds in flight instead of serializing on one sum.
+ */
+final class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        return dotBuffer(a, aOffset, b, bOffset, length);
+    }
+
+    static float dotBuffer(float[] a, int aOffset, FloatBuffer b, int bOffset, int length) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        int bound = length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b.get(bOffset + i);
+            s1 += a[aOffset + i + 1] * b.get(bOffset + i + 1);
+            s2 += a[aOffset + i + 2] * b.get(bOffset + i + 2);
+            s3 += a[aOffset + i + 3] * b.get(bOffset + i + 3);
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b.get(bOffset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot0 = 0f;
+        float dot1 = 0f;
+        float normA0 = 0f;
+        float normA1 = 0f;
+        float normB0 = 0f;
+        float normB1 = 0f;
+        int i = 0;
+        int bound = length & ~1;
+        for (; i < bound; i += 2) {
+            float a0 = a[aOffset + i];
+            float a1 = a[aOffset + i + 1];
+            float b0 = b[bOffset + i];
+            float b1 = b[bOffset + i + 1];
+            dot0 += a0 * b0;
+            dot1 += a1 * b1;
+            normA0 += a0 * a0;
+            normA1 += a1 * a1;
+            normB0 += b0 * b0;
+            normB1 += b1 * b1;
+        }
+        for (; i < length; i++) {
+            float av = a[aOffset + i];
+            float bv = b[bOffset + i];
+            dot0 += av * bv;
+            normA0 += av * av;
+            normB0 += bv * bv;
+        }
+        return SimilarityKernels.cosine(dot0 + dot1, normA0 + normA1, normB0 + normB1);
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.demo.navigation_service.vector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Directory of append-only {@link VectorSegment} files named by a monotonically
+ * increasing sequence number, so replaying them in name order reproduces the
+ * order in which batches were written.
+ *
+ * {@link #compact} merges a run of consecutive small segments into one that
+ * takes the name of the newest segment in the run, keeping only the last
+ * version of each document. The merged file atomically replaces that newest
+ * segment before the older ones are deleted, so a crash part-way through only
+ * leaves redundant segments behind that replay to the same state.
+ *
+ * Every segment written, merged ones included, carries the graph and codes
+ * described by the directory's {@link VectorSegment.Indexes}.
+ */
+public final class SegmentDirectory {
+
+    static final String PREFIX = "segment-";
+    static final String SUFFIX = ".vseg";
+
+    private final Path directory;
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final AtomicLong checkpoint = new AtomicLong();
+    private final VectorSegment.Indexes indexes;
+
+    public SegmentDirectory(Path directory) throws IOException {
+        this(directory, VectorSegment.Indexes.NONE);
+    }
+
+    public SegmentDirectory(Path directory, VectorSegment.Indexes indexes) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.indexes = indexes;
+        for (Path segment : segmentPaths()) {
+            lastSequence.set(Math.max(lastSequence.get(), sequenceOf(segment)));
+        }
+        // Leftovers from a crash mid-write were never renamed into place
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(SUFFIX + ".tmp")).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public Path path() {
+        return directory;
+    }
+
+    /**
+     * Map every segment, oldest first.
+     */
+    public List<VectorSegment> openAll() throws IOException {
+        List<VectorSegment> segments = new ArrayList<>();
+        for (Path path : segmentPaths()) {
+            VectorSegment segment = VectorSegment.open(path);
+            checkpoint.accumulateAndGet(segment.walSequence(), Math::max);
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    /**
+     * Durably write the next segment in sequence.
+     */
+    public VectorSegment append(int dimension, List<VectorSegment.Entry> entries,
+                                Collection<String> tombstones, long walSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", PREFIX, lastSequence.incrementAndGet(), SUFFIX));
+        VectorSegment segment = VectorSegment.write(path, dimension, entries, tombstones, walSequence, indexes);
+        checkpoint.accumulateAndGet(walSequence, Math::max);
+        return segment;
+    }
+
+    /**
+     * Highest write-ahead log sequence number contained in any opened or written segment.
+     */
+    public long checkpoint() {
+        return checkpoint.get();
+    }
+
+    /**
+     * Merge the oldest run of at least {@code mergeFactor} consecutive segments whose
+     * combined size stays within {@code maxSegmentBytes}. Superseded documents are
+     * dropped, and tombstones too once nothing older than the run can hold them.
+     *
+     * @return the number of segments merged, or 0 when no run qualified
+     */
+    public synchronized int compact(int mergeFactor, long maxSegmentBytes) throws IOException {
+        List<Path> paths = segmentPaths();
+        int start = 0;
+        int end = 0;
+        long bytes = 0;
+        while (end < paths.size()) {
+            long size = Files.size(paths.get(end));
+            if (bytes + size <= maxSegmentBytes) {
+                bytes += size;
+                end++;
+                continue;
+            }
+            if (end - start >= mergeFactor) {
+                break;
+            }
+            // Run too short to be worth merging; start a new one here, or after an oversized segment
+            start = start == end ? ++end : end;
+            bytes = 0;
+        }
+        if (end - start < mergeFactor) {
+            return 0;
+        }
+
+        List<Path> run = paths.subList(start, end);
+        List<VectorSegment> segments = new ArrayList<>(run.size());
+        for (Path path : run) {
+            segments.add(VectorSegment.open(path));
+        }
+
+        // Last write wins; re-inserting keeps the merged order close to write order
+        Map<String, VectorSegment.Entry> latest = new LinkedHashMap<>();
+        Set<String> written = new HashSet<>();
+        Set<String> deleted = new LinkedHashSet<>();
+        int dimension = 0;
+        long walSequence = 0;
+        for (VectorSegment segment : segments) {
+            for (int i = 0; i < segment.size(); i++) {
+                String id = segment.id(i);
+                latest.remove(id);
+                latest.put(id, new VectorSegment.Entry(id, segment.vectors(i, 1), segment.payload(i)));
+                written.add(id);
+                deleted.remove(id);
+                dimension = segment.dimension();
+            }
+            for (String id : segment.tombstones()) {
+                latest.remove(id);
+                deleted.add(id);
+            }
+            walSequence = Math.max(walSequence, segment.walSequence());
+        }
+        if (start == 0) {
+            // Nothing older to delete from. Tombstones for documents written inside the run are
+            // kept one more round in case a crash leaves the older run members behind.
+            deleted.retainAll(written);
+        }
+
+        VectorSegment.write(run.get(run.size() - 1), dimension, new ArrayList<>(latest.values()), deleted, walSequence,
+            indexes);
+        for (Path path : run.subList(0, run.size() - 1)) {
+            Files.deleteIfExists(path);
+        }
+        return run.size();
+    }
+
+    private List<Path> segmentPaths() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> {
+                    String name = file.getFileName().toString();
+                    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.navigation_service.vector;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Inner-loop arithmetic for vector similarity.
+ *
+ * Implementations are selected once at startup by {@link SimilarityKernels};
+ * every method works on a slice of two float arrays so callers can score
+ * directly against the store's chunks without copying.
+ */
+public interface SimilarityKernel {
+
+    /**
+     * Dot product of {@code length} components starting at the given offsets.
+     */
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Dot product against a slice of a (typically memory-mapped) buffer, read with
+     * absolute gets so the buffer's position is never touched.
+     */
+    float dot(float[] a, int aOffset, FloatBuffer b, int bOffset, int length);
+
+    /**
+     * Cosine similarity computed in a single fused pass that accumulates the
+     * dot product and both squared norms together. Returns NaN when either
+     * vector has zero norm.
+     */
+    float cosine(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Short name for logs and benchmarks.
+     */
+    String name();
+}
@@ -0,0 +1,73 @@
+package com.example.demo.navigation_service.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Selects the fastest available {@link SimilarityKernel} once per JVM.
+ *
+ * The Vector API kernel is used when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}; otherwise, or when
+ * {@code -Dapp.vector-store.simd=false} is set, the unrolled scalar kernel is used.
+ * The choice is held in a static final field so the JIT sees a single
+ * implementation at every call site and inlines it.
+ */
+@Slf4j
+public final class SimilarityKernels {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final SimilarityKernel PREFERRED = select();
+
+    private SimilarityKernels() {
+    }
+
+    /**
+     * Kernel chosen at startup.
+     */
+    public static SimilarityKernel preferred() {
+        return PREFERRED;
+    }
+
+    /**
+     * Portable kernel, regardless of what is available.
+     */
+    public static SimilarityKernel scalar() {
+        return new ScalarSimilarityKernel();
+    }
+
+    /**
+     * Vector API kernel, or null when the incubator module is not resolved.
+     */
+    public static SimilarityKernel vectorApi() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            // Loaded reflectively so the class never links without the module
+            return (SimilarityKernel) Class
+                .forName(SimilarityKernels.class.getPackageName() + ".VectorApiSimilarityKernel")
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vector API kernel unavailable: {}", e.toString());
+            return null;
+        }
+    }
+
+    static float cosine(float dot, float squaredNormA, float squaredNormB) {
+        if (squaredNormA == 0f || squaredNormB == 0f) {
+            return Float.NaN;
+        }
+        return (float) (dot / Math.sqrt((double) squaredNormA * squaredNormB));
+    }
+
+    private static SimilarityKernel select() {
+        SimilarityKernel kernel = Boolean.parseBoolean(System.getProperty("app.vector-store.simd", "true"))
+            ? vectorApi()
+            : null;
+        if (kernel == null) {
+            kernel = scalar();
+        }
+        log.info("Using {} similarity kernel", kernel.name());
+        return kernel;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.navigation_service.vector;
+
+/**
+ * Bounded top-K selection over (ordinal, score) pairs.
+ *
+ * Keeps the best {@code k} candidates in a fixed-size binary min-heap backed by
+ * primitive arrays, so selecting the top 10 out of a million scores costs
+ * O(n log k) time and O(k) memory instead of sorting every scored document.
+ */
+public final class TopKCollector {
+
+    private final int[] ordinals;
+    private final float[] scores;
+    private int size;
+
+    public TopKCollector(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.ordinals = new int[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * Offer a candidate; it is kept only if it beats the current K-th best score.
+     */
+    public void offer(int ordinal, float score) {
+        if (size < scores.length) {
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ordinals[0] = ordinal;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Lowest score currently retained, or negative infinity while fewer than K
+     * candidates have been offered. Useful as a pruning bound.
+     */
+    public float minScore() {
+        return size < scores.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Merge another collector's candidates into this one.
+     */
+    public void addAll(TopKCollector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ordinals[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Empty the heap into {@code ordinalsOut}/{@code scoresOut}, best first.
+     *
+     * @return the number of candidates written
+     */
+    public int drainDescending(int[] ordinalsOut, float[] scoresOut) {
+        int count = size;
+        // Repeatedly pop the minimum into the tail of the output arrays
+        for (int i = count - 1; i >= 0; i--) {
+            ordinalsOut[i] = ordinals[0];
+            scoresOut[i] = scores[0];
+            size--;
+            if (size > 0) {
+                ordinals[0] = ordinals[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return count;
+    }
+
+    private void siftUp(int index) {
+        int ordinal = ordinals[index];
+        float score = scores[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            ordinals[index] = ordinals[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        ordinals[index] = ordinal;
+        scores[index] = score;
+    }
+
+    private void siftDown(int index) {
+        int ordinal = ordinals[index];
+        float score = scores[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && scores[right] < scores[child]) {
+                child = right;
+            }
+            if (score <= scores[child]) {
+                break;
+            }
+            ordinals[index] = ordinals[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        ordinals[index] = ordinal;
+        scores[index] = score;
+    }
+}
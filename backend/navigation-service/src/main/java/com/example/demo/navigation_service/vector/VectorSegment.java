@@ -0,0 +1,481 @@
+package com.example.demo.navigation_service.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable, memory-mapped file of vectors written in one batch.
+ *
+ * Layout (little endian):
+ * <pre>
+ *   header      128 bytes: magic "VSEG", version, dimension, count, tombstone count,
+ *               the offsets of the sections below, the last write-ahead log
+ *               sequence number the segment covers, the graph's m and entry point
+ *               and the quantization of the codes
+ *   vectors     count * dimension floats, fixed stride, 64-byte aligned
+ *   norms       count floats
+ *   offsets     count + 1 longs delimiting each record in the data block
+ *   data        per record: int id length, UTF-8 id, opaque payload bytes
+ *   tombstones  per deleted id: int length, UTF-8 id
+ *   graph       optional HNSW graph over the records, as written by {@link HnswIndex}
+ *   codes       optional fixed-size quantized code per record, as written by {@link QuantizedCodes}
+ * </pre>
+ *
+ * Opening a segment only maps the file and validates the header; vectors are
+ * read straight from the mapping, so a store can search them without copying
+ * them onto the heap, and can adopt the stored graph and codes instead of
+ * rebuilding them. Version 2 files have neither. Files are written to a
+ * temporary name, fsynced and then atomically renamed, so a segment is either
+ * complete or absent.
+ */
+public final class VectorSegment {
+
+    static final int MAGIC = 0x56534547; // "VSEG"
+    static final int VERSION = 3;
+    static final int OLDEST_VERSION = 2;
+    static final int HEADER_BYTES = 128;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int dimension;
+    private final int count;
+    private final int tombstoneCount;
+    private final long walSequence;
+    private final FloatBuffer vectors;
+    private final FloatBuffer norms;
+    private final int offsetsOffset;
+    private final int dataOffset;
+    private final int tombstonesOffset;
+    private final int graphOffset;
+    private final int graphM;
+    private final int graphEntryPoint;
+    private final int codesOffset;
+    private final Quantization quantization;
+
+    private VectorSegment(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a vector segment: " + path);
+        }
+        if (buffer.getInt(4) < OLDEST_VERSION || buffer.getInt(4) > VERSION) {
+            throw new IOException("Unsupported vector segment version " + buffer.getInt(4) + ": " + path);
+        }
+        this.dimension = buffer.getInt(8);
+        this.count = buffer.getInt(12);
+        this.tombstoneCount = buffer.getInt(16);
+        int vectorsOffset = (int) buffer.getLong(24);
+        int normsOffset = (int) buffer.getLong(32);
+        this.offsetsOffset = (int) buffer.getLong(40);
+        this.dataOffset = (int) buffer.getLong(48);
+        this.tombstonesOffset = (int) buffer.getLong(56);
+        this.walSequence = buffer.getLong(64);
+        // Zero in version 2 headers: no graph, no codes
+        this.graphOffset = (int) buffer.getLong(72);
+        this.graphM = buffer.getInt(80);
+        this.graphEntryPoint = buffer.getInt(84);
+        this.codesOffset = (int) buffer.getLong(88);
+        int quantization = buffer.getInt(96);
+        if (quantization < 0 || quantization >= Quantization.values().length) {
+            throw new IOException("Unknown quantization " + quantization + " in vector segment: " + path);
+        }
+        this.quantization = Quantization.values()[quantization];
+        this.vectors = floats(buffer, vectorsOffset, count * dimension);
+        this.norms = floats(buffer, normsOffset, count);
+    }
+
+    /**
+     * Map an existing segment file read-only.
+     */
+    public static VectorSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Vector segment exceeds 2 GiB: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new VectorSegment(path, mapped.order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * Write a segment durably and map it, without a graph or codes.
+     */
+    public static VectorSegment write(Path path, int dimension, List<Entry> entries,
+                                      Collection<String> tombstones, long walSequence) throws IOException {
+        return write(path, dimension, entries, tombstones, walSequence, Indexes.NONE);
+    }
+
+    /**
+     * Write a segment durably and map it.
+     *
+     * @param dimension   dimension of every entry's vector (ignored when there are no entries)
+     * @param entries     documents in the order they should be applied
+     * @param tombstones  ids deleted by this segment, applied after its entries
+     * @param walSequence last write-ahead log sequence number reflected in this segment
+     * @param indexes     graph and codes to build over the entries and store with them
+     */
+    public static VectorSegment write(Path path, int dimension, List<Entry> entries,
+                                      Collection<String> tombstones, long walSequence,
+                                      Indexes indexes) throws IOException {
+        int count = entries.size();
+        byte[][] ids = new byte[count][];
+        long dataBytes = 0;
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries.get(i);
+            if (entry.vector().remaining() != dimension) {
+                throw new IllegalArgumentException("Vectors must have the same dimension");
+            }
+            ids[i] = entry.id().getBytes(StandardCharsets.UTF_8);
+            dataBytes += Integer.BYTES + ids[i].length + entry.payload().remaining();
+        }
+        float[] norms = new float[count];
+        for (int i = 0; i < count; i++) {
+            FloatBuffer vector = entries.get(i).vector();
+            float sumOfSquares = 0f;
+            for (int d = 0; d < dimension; d++) {
+                float value = vector.get(vector.position() + d);
+                sumOfSquares += value * value;
+            }
+            norms[i] = (float) Math.sqrt(sumOfSquares);
+        }
+        HnswIndex graph = null;
+        if (indexes.graph() != null && count > 0) {
+            graph = new HnswIndex(indexes.graph(), new EntryScorer(entries, norms, dimension));
+            for (int i = 0; i < count; i++) {
+                graph.insert(i);
+            }
+        }
+        Quantization quantization = count > 0 ? indexes.quantization() : Quantization.NONE;
+        int codeBytes = quantization != Quantization.NONE ? QuantizedCodes.codeBytes(quantization, dimension) : 0;
+
+        long vectorsOffset = HEADER_BYTES;
+        long normsOffset = vectorsOffset + (long) count * dimension * Float.BYTES;
+        long offsetsOffset = align(normsOffset + (long) count * Float.BYTES, Long.BYTES);
+        long dataOffset = offsetsOffset + (long) (count + 1) * Long.BYTES;
+        long tombstonesOffset = dataOffset + dataBytes;
+        long tombstoneBytes = 0;
+        for (String id : tombstones) {
+            tombstoneBytes += Integer.BYTES + id.getBytes(StandardCharsets.UTF_8).length;
+        }
+        long graphOffset = graph != null ? align(tombstonesOffset + tombstoneBytes, Integer.BYTES) : 0;
+        long graphEnd = graph != null
+            ? graphOffset + graph.serializedInts(count) * Integer.BYTES
+            : tombstonesOffset + tombstoneBytes;
+        long codesOffset = codeBytes > 0 ? align(graphEnd, Long.BYTES) : 0;
+        long end = codeBytes > 0 ? codesOffset + (long) count * codeBytes : graphEnd;
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Vector segment would exceed 2 GiB: " + path);
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(count)
+                .putInt(tombstones.size()).putInt(0)
+                .putLong(vectorsOffset).putLong(normsOffset).putLong(offsetsOffset)
+                .putLong(dataOffset).putLong(tombstonesOffset).putLong(walSequence)
+                .putLong(graphOffset).putInt(graph != null ? indexes.graph().m() : 0)
+                .putInt(graph != null ? graph.entryPoint() : 0)
+                .putLong(codesOffset).putInt(quantization.ordinal());
+            out.pad(vectorsOffset);
+            for (int i = 0; i < count; i++) {
+                FloatBuffer vector = entries.get(i).vector();
+                for (int d = 0; d < dimension; d++) {
+                    out.putFloat(vector.get(vector.position() + d));
+                }
+            }
+            for (float norm : norms) {
+                out.putFloat(norm);
+            }
+            out.pad(offsetsOffset);
+            long offset = 0;
+            out.putLong(offset);
+            for (int i = 0; i < count; i++) {
+                offset += Integer.BYTES + ids[i].length + entries.get(i).payload().remaining();
+                out.putLong(offset);
+            }
+            for (int i = 0; i < count; i++) {
+                out.putInt(ids[i].length).put(ids[i]).put(entries.get(i).payload());
+            }
+            for (String id : tombstones) {
+                byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length).put(bytes);
+            }
+            if (graph != null) {
+                out.pad(graphOffset);
+                graph.writeTo(count, out::putInt);
+            }
+            if (codeBytes > 0) {
+                out.pad(codesOffset);
+                float[] vector = new float[dimension];
+                ByteBuffer code = ByteBuffer.allocate(codeBytes).order(ByteOrder.LITTLE_ENDIAN);
+                for (Entry entry : entries) {
+                    entry.vector().get(entry.vector().position(), vector);
+                    QuantizedCodes.writeCode(quantization, vector, code.clear());
+                    out.put(code.flip());
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Last write-ahead log sequence number whose effect is contained in this segment.
+     */
+    public long walSequence() {
+        return walSequence;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Number of documents (not counting tombstones).
+     */
+    public int size() {
+        return count;
+    }
+
+    public String id(int index) {
+        int start = recordStart(index);
+        int length = buffer.getInt(start);
+        byte[] bytes = new byte[length];
+        buffer.get(start + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read-only view of the opaque payload stored with a document.
+     */
+    public ByteBuffer payload(int index) {
+        int start = recordStart(index);
+        int idEnd = start + Integer.BYTES + buffer.getInt(start);
+        int end = dataOffset + (int) buffer.getLong(offsetsOffset + (index + 1) * Long.BYTES);
+        return buffer.slice(idEnd, end - idEnd).asReadOnlyBuffer();
+    }
+
+    public float norm(int index) {
+        return norms.get(index);
+    }
+
+    /**
+     * Mapped view of {@code length} consecutive vectors starting at document {@code from}.
+     */
+    public FloatBuffer vectors(int from, int length) {
+        return vectors.slice(from * dimension, length * dimension);
+    }
+
+    public List<String> tombstones() {
+        List<String> ids = new ArrayList<>(tombstoneCount);
+        int position = tombstonesOffset;
+        for (int i = 0; i < tombstoneCount; i++) {
+            int length = buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            buffer.get(position + Integer.BYTES, bytes);
+            ids.add(new String(bytes, StandardCharsets.UTF_8));
+            position += Integer.BYTES + length;
+        }
+        return ids;
+    }
+
+    /**
+     * The stored graph's {@code m}, or 0 if the segment has no graph.
+     */
+    public int graphM() {
+        return graphM;
+    }
+
+    /**
+     * The stored graph over this segment's records, for {@link HnswIndex#adopt}.
+     */
+    IntBuffer graph() {
+        return buffer.slice(graphOffset, buffer.capacity() - graphOffset).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    int graphEntryPoint() {
+        return graphEntryPoint;
+    }
+
+    /**
+     * Quantization of the stored codes, NONE if the segment has none.
+     */
+    public Quantization quantization() {
+        return quantization;
+    }
+
+    /**
+     * The stored code of a record, for {@link QuantizedCodes#read}.
+     */
+    ByteBuffer code(int index) {
+        int codeBytes = QuantizedCodes.codeBytes(quantization, dimension);
+        return buffer.slice(codesOffset + index * codeBytes, codeBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int recordStart(int index) {
+        return dataOffset + (int) buffer.getLong(offsetsOffset + index * Long.BYTES);
+    }
+
+    private static FloatBuffer floats(ByteBuffer buffer, int offset, int length) {
+        return buffer.slice(offset, length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    private static long align(long value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * A document to write: its id, vector and caller-encoded payload. Buffers are
+     * read from their current position without being consumed, so entries can
+     * point straight into another segment's mapping.
+     */
+    public record Entry(String id, FloatBuffer vector, ByteBuffer payload) {
+
+        public Entry(String id, float[] vector, byte[] payload) {
+            this(id, FloatBuffer.wrap(vector), ByteBuffer.wrap(payload));
+        }
+    }
+
+    /**
+     * Search structures to build over a segment's entries and store with them: an
+     * HNSW graph with the given parameters (null for none) and quantized codes.
+     */
+    public record Indexes(HnswIndex.Config graph, Quantization quantization) {
+
+        public static final Indexes NONE = new Indexes(null, Quantization.NONE);
+
+        public Indexes {
+            if (quantization == null) {
+                quantization = Quantization.NONE;
+            }
+        }
+    }
+
+    /**
+     * Similarities between the entries being written, for building their graph.
+     * Only used by the single writing thread, so one scratch vector suffices.
+     */
+    private static final class EntryScorer implements HnswIndex.VectorScorer {
+        private static final SimilarityKernel KERNEL = SimilarityKernels.preferred();
+
+        private final List<Entry> entries;
+        private final float[] norms;
+        private final float[] scratch;
+
+        EntryScorer(List<Entry> entries, float[] norms, int dimension) {
+            this.entries = entries;
+            this.norms = norms;
+            this.scratch = new float[dimension];
+        }
+
+        @Override
+        public float score(float[] query, float queryNorm, int ordinal) {
+            return norms[ordinal] == 0f ? Float.NaN : dot(query, ordinal) / (queryNorm * norms[ordinal]);
+        }
+
+        @Override
+        public float score(int ordinalA, int ordinalB) {
+            if (norms[ordinalA] == 0f || norms[ordinalB] == 0f) {
+                return Float.NaN;
+            }
+            FloatBuffer vectorA = entries.get(ordinalA).vector();
+            vectorA.get(vectorA.position(), scratch);
+            return dot(scratch, ordinalB) / (norms[ordinalA] * norms[ordinalB]);
+        }
+
+        private float dot(float[] vector, int ordinal) {
+            FloatBuffer other = entries.get(ordinal).vector();
+            return KERNEL.dot(vector, 0, other, other.position(), scratch.length);
+        }
+    }
+
+    /**
+     * Little-endian writer over a channel with a reusable direct buffer.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        Output putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            return this;
+        }
+
+        Output putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+            return this;
+        }
+
+        Output putFloat(float value) throws IOException {
+            ensure(Float.BYTES);
+            buffer.putFloat(value);
+            return this;
+        }
+
+        Output put(byte[] bytes) throws IOException {
+            return put(ByteBuffer.wrap(bytes));
+        }
+
+        Output put(ByteBuffer bytes) throws IOException {
+            ByteBuffer source = bytes.duplicate();
+            while (source.hasRemaining()) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), source.remaining());
+                buffer.put(buffer.position(), source, source.position(), length);
+                buffer.position(buffer.position() + length);
+                source.position(source.position() + length);
+            }
+            return this;
+        }
+
+        void pad(long position) throws IOException {
+            while (written + buffer.position() < position) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.demo.navigation_service.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of store mutations with group-commit fsync.
+ *
+ * {@link #appendPut} and {@link #appendDelete} assign a sequence number and
+ * hand the encoded record to a single writer thread. The writer drains
+ * everything queued while the previous fsync was in flight, writes it with one
+ * gathering write and one {@code force}, then completes all of those futures
+ * together, so durability costs one disk flush per batch rather than per document.
+ *
+ * Records are framed as {@code [int length][int crc32c][body]}; recovery stops
+ * at the first torn or corrupt record of the newest file and truncates it. A
+ * batch whose write fails is cut back off the file before the next one is
+ * written; if that fails too, the log refuses further appends so the torn tail
+ * stays at the end of the newest file.
+ * Files roll once they exceed {@code maxFileBytes} and are deleted by
+ * {@link #checkpoint} once a segment covers every record in them.
+ */
+@Slf4j
+public final class WriteAheadLog implements AutoCloseable {
+
+    static final String PREFIX = "wal-";
+    static final String SUFFIX = ".log";
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final ChannelOpener opener;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Deque<LogFile> closedFiles = new ArrayDeque<>();
+    private final Thread writer;
+    private final PendingRecord poison = new PendingRecord(-1, null, null);
+
+    private long nextSequence;
+    private LogFile currentFile;
+    private FileChannel channel;
+    private boolean closed;
+    // Set by the writer once a failed batch could not be cut off again
+    private volatile IOException failure;
+
+    private WriteAheadLog(Path directory, long maxFileBytes, long nextSequence, List<LogFile> existing,
+                          ChannelOpener opener) throws IOException {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.opener = opener;
+        this.nextSequence = nextSequence;
+        this.closedFiles.addAll(existing);
+        openFile(nextSequence);
+        this.writer = new Thread(this::writeLoop, "vector-wal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Replay every record after {@code checkpoint}, then start logging new ones.
+     *
+     * @param checkpoint last sequence number already contained in segments
+     * @param replay     receives each surviving record in sequence order
+     */
+    public static WriteAheadLog open(Path directory, long maxFileBytes, long checkpoint,
+                                     Consumer<Record> replay) throws IOException {
+        return open(directory, maxFileBytes, checkpoint, replay,
+            path -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    static WriteAheadLog open(Path directory, long maxFileBytes, long checkpoint,
+                              Consumer<Record> replay, ChannelOpener opener) throws IOException {
+        Files.createDirectories(directory);
+        List<LogFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                })
+                .sorted()
+                .forEach(path -> files.add(new LogFile(path, firstSequenceOf(path))));
+        }
+
+        long lastSequence = checkpoint;
+        List<LogFile> retained = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            Path path = files.get(i).path();
+            boolean newest = i == files.size() - 1;
+            lastSequence = Math.max(lastSequence, replayFile(path, checkpoint, newest, replay));
+            if (Files.size(path) == 0) {
+                Files.delete(path);
+            } else {
+                retained.add(files.get(i));
+            }
+        }
+        // Logging always resumes in a fresh file; recovered files stay until a checkpoint covers them
+        return new WriteAheadLog(directory, maxFileBytes, lastSequence + 1, retained, opener);
+    }
+
+    /**
+     * Log an insert or replacement.
+     *
+     * @return sequence number of the record, completed once it is durable
+     */
+    public CompletableFuture<Long> appendPut(String id, float[] vector, byte[] payload) {
+        return append(PUT, id, vector, payload);
+    }
+
+    /**
+     * Log a deletion.
+     *
+     * @return sequence number of the record, completed once it is durable
+     */
+    public CompletableFuture<Long> appendDelete(String id) {
+        return append(DELETE, id, null, null);
+    }
+
+    /**
+     * Sequence number that the next append will receive.
+     */
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Delete closed log files whose records are all at or below {@code sequence}.
+     */
+    public void checkpoint(long sequence) throws IOException {
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (closedFiles) {
+            while (!closedFiles.isEmpty()) {
+                Iterator<LogFile> files = closedFiles.iterator();
+                files.next();
+                // A file ends just before the next one begins
+                long followingFirst = files.hasNext() ? files.next().firstSequence() : currentFile.firstSequence();
+                if (followingFirst - 1 > sequence) {
+                    break;
+                }
+                obsolete.add(closedFiles.pollFirst().path());
+            }
+        }
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Stop accepting appends, flush everything already accepted and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(poison);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private synchronized CompletableFuture<Long> append(byte op, String id, float[] vector, byte[] payload) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("Write-ahead log is closed"));
+        }
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+        long sequence = nextSequence++;
+        PendingRecord pending = new PendingRecord(sequence, encode(sequence, op, id, vector, payload), new CompletableFuture<>());
+        // Enqueued under the same lock that assigned the sequence, so file order is sequence order
+        queue.add(pending);
+        return pending.future();
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // Everything that queued up during the previous fsync goes into this one
+            queue.drainTo(batch);
+            // The poison record is always last: appends are refused once it is queued
+            boolean stop = batch.get(batch.size() - 1) == poison;
+            if (stop) {
+                batch.remove(batch.size() - 1);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        if (failure != null) {
+            for (PendingRecord pending : batch) {
+                pending.future().completeExceptionally(failure);
+            }
+            return;
+        }
+        long start = -1;
+        try {
+            start = channel.size();
+            ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = batch.get(i).bytes();
+            }
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            discardFailedBatch(start, e);
+            for (PendingRecord pending : batch) {
+                pending.future().completeExceptionally(e);
+            }
+            return;
+        }
+        // Roll before acknowledging, so callers never observe a full file still being appended to
+        roll(batch.get(batch.size() - 1).sequence() + 1);
+        for (PendingRecord pending : batch) {
+            pending.future().complete(pending.sequence());
+        }
+    }
+
+    /**
+     * Truncate the file back to where the failed batch began, so records logged
+     * after it are not stranded behind a torn one that recovery would stop at.
+     */
+    private void discardFailedBatch(long start, IOException cause) {
+        try {
+            if (start < 0) {
+                throw cause;
+            }
+            channel.truncate(start);
+            channel.force(false);
+        } catch (IOException e) {
+            IOException unusable = new IOException("Write-ahead log is unusable after a failed write", cause);
+            if (e != cause) {
+                unusable.addSuppressed(e);
+            }
+            failure = unusable;
+        }
+    }
+
+    private void roll(long firstSequence) {
+        try {
+            if (channel.size() < maxFileBytes) {
+                return;
+            }
+            FileChannel previous = channel;
+            LogFile full = currentFile;
+            synchronized (closedFiles) {
+                openFile(firstSequence);
+                closedFiles.addLast(full);
+            }
+            previous.close();
+        } catch (IOException e) {
+            // The batch is already durable; keep appending to the current file and retry next time
+            log.warn("Failed to roll write-ahead log", e);
+        }
+    }
+
+    private void openFile(long firstSequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        channel = opener.open(path);
+        currentFile = new LogFile(path, firstSequence);
+    }
+
+    private static ByteBuffer encode(long sequence, byte op, String id, float[] vector, byte[] payload) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int vectorLength = vector != null ? vector.length : 0;
+        int payloadLength = payload != null ? payload.length : 0;
+        int bodyLength = Long.BYTES + 1 + Integer.BYTES + idBytes.length
+            + Integer.BYTES + vectorLength * Float.BYTES + Integer.BYTES + payloadLength;
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(bodyLength).putInt(0);
+        buffer.putLong(sequence).put(op).putInt(idBytes.length).put(idBytes).putInt(vectorLength);
+        for (int i = 0; i < vectorLength; i++) {
+            buffer.putFloat(vector[i]);
+        }
+        buffer.putInt(payloadLength);
+        if (payload != null) {
+            buffer.put(payload);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 2 * Integer.BYTES, bodyLength);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * @return the highest sequence number found in the file
+     */
+    private static long replayFile(Path path, long checkpoint, boolean newest, Consumer<Record> replay) throws IOException {
+        long lastSequence = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                try {
+                    header.clear();
+                    readFully(channel, header, position);
+                    int bodyLength = header.getInt(0);
+                    if (bodyLength <= 0 || position + 2 * Integer.BYTES + bodyLength > size) {
+                        throw new EOFException("Torn record");
+                    }
+                    ByteBuffer body = ByteBuffer.allocate(bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(channel, body, position + 2 * Integer.BYTES);
+                    CRC32C crc = new CRC32C();
+                    crc.update(body.array(), 0, bodyLength);
+                    if ((int) crc.getValue() != header.getInt(Integer.BYTES)) {
+                        throw new EOFException("Checksum mismatch");
+                    }
+                    Record record = decode(body);
+                    lastSequence = record.sequence();
+                    if (record.sequence() > checkpoint) {
+                        replay.accept(record);
+                    }
+                    position += 2 * Integer.BYTES + bodyLength;
+                } catch (EOFException e) {
+                    if (!newest) {
+                        throw new IOException("Corrupt write-ahead log " + path + " at offset " + position, e);
+                    }
+                    // A crash mid-append leaves a partial tail; everything before it was acknowledged
+                    channel.truncate(position);
+                    break;
+                }
+            }
+        }
+        return lastSequence;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Torn record");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static Record decode(ByteBuffer body) {
+        long sequence = body.getLong();
+        byte op = body.get();
+        byte[] id = new byte[body.getInt()];
+        body.get(id);
+        float[] vector = null;
+        byte[] payload = null;
+        if (op == PUT) {
+            vector = new float[body.getInt()];
+            body.asFloatBuffer().get(vector);
+            body.position(body.position() + vector.length * Float.BYTES);
+            payload = new byte[body.getInt()];
+            body.get(payload);
+        }
+        return new Record(sequence, op == DELETE, new String(id, StandardCharsets.UTF_8), vector, payload);
+    }
+
+    private static long firstSequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * A replayed mutation; deletions carry no vector or payload.
+     */
+    public record Record(long sequence, boolean deleted, String id, float[] vector, byte[] payload) {
+    }
+
+    /**
+     * Opens a log file for appending.
+     */
+    @FunctionalInterface
+    interface ChannelOpener {
+        FileChannel open(Path path) throws IOException;
+    }
+
+    private record PendingRecord(long sequence, ByteBuffer bytes, CompletableFuture<Long> future) {
+    }
+
+    private record LogFile(Path path, long firstSequence) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.navigation_service.websocket;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One binary WebSocket frame carrying a chunk of a voice message.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * u8   version (1)
+ * u8   flags, bit 0 set on the last chunk of a message, bit 1 set on every
+ *      chunk of a message to be processed as it streams in
+ * u32  sequence, numbering voice messages on the connection
+ * u32  chunk index within the message, starting at 0
+ * u8   session id length, then that many UTF-8 bytes
+ * u8   MIME type length, then that many UTF-8 bytes
+ * ...  raw audio bytes up to the end of the frame
+ * </pre>
+ *
+ * The audio is not copied: {@code data} is the frame's own buffer positioned
+ * after the header, and belongs to whoever {@linkplain #read reads} the frame.
+ */
+public record AudioFrame(int sequence, int chunk, boolean last, boolean stream, String sessionId, String mimeType,
+                         DataBuffer data) {
+
+    public static final int VERSION = 1;
+    public static final int FLAG_LAST = 1;
+    public static final int FLAG_STREAM = 2;
+
+    /** Smallest valid header: both strings empty. */
+    private static final int MIN_HEADER = 12;
+
+    /**
+     * Parse the header of a binary frame, leaving {@code payload} positioned at the audio.
+     *
+     * @throws IllegalArgumentException if the header is malformed
+     */
+    public static AudioFrame read(DataBuffer payload) {
+        if (payload.readableByteCount() < MIN_HEADER) {
+            throw new IllegalArgumentException("Audio frame shorter than its header");
+        }
+        int version = payload.read() & 0xFF;
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported audio frame version: " + version);
+        }
+        int flags = payload.read() & 0xFF;
+        int sequence = readInt(payload);
+        int chunk = readInt(payload);
+        String sessionId = readString(payload);
+        String mimeType = readString(payload);
+        return new AudioFrame(sequence, chunk, (flags & FLAG_LAST) != 0, (flags & FLAG_STREAM) != 0, sessionId,
+            mimeType.isEmpty() ? "unknown" : mimeType, payload);
+    }
+
+    private static int readInt(DataBuffer buffer) {
+        return (buffer.read() & 0xFF) << 24
+            | (buffer.read() & 0xFF) << 16
+            | (buffer.read() & 0xFF) << 8
+            | (buffer.read() & 0xFF);
+    }
+
+    private static String readString(DataBuffer buffer) {
+        if (buffer.readableByteCount() < 1) {
+            throw new IllegalArgumentException("Audio frame header is truncated");
+        }
+        int length = buffer.read() & 0xFF;
+        if (buffer.readableByteCount() < length) {
+            throw new IllegalArgumentException("Audio frame header is truncated");
+        }
+        byte[] bytes = new byte[length];
+        buffer.read(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo.navigation_service.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reassembles voice messages sent as sequences of binary {@link AudioFrame}s.
+ *
+ * Chunk buffers are retained as they arrive and joined once the last chunk is
+ * in; on Netty the join is a composite view, so the audio is never copied.
+ * Each connection has at most one message in progress, and a message may have
+ * at most {@code app.audio.max-chunks} chunks and {@code app.audio.max-bytes}
+ * bytes of audio, so a client cannot make the server retain an unbounded number
+ * of (possibly tiny) buffers.
+ */
+@Component
+public class AudioFrameAssembler {
+
+    private final int maxChunks;
+    private final long maxMessageSize;
+    private final ConcurrentHashMap<String, Assembly> assemblies = new ConcurrentHashMap<>();
+
+    public AudioFrameAssembler(
+            @Value("${app.audio.max-chunks:512}") int maxChunks,
+            @Value("${app.audio.max-bytes:5242880}") long maxMessageSize
+    ) {
+        this.maxChunks = maxChunks;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Add a frame to the connection's message in progress. Frames of one
+     * connection must be accepted one at a time.
+     *
+     * @return the complete message once its last chunk arrives, otherwise null;
+     *         the caller must release the message's data
+     * @throws IllegalArgumentException if the frame is out of order or the
+     *         message has too many chunks or bytes; the partial message is discarded
+     */
+    public AudioClip accept(String connectionId, AudioFrame frame) {
+        Assembly assembly = assemblies.get(connectionId);
+        if (frame.chunk() == 0) {
+            if (assembly != null) {
+                // The previous message was abandoned mid-upload
+                discard(connectionId);
+            }
+            assembly = new Assembly(frame.sequence(), frame.mimeType());
+            assemblies.put(connectionId, assembly);
+        } else if (assembly == null || assembly.sequence != frame.sequence() || assembly.chunks.size() != frame.chunk()) {
+            discard(connectionId);
+            throw new IllegalArgumentException("Unexpected audio chunk " + frame.chunk() + " of message " + frame.sequence());
+        }
+
+        if (frame.chunk() >= maxChunks) {
+            discard(connectionId);
+            throw new IllegalArgumentException("Audio message exceeds " + maxChunks + " chunks");
+        }
+        assembly.size += frame.data().readableByteCount();
+        if (assembly.size > maxMessageSize) {
+            discard(connectionId);
+            throw new IllegalArgumentException("Audio message exceeds " + maxMessageSize + " bytes");
+        }
+        // Spring releases frame buffers once the handler returns unless they are retained
+        assembly.chunks.add(DataBufferUtils.retain(frame.data()));
+
+        if (!frame.last()) {
+            return null;
+        }
+        assemblies.remove(connectionId);
+        DataBuffer data = frame.data().factory().join(assembly.chunks);
+        return new AudioClip(assembly.sequence, assembly.mimeType, assembly.chunks.size(), data);
+    }
+
+    /**
+     * Release the connection's message in progress, if any.
+     */
+    public void discard(String connectionId) {
+        Assembly assembly = assemblies.remove(connectionId);
+        if (assembly != null) {
+            assembly.chunks.forEach(DataBufferUtils::release);
+        }
+    }
+
+    /**
+     * A reassembled voice message.
+     */
+    public record AudioClip(int sequence, String mimeType, int chunks, DataBuffer data) {
+    }
+
+    private static final class Assembly {
+        final int sequence;
+        final String mimeType;
+        final List<DataBuffer> chunks = new ArrayList<>();
+        long size;
+
+        Assembly(int sequence, String mimeType) {
+            this.sequence = sequence;
+            this.mimeType = mimeType;
+        }
+    }
+}
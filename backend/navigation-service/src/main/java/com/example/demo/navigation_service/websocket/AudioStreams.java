@@ -0,0 +1,109 @@
+package com.example.demo.navigation_service.websocket;
+
+import com.example.demo.navigation_service.audio.AudioTranscriber;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Voice messages processed while they stream in, one {@link AudioFrame} at a time.
+ *
+ * Unlike {@link AudioFrameAssembler}, nothing is held until the last chunk:
+ * each chunk goes straight to the connection's {@link AudioTranscriber.Transcription}
+ * and is released when the frame is, so the first partial transcript can go
+ * back after one chunk and memory per connection does not grow with message length.
+ *
+ * The transcriber is optional: without one (see {@code app.audio.transcriber})
+ * streaming voice messages are rejected, while assembled ones still work.
+ */
+@Component
+public class AudioStreams {
+
+    private final ObjectProvider<AudioTranscriber> transcriber;
+    private final ConcurrentHashMap<String, Stream> streams = new ConcurrentHashMap<>();
+
+    public AudioStreams(ObjectProvider<AudioTranscriber> transcriber) {
+        this.transcriber = transcriber;
+    }
+
+    /**
+     * Feed one chunk to the connection's message in progress. Frames of one
+     * connection must be accepted one at a time.
+     *
+     * @return the transcript so far, or null if the transcriber had nothing new
+     * @throws IllegalArgumentException if the frame is out of order; the message is discarded
+     * @throws IllegalStateException if no transcriber is configured
+     */
+    public Update accept(String connectionId, AudioFrame frame) {
+        Stream stream = streams.get(connectionId);
+        if (frame.chunk() == 0) {
+            if (stream != null) {
+                // The previous message was abandoned mid-stream
+                discard(connectionId);
+            }
+            AudioTranscriber available = transcriber.getIfAvailable();
+            if (available == null) {
+                throw new IllegalStateException("Streaming voice messages are not supported: no audio transcriber is configured");
+            }
+            stream = new Stream(frame.sequence(), frame.mimeType(), available.start(frame.mimeType()));
+            streams.put(connectionId, stream);
+        } else if (stream == null || stream.sequence != frame.sequence() || stream.chunks != frame.chunk()) {
+            discard(connectionId);
+            throw new IllegalArgumentException("Unexpected audio chunk " + frame.chunk() + " of message " + frame.sequence());
+        }
+
+        stream.chunks++;
+        stream.bytes += frame.data().readableByteCount();
+        String partial;
+        try {
+            partial = stream.transcription.append(frame.data());
+        } catch (RuntimeException e) {
+            discard(connectionId);
+            throw e;
+        }
+        if (!frame.last()) {
+            return partial == null ? null : stream.update(partial, false);
+        }
+        streams.remove(connectionId);
+        try (AudioTranscriber.Transcription transcription = stream.transcription) {
+            return stream.update(transcription.finish(), true);
+        }
+    }
+
+    /**
+     * Abandon the connection's message in progress, if any.
+     */
+    public void discard(String connectionId) {
+        Stream stream = streams.remove(connectionId);
+        if (stream != null) {
+            stream.transcription.close();
+        }
+    }
+
+    /**
+     * Transcript of a streaming voice message so far.
+     *
+     * @param last true once the message is complete and {@code text} is final
+     */
+    public record Update(int sequence, String mimeType, int chunks, long bytes, String text, boolean last) {
+    }
+
+    private static final class Stream {
+        final int sequence;
+        final String mimeType;
+        final AudioTranscriber.Transcription transcription;
+        int chunks;
+        long bytes;
+
+        Stream(int sequence, String mimeType, AudioTranscriber.Transcription transcription) {
+            this.sequence = sequence;
+            this.mimeType = mimeType;
+            this.transcription = transcription;
+        }
+
+        Update update(String text, boolean last) {
+            return new Update(sequence, mimeType, chunks, bytes, text, last);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.example.demo.navigation_service.websocket;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.concurrent.ConcurrentHashMap;
@@ -16,6 +19,13 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * WebSocket handler for reactive chat functionality with Netty
  * Receives messages and replies with a count value
+ * Text frames carry JSON messages; binary frames carry voice messages as raw
+ * audio chunks (see {@link AudioFrame}), either reassembled or transcribed as they stream in
+ * Messages sent with "stream": true are answered by the chat client, token deltas first
+ * Every reply carries the sequence number of the frame it answers; replies to
+ * several frames may be generated at once, but are always sent in frame order
+ * Replies produced close together are written together; clients connecting with
+ * ?batch=true receive them as JSON arrays in fewer frames
  */
 @Slf4j
 @Component
@@ -23,6 +33,12 @@ import java.util.concurrent.atomic.AtomicLong;
 public class ChatWebSocketHandler implements WebSocketHandler {
 
     private final ObjectMapper objectMapper;
+    private final InboundMessageReader inboundMessageReader;
+    private final AudioFrameAssembler audioFrameAssembler;
+    private final AudioStreams audioStreams;
+    private final ResponseStreamer responseStreamer;
+    private final MessagePipeline messagePipeline;
+    private final OutboundCoalescer outboundCoalescer;
 
     // Session-based message counters
     private final ConcurrentHashMap<String, AtomicLong> sessionCounters = new ConcurrentHashMap<>();
@@ -35,44 +51,55 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         // Initialize counter for this session
         sessionCounters.putIfAbsent(sessionId, new AtomicLong(0));
 
+        boolean batchFrames = Boolean.parseBoolean(UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri())
+            .build()
+            .getQueryParams()
+            .getFirst("batch"));
+
+        // Frames are read and answered on the pipeline's workers; the frame number is
+        // echoed on replies so clients can match them up. Audio chunks continue one
+        // another, so they are handled one at a time in arrival order.
+        Flux<String> replies = messagePipeline.handle(session.receive()
+                .doOnNext(message -> log.debug("Received {} byte message from {}",
+                    message.getPayload().readableByteCount(), sessionId)),
+            message -> message.getType() == WebSocketMessage.Type.BINARY,
+            (message, sequence) -> message.getType() == WebSocketMessage.Type.BINARY
+                ? Flux.<String>from(Mono.justOrEmpty(processAudioFrame(message, sessionId, sequence)))
+                : processMessage(message, sessionId, sequence));
+
         return session.send(
-            session.receive()
-                .map(WebSocketMessage::getPayloadAsText)
-                .doOnNext(payload -> log.debug("Received message from {}: {}", sessionId, payload))
-                .map(payload -> processMessage(payload, sessionId))
+            outboundCoalescer.coalesce(replies, batchFrames)
                 .map(session::textMessage)
         ).doFinally(signalType -> {
             log.info("WebSocket connection closed for session: {} ({})", sessionId, signalType);
-            // Clean up session counter
+            // Clean up session counter and any half-received voice message
             sessionCounters.remove(sessionId);
+            audioFrameAssembler.discard(sessionId);
+            audioStreams.discard(sessionId);
         });
     }
 
     /**
      * Process incoming message and generate response with count
      */
-    private String processMessage(String payload, String sessionId) {
+    private Flux<String> processMessage(WebSocketMessage message, String sessionId, long sequence) {
         try {
-            // Parse incoming message
-            JsonNode messageNode = objectMapper.readTree(payload);
-            String content = messageNode.path("content").asText();
-            String type = messageNode.path("type").asText("message");
+            // Parse incoming message straight from the frame buffer
+            InboundMessage inbound = inboundMessageReader.read(message.getPayload());
+            String content = inbound.content();
 
             // Check for audio data
-            JsonNode audioNode = messageNode.path("audio");
-            boolean hasAudio = !audioNode.isMissingNode();
+            boolean hasAudio = inbound.hasAudio();
             String audioInfo = "";
 
             if (hasAudio) {
-                String mimeType = audioNode.path("mimeType").asText("unknown");
-                int audioSize = audioNode.path("size").asInt(0);
-                String audioData = audioNode.path("data").asText("");
+                InboundMessage.Audio audio = inbound.audio();
 
-                audioInfo = String.format(" [Audio: %s, %d bytes, %d chars base64]",
-                    mimeType, audioSize, audioData.length());
+                audioInfo = String.format(" [Audio: %s, %d bytes, %d bytes decoded]",
+                    audio.mimeType(), audio.size(), audio.decodedBytes());
 
-                log.info("Received audio data: mimeType={}, size={} bytes, base64Length={}",
-                    mimeType, audioSize, audioData.length());
+                log.info("Received audio data: mimeType={}, size={} bytes, decoded={} bytes",
+                    audio.mimeType(), audio.size(), audio.decodedBytes());
 
                 // Here you could save the audio file, process it with AI, etc.
                 // For now, we'll just acknowledge it in the response
@@ -85,6 +112,10 @@ public class ChatWebSocketHandler implements WebSocketHandler {
             log.info("Processing message #{} from session {}: {}{}",
                 currentCount, sessionId, content, audioInfo);
 
+            if (inbound.stream()) {
+                return streamResponse(content, currentCount, sessionId, sequence);
+            }
+
             // Create response with count
             String responseContent = hasAudio ?
                 String.format("Voice message received: \"%s\"%s", content, audioInfo) :
@@ -95,29 +126,162 @@ public class ChatWebSocketHandler implements WebSocketHandler {
                     .content(responseContent)
                     .messageCount(currentCount)
                     .sessionId(sessionId)
+                    .sequence(sequence)
                     .timestamp(System.currentTimeMillis())
                     .hasAudio(hasAudio)
                     .build();
 
-            return objectMapper.writeValueAsString(response);
+            return Flux.just(objectMapper.writeValueAsString(response));
             
         } catch (Exception e) {
             log.error("Error processing message from session {}: {}", sessionId, e.getMessage(), e);
-            
-            // Return error response
-            try {
-                ChatResponse errorResponse = ChatResponse.builder()
-                        .type("error")
-                        .content("Error processing message: " + e.getMessage())
-                        .messageCount(sessionCounters.get(sessionId).get())
-                        .sessionId(sessionId)
-                        .timestamp(System.currentTimeMillis())
-                        .build();
-                
-                return objectMapper.writeValueAsString(errorResponse);
-            } catch (Exception jsonError) {
-                return "{\"type\":\"error\",\"content\":\"Failed to process message\"}";
+            return Flux.just(errorResponse(sessionId, sequence, e));
+        }
+    }
+
+    /**
+     * Answer a message with the chat client's reply: a "delta" for each piece
+     * as it is generated, then a "response" with the whole reply
+     */
+    private Flux<String> streamResponse(String content, long messageCount, String sessionId, long sequence) {
+        StringBuilder reply = new StringBuilder();
+        return responseStreamer.reply(content)
+            .doOnNext(reply::append)
+            .map(delta -> toJson(ChatResponse.builder()
+                    .type("delta")
+                    .content(delta)
+                    .messageCount(messageCount)
+                    .sessionId(sessionId)
+                    .sequence(sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .build()))
+            .concatWith(Mono.fromCallable(() -> toJson(ChatResponse.builder()
+                    .type("response")
+                    .content(reply.toString())
+                    .messageCount(messageCount)
+                    .sessionId(sessionId)
+                    .sequence(sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .build())))
+            .onErrorResume(e -> {
+                log.error("Error streaming response to session {}: {}", sessionId, e.getMessage(), e);
+                return Mono.just(errorResponse(sessionId, sequence, e));
+            });
+    }
+
+    private String toJson(ChatResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize chat response", e);
+        }
+    }
+
+    /**
+     * Process one binary audio chunk, replying once the voice message is complete
+     *
+     * @return the response, or null while more chunks are expected
+     */
+    private String processAudioFrame(WebSocketMessage message, String sessionId, long sequence) {
+        AudioFrameAssembler.AudioClip clip;
+        try {
+            AudioFrame frame = AudioFrame.read(message.getPayload());
+            if (frame.stream()) {
+                return processAudioStream(frame, sessionId, sequence);
+            }
+            clip = audioFrameAssembler.accept(sessionId, frame);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected audio frame from session {}: {}", sessionId, e.getMessage());
+            return errorResponse(sessionId, sequence, e);
+        }
+        if (clip == null) {
+            return null;
+        }
+
+        try {
+            int audioSize = clip.data().readableByteCount();
+            log.info("Received audio message #{}: mimeType={}, size={} bytes, chunks={}",
+                clip.sequence(), clip.mimeType(), audioSize, clip.chunks());
+
+            // Here you could save the audio, process it with AI, etc.
+            // For now, we'll just acknowledge it in the response
+            long currentCount = sessionCounters.get(sessionId).incrementAndGet();
+
+            ChatResponse response = ChatResponse.builder()
+                    .type("response")
+                    .content(String.format("Voice message received [Audio: %s, %d bytes, %d chunks]",
+                        clip.mimeType(), audioSize, clip.chunks()))
+                    .messageCount(currentCount)
+                    .sessionId(sessionId)
+                    .sequence(sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .hasAudio(true)
+                    .build();
+
+            return objectMapper.writeValueAsString(response);
+        } catch (Exception e) {
+            log.error("Error processing audio from session {}: {}", sessionId, e.getMessage(), e);
+            return errorResponse(sessionId, sequence, e);
+        } finally {
+            DataBufferUtils.release(clip.data());
+        }
+    }
+
+    /**
+     * Feed one chunk of a streaming voice message to the transcriber, replying
+     * with each partial transcript and with the final one after the last chunk
+     *
+     * @return the response, or null if there is nothing new to report
+     */
+    private String processAudioStream(AudioFrame frame, String sessionId, long sequence) {
+        try {
+            AudioStreams.Update update = audioStreams.accept(sessionId, frame);
+            if (update == null) {
+                return null;
+            }
+
+            long currentCount = update.last()
+                ? sessionCounters.get(sessionId).incrementAndGet()
+                : sessionCounters.get(sessionId).get();
+            if (update.last()) {
+                log.info("Transcribed streaming audio message #{}: mimeType={}, size={} bytes, chunks={}",
+                    update.sequence(), update.mimeType(), update.bytes(), update.chunks());
             }
+
+            ChatResponse response = ChatResponse.builder()
+                    .type(update.last() ? "response" : "partial")
+                    .content(update.last()
+                        ? String.format("Voice message received: \"%s\" [Audio: %s, %d bytes, %d chunks]",
+                            update.text(), update.mimeType(), update.bytes(), update.chunks())
+                        : update.text())
+                    .messageCount(currentCount)
+                    .sessionId(sessionId)
+                    .sequence(sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .hasAudio(true)
+                    .build();
+
+            return objectMapper.writeValueAsString(response);
+        } catch (Exception e) {
+            log.error("Error processing audio from session {}: {}", sessionId, e.getMessage(), e);
+            return errorResponse(sessionId, sequence, e);
+        }
+    }
+
+    private String errorResponse(String sessionId, long sequence, Throwable error) {
+        try {
+            ChatResponse errorResponse = ChatResponse.builder()
+                    .type("error")
+                    .content("Error processing message: " + error.getMessage())
+                    .messageCount(sessionCounters.getOrDefault(sessionId, new AtomicLong()).get())
+                    .sessionId(sessionId)
+                    .sequence(sequence)
+                    .timestamp(System.currentTimeMillis())
+                    .build();
+
+            return objectMapper.writeValueAsString(errorResponse);
+        } catch (Exception jsonError) {
+            return "{\"type\":\"error\",\"content\":\"Failed to process message\"}";
         }
     }
 
@@ -129,6 +293,7 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         private String content;
         private long messageCount;
         private String sessionId;
+        private long sequence;
         private long timestamp;
         private boolean hasAudio;
 
@@ -149,6 +314,9 @@ public class ChatWebSocketHandler implements WebSocketHandler {
         
         public String getSessionId() { return sessionId; }
         public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+        public long getSequence() { return sequence; }
+        public void setSequence(long sequence) { this.sequence = sequence; }
         
         public long getTimestamp() { return timestamp; }
         public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
@@ -161,6 +329,7 @@ public class ChatWebSocketHandler implements WebSocketHandler {
             private String content;
             private long messageCount;
             private String sessionId;
+            private long sequence;
             private long timestamp;
             private boolean hasAudio;
 
@@ -168,6 +337,7 @@ public class ChatWebSocketHandler implements WebSocketHandler {
             public ChatResponseBuilder content(String content) { this.content = content; return this; }
             public ChatResponseBuilder messageCount(long messageCount) { this.messageCount = messageCount; return this; }
             public ChatResponseBuilder sessionId(String sessionId) { this.sessionId = sessionId; return this; }
+            public ChatResponseBuilder sequence(long sequence) { this.sequence = sequence; return this; }
             public ChatResponseBuilder timestamp(long timestamp) { this.timestamp = timestamp; return this; }
             public ChatResponseBuilder hasAudio(boolean hasAudio) { this.hasAudio = hasAudio; return this; }
 
@@ -177,6 +347,7 @@ public class ChatWebSocketHandler implements WebSocketHandler {
                 response.content = this.content;
                 response.messageCount = this.messageCount;
                 response.sessionId = this.sessionId;
+                response.sequence = this.sequence;
                 response.timestamp = this.timestamp;
                 response.hasAudio = this.hasAudio;
                 return response;
@@ -0,0 +1,27 @@
+package com.example.demo.navigation_service.websocket;
+
+/**
+ * Chat message received over the WebSocket.
+ *
+ * @param type    message type, "message" unless the client says otherwise
+ * @param content text content, empty when absent
+ * @param audio   attached audio, or null
+ * @param stream  whether the client wants the reply streamed as it is generated
+ */
+public record InboundMessage(String type, String content, Audio audio, boolean stream) {
+
+    public boolean hasAudio() {
+        return audio != null;
+    }
+
+    /**
+     * Audio attached to a message. The data itself is decoded as it is parsed
+     * rather than kept on the message.
+     *
+     * @param mimeType     declared MIME type, "unknown" when absent
+     * @param size         size in bytes declared by the client
+     * @param decodedBytes bytes actually decoded from the base64 data
+     */
+    public record Audio(String mimeType, int size, long decodedBytes) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.navigation_service.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Streaming reader for inbound chat frames.
+ *
+ * Parses straight from the frame's {@link DataBuffer} with a {@link JsonParser}
+ * instead of building a String and a JsonNode tree. Unknown fields are skipped
+ * and {@code audio.data} is base64-decoded through a small fixed buffer, so a
+ * multi-megabyte voice message costs no more allocation than a text one.
+ */
+@Component
+public class InboundMessageReader {
+
+    private final JsonFactory jsonFactory;
+
+    public InboundMessageReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Read one message from a frame payload. The buffer is read but not released.
+     */
+    public InboundMessage read(DataBuffer payload) throws IOException {
+        try (InputStream in = payload.asInputStream();
+             JsonParser parser = jsonFactory.createParser(in)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            String type = "message";
+            String content = "";
+            InboundMessage.Audio audio = null;
+            boolean stream = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type" -> type = parser.getValueAsString(type);
+                    case "content" -> content = parser.getValueAsString(content);
+                    case "stream" -> stream = parser.getValueAsBoolean(false);
+                    case "audio" -> audio = value == JsonToken.START_OBJECT ? readAudio(parser) : null;
+                    default -> { }
+                }
+                // Skips unknown and mistyped object or array values; no-op once a value is consumed
+                parser.skipChildren();
+            }
+            return new InboundMessage(type, content, audio, stream);
+        }
+    }
+
+    private static InboundMessage.Audio readAudio(JsonParser parser) throws IOException {
+        String mimeType = "unknown";
+        int size = 0;
+        long decodedBytes = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "mimeType" -> mimeType = parser.getValueAsString(mimeType);
+                case "size" -> size = parser.getValueAsInt(0);
+                case "data" -> {
+                    if (value == JsonToken.VALUE_STRING) {
+                        // Decoded chunk by chunk; nothing consumes the audio yet
+                        decodedBytes = parser.readBinaryValue(OutputStream.nullOutputStream());
+                    }
+                }
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+        return new InboundMessage.Audio(mimeType, size, decodedBytes);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual);
+        }
+    }
+}
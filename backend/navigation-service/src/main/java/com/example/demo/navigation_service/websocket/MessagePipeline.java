@@ -0,0 +1,119 @@
+package com.example.demo.navigation_service.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Generates the replies to a connection's messages concurrently while sending
+ * them in the order the messages arrived.
+ *
+ * Up to {@code app.websocket.pipeline.max-in-flight} replies per connection are
+ * worked on at once, each subscribed on a dedicated bounded worker pool so chat
+ * client or database calls never run on the Netty event loop. Replies that
+ * finish early are held until those before them are sent.
+ *
+ * {@link #handle} also moves reading the inbound frames off the event loop.
+ * Frames that continue one another, such as the chunks of a voice message, are
+ * handled one at a time in arrival order on a single worker per connection.
+ *
+ * Metric: {@code chat.pipeline.in-flight}, replies being generated across all connections.
+ */
+@Component
+public class MessagePipeline {
+
+    private final int maxInFlight;
+    private final Scheduler workers;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public MessagePipeline(
+            @Value("${app.websocket.pipeline.max-in-flight:4}") int maxInFlight,
+            @Value("${app.websocket.pipeline.worker-threads:0}") int workerThreads,
+            MeterRegistry meterRegistry) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        int threads = workerThreads > 0 ? workerThreads : Schedulers.DEFAULT_BOUNDED_ELASTIC_SIZE;
+        this.workers = Schedulers.newBoundedElastic(threads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "chat-worker");
+        Gauge.builder("chat.pipeline.in-flight", inFlight, AtomicInteger::get)
+            .description("Chat replies being generated across all connections")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Flatten per-message replies, generating several at once but keeping message order.
+     */
+    public <T> Flux<T> ordered(Flux<? extends Publisher<T>> replies) {
+        return replies.flatMapSequential(reply -> generate(reply, workers), maxInFlight);
+    }
+
+    /**
+     * Handle a connection's frames on the workers, keeping reply order. Each frame
+     * is retained until it has been handled, or released unhandled if the
+     * connection closes first; the handler must be done with it when it returns.
+     *
+     * @param sequential frames to handle one at a time, in arrival order
+     * @param handler    builds the reply to a frame, given its number in arrival order from 1
+     */
+    public <T> Flux<T> handle(Flux<WebSocketMessage> frames, Predicate<WebSocketMessage> sequential,
+                              FrameHandler<T> handler) {
+        // One worker of the pool runs the connection's sequential frames in the order they were scheduled
+        Scheduler lane = Schedulers.single(workers);
+        AtomicLong arrivals = new AtomicLong();
+        return frames
+            .flatMapSequential(frame -> {
+                // Still on the event loop, which releases the frame once this returns
+                long sequence = arrivals.incrementAndGet();
+                frame.retain();
+                AtomicBoolean claimed = new AtomicBoolean();
+                Flux<T> reply = Flux.defer(() -> {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return Flux.empty();
+                    }
+                    try {
+                        return handler.handle(frame, sequence);
+                    } finally {
+                        frame.release();
+                    }
+                });
+                return generate(reply, sequential.test(frame) ? lane : workers)
+                    .doFinally(signal -> {
+                        // Cancelled before a worker got to it
+                        if (claimed.compareAndSet(false, true)) {
+                            frame.release();
+                        }
+                    });
+            }, maxInFlight)
+            .doFinally(signal -> lane.dispose());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.dispose();
+    }
+
+    private <T> Flux<T> generate(Publisher<T> reply, Scheduler scheduler) {
+        return Flux.from(reply)
+            .doOnSubscribe(subscription -> inFlight.incrementAndGet())
+            .doFinally(signal -> inFlight.decrementAndGet())
+            .subscribeOn(scheduler);
+    }
+
+    /**
+     * Builds the reply to one inbound frame.
+     */
+    @FunctionalInterface
+    public interface FrameHandler<T> {
+        Publisher<T> handle(WebSocketMessage frame, long sequence);
+    }
+}
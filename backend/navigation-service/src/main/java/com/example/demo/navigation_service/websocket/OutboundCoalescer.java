@@ -0,0 +1,102 @@
+package com.example.demo.navigation_service.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups the outbound messages a connection produces within a short window,
+ * so a fast stream of small replies costs fewer frames and flushes.
+ *
+ * Messages are held for at most {@code app.websocket.outbound.max-delay}, or
+ * until {@code max-messages} are waiting, and then handed to the socket
+ * together, which lets Netty write the burst with a single flush. Clients that
+ * connect with {@code ?batch=true} also get each burst packed into JSON-array
+ * frames of up to {@code max-frame-size} characters; a burst of one message is
+ * always sent as the plain message. A zero max-delay turns coalescing off.
+ *
+ * Metrics: {@code chat.outbound.messages} and {@code chat.outbound.frames}.
+ */
+@Component
+public class OutboundCoalescer {
+
+    private final Duration maxDelay;
+    private final int maxMessages;
+    private final int maxFrameSize;
+    private final Counter messages;
+    private final Counter frames;
+
+    public OutboundCoalescer(
+            @Value("${app.websocket.outbound.max-delay:5ms}") Duration maxDelay,
+            @Value("${app.websocket.outbound.max-messages:64}") int maxMessages,
+            @Value("${app.websocket.outbound.max-frame-size:65536}") int maxFrameSize,
+            MeterRegistry meterRegistry) {
+        this.maxDelay = maxDelay;
+        this.maxMessages = Math.max(1, maxMessages);
+        this.maxFrameSize = Math.max(1, maxFrameSize);
+        this.messages = Counter.builder("chat.outbound.messages")
+            .description("Chat messages sent to WebSocket clients")
+            .register(meterRegistry);
+        this.frames = Counter.builder("chat.outbound.frames")
+            .description("WebSocket frames carrying chat messages")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Coalesce a connection's outbound messages, in order.
+     *
+     * @param arrays whether the client accepts several messages as one JSON-array frame
+     */
+    public Flux<String> coalesce(Flux<String> outbound, boolean arrays) {
+        if (maxDelay.isZero() || maxDelay.isNegative()) {
+            return outbound.doOnNext(message -> {
+                messages.increment();
+                frames.increment();
+            });
+        }
+        return outbound
+            // Fair backpressure holds bursts while a slow client is not reading instead of overflowing
+            .bufferTimeout(maxMessages, maxDelay, true)
+            .concatMapIterable(burst -> {
+                List<String> packed = arrays ? pack(burst) : burst;
+                messages.increment(burst.size());
+                frames.increment(packed.size());
+                return packed;
+            });
+    }
+
+    /**
+     * Pack messages into as few JSON-array frames as fit the frame size,
+     * leaving a message that ends up alone unwrapped.
+     */
+    List<String> pack(List<String> burst) {
+        if (burst.size() == 1) {
+            return burst;
+        }
+        List<String> packed = new ArrayList<>();
+        List<String> frame = new ArrayList<>();
+        int frameSize = 1;
+        for (String message : burst) {
+            if (!frame.isEmpty() && frameSize + message.length() + 1 > maxFrameSize) {
+                packed.add(toFrame(frame));
+                frame.clear();
+                frameSize = 1;
+            }
+            frame.add(message);
+            frameSize += message.length() + 1;
+        }
+        packed.add(toFrame(frame));
+        return packed;
+    }
+
+    private static String toFrame(List<String> frame) {
+        // The messages are already serialized JSON objects, so the array is built by concatenation
+        return frame.size() == 1 ? frame.getFirst() : "[" + String.join(",", frame) + "]";
+    }
+}
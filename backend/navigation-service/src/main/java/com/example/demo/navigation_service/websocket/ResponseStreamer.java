@@ -0,0 +1,83 @@
+package com.example.demo.navigation_service.websocket;
+
+import com.example.demo.navigation_service.chat.StreamingChatClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams a chat completion as text deltas instead of waiting for the whole reply.
+ *
+ * The first token goes out on its own so the user sees the reply start as soon
+ * as possible; after that, tokens are coalesced into one delta per
+ * {@code app.chat.stream.coalesce-window} or {@code coalesce-max-tokens},
+ * whichever fills first, to keep the number of socket writes down.
+ *
+ * Metrics: {@code chat.response.first-token} (request to first token) and
+ * {@code chat.response.duration} (request to last token).
+ */
+@Component
+public class ResponseStreamer {
+
+    private final ObjectProvider<StreamingChatClient> chatClient;
+    private final Duration coalesceWindow;
+    private final int coalesceMaxTokens;
+    private final Timer firstToken;
+    private final Timer duration;
+
+    public ResponseStreamer(
+            ObjectProvider<StreamingChatClient> chatClient,
+            @Value("${app.chat.stream.coalesce-window:50ms}") Duration coalesceWindow,
+            @Value("${app.chat.stream.coalesce-max-tokens:32}") int coalesceMaxTokens,
+            MeterRegistry meterRegistry) {
+        this.chatClient = chatClient;
+        this.coalesceWindow = coalesceWindow;
+        this.coalesceMaxTokens = Math.max(1, coalesceMaxTokens);
+        this.firstToken = Timer.builder("chat.response.first-token")
+            .description("Time from a chat request to the first token of its reply")
+            .register(meterRegistry);
+        this.duration = Timer.builder("chat.response.duration")
+            .description("Time from a chat request to the last token of its reply")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Deltas of the reply to {@code message}, in order; concatenated they form the whole reply.
+     */
+    public Flux<String> reply(String message) {
+        return Flux.defer(() -> {
+            StreamingChatClient client = chatClient.getIfAvailable();
+            if (client == null) {
+                return Flux.error(new IllegalStateException("No chat client is configured"));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            return client.stream(message)
+                .doOnNext(token -> {
+                    if (first.compareAndSet(true, false)) {
+                        firstToken.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .doOnComplete(() -> duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .switchOnFirst((signal, tokens) -> signal.hasValue()
+                    ? tokens.skip(1)
+                        // Fair backpressure waits for a slow socket instead of overflowing
+                        .bufferTimeout(coalesceMaxTokens, coalesceWindow, true)
+                        .map(ResponseStreamer::join)
+                        .startWith(signal.get())
+                    : tokens);
+        });
+    }
+
+    private static String join(List<String> tokens) {
+        return String.join("", tokens);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.demo.navigation_service.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchFlusherTest {
+
+	@Test
+	void fullBatchFlushesWithoutWaitingForLinger() throws Exception {
+		List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		BatchFlusher<Integer> flusher = new BatchFlusher<>("test",
+			new BatchFlusher.Policy(10, 10, Duration.ofHours(1), Duration.ofSeconds(1)),
+			batch -> {
+				batches.add(batch);
+				return Mono.just(batch.size());
+			}, registry);
+
+		for (int i = 0; i < 25; i++) {
+			flusher.submit(i).block();
+		}
+		waitUntil(() -> batches.size() == 2);
+
+		// The partial tail waits for the linger tick
+		assertEquals(List.of(10, 10), batches.stream().map(List::size).toList());
+		assertEquals(20.0, registry.get("persistence.flushed").counter().count());
+		assertEquals(5.0, registry.get("persistence.queue.depth").gauge().value());
+		flusher.close(Duration.ofSeconds(1));
+		assertEquals(List.of(20, 21, 22, 23, 24), flusher.drain(100));
+	}
+
+	@Test
+	void failedBatchIsRetriedInOrderAfterLinger() throws Exception {
+		List<Integer> persisted = new CopyOnWriteArrayList<>();
+		AtomicBoolean fail = new AtomicBoolean(true);
+		AtomicReference<BatchFlusher<Integer>> holder = new AtomicReference<>();
+		holder.set(new BatchFlusher<>("test",
+			new BatchFlusher.Policy(4, 4, Duration.ofMillis(50), Duration.ofSeconds(1)),
+			batch -> {
+				if (fail.getAndSet(false)) {
+					holder.get().requeue(batch);
+					return Mono.error(new IllegalStateException("sink down"));
+				}
+				persisted.addAll(batch);
+				return Mono.just(batch.size());
+			}, new SimpleMeterRegistry()));
+
+		for (int i = 0; i < 6; i++) {
+			holder.get().submit(i).block();
+		}
+		waitUntil(() -> persisted.size() == 6);
+		holder.get().close(Duration.ofSeconds(1));
+
+		assertEquals(List.of(0, 1, 2, 3, 4, 5), persisted);
+	}
+
+	@Test
+	void slowFlushesShrinkTheBatch() throws Exception {
+		List<Integer> sizes = new ArrayList<>();
+		BatchFlusher<Integer> flusher = new BatchFlusher<>("test",
+			new BatchFlusher.Policy(2, 16, Duration.ofHours(1), Duration.ofNanos(1)),
+			batch -> {
+				synchronized (sizes) {
+					sizes.add(batch.size());
+				}
+				return Mono.just(batch.size()).delayElement(Duration.ofMillis(1));
+			}, new SimpleMeterRegistry());
+
+		for (int i = 0; i < 16; i++) {
+			flusher.submit(i).block();
+		}
+		waitUntil(() -> flusher.depth() == 0);
+		flusher.close(Duration.ofSeconds(1));
+
+		synchronized (sizes) {
+			assertEquals(List.of(16), sizes);
+		}
+		assertEquals(8, flusher.batchSize());
+	}
+
+	@Test
+	void rejectPolicyFailsProducersOverCapacity() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		BatchFlusher<Integer> flusher = new BatchFlusher<>("test",
+			new BatchFlusher.Policy(10, 10, Duration.ofHours(1), Duration.ofSeconds(1)),
+			new BatchFlusher.Overflow<>(3, OverflowPolicy.REJECT, null),
+			batch -> Mono.just(batch.size()), registry);
+
+		for (int i = 0; i < 3; i++) {
+			flusher.submit(i).block();
+		}
+		assertThrows(RejectedExecutionException.class, () -> flusher.submit(3).block());
+		assertEquals(1.0, registry.get("persistence.rejected").counter().count());
+
+		assertEquals(List.of(0), flusher.drain(1));
+		flusher.submit(4).block();
+		flusher.close(Duration.ofSeconds(1));
+		assertEquals(List.of(1, 2, 4), flusher.drain(10));
+	}
+
+	@Test
+	void blockPolicyHoldsProducersUntilRoomFrees() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		BatchFlusher<Integer> flusher = new BatchFlusher<>("test",
+			new BatchFlusher.Policy(10, 10, Duration.ofHours(1), Duration.ofSeconds(1)),
+			new BatchFlusher.Overflow<>(2, OverflowPolicy.BLOCK, null),
+			batch -> Mono.just(batch.size()), registry);
+
+		flusher.submit(0).block();
+		flusher.submit(1).block();
+		// A cancelled reservation must not take the room freed for the next waiter
+		flusher.reserve().subscribe().dispose();
+		CompletableFuture<Void> blocked = flusher.submit(2).toFuture();
+		assertFalse(blocked.isDone());
+		assertEquals(1.0, registry.get("persistence.queue.blocked").gauge().value());
+
+		assertEquals(List.of(0), flusher.drain(1));
+		blocked.get();
+		assertEquals(0.0, registry.get("persistence.queue.blocked").gauge().value());
+		flusher.close(Duration.ofSeconds(1));
+		assertEquals(List.of(1, 2), flusher.drain(10));
+	}
+
+	@Test
+	void spillPolicyFeedsSpilledItemsBackInOrder(@TempDir Path dir) throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		SpillLog<Integer> spill = SpillLog.open(dir.resolve("test.spill"), new IntCodec(), false);
+		BatchFlusher<Integer> flusher = new BatchFlusher<>("test",
+			new BatchFlusher.Policy(10, 10, Duration.ofHours(1), Duration.ofSeconds(1)),
+			new BatchFlusher.Overflow<>(2, OverflowPolicy.SPILL, spill),
+			batch -> Mono.just(batch.size()), registry);
+
+		for (int i = 0; i < 5; i++) {
+			flusher.submit(i).block();
+		}
+		assertEquals(2, flusher.depth());
+		assertEquals(3, spill.size());
+		assertEquals(3.0, registry.get("persistence.spilled").counter().count());
+		assertTrue(registry.get("persistence.spill.bytes").gauge().value() > 0);
+
+		assertEquals(List.of(0), flusher.drain(1));
+		// Room is free, but item 5 still queues behind the spilled ones
+		flusher.submit(5).block();
+		flusher.close(Duration.ofSeconds(1));
+		List<Integer> drained = new ArrayList<>();
+		List<Integer> batch;
+		while (!(batch = flusher.drain(10)).isEmpty()) {
+			drained.addAll(batch);
+		}
+		assertEquals(List.of(1, 2, 3, 4, 5), drained);
+		assertEquals(0L, spill.bytes());
+		spill.close();
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(5);
+		}
+	}
+
+	static final class IntCodec implements SpillLog.Codec<Integer> {
+
+		@Override
+		public void write(Integer item, DataOutput out) throws IOException {
+			out.writeInt(item);
+		}
+
+		@Override
+		public Integer read(DataInput in) throws IOException {
+			return in.readInt();
+		}
+	}
+}
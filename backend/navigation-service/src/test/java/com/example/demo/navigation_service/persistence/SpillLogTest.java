@@ -0,0 +1,60 @@
+package com.example.demo.navigation_service.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpillLogTest {
+
+	@Test
+	void recoveryKeepsOnlyRecordsNotYetRead(@TempDir Path dir) throws Exception {
+		Path path = dir.resolve("test.spill");
+		SpillLog<Integer> log = SpillLog.open(path, new BatchFlusherTest.IntCodec(), false);
+		log.appendAll(List.of(1, 2, 3));
+		log.append(4);
+		assertEquals(List.of(1, 2), log.read(2));
+		log.close();
+
+		SpillLog<Integer> recovered = SpillLog.open(path, new BatchFlusherTest.IntCodec(), true);
+		assertEquals(2, recovered.size());
+		assertEquals(List.of(3, 4), recovered.read(10));
+		recovered.close();
+
+		SpillLog<Integer> drained = SpillLog.open(path, new BatchFlusherTest.IntCodec(), true);
+		assertEquals(0, drained.size());
+		drained.close();
+	}
+
+	@Test
+	void recoveryDropsATornTail(@TempDir Path dir) throws Exception {
+		Path path = dir.resolve("test.spill");
+		SpillLog<Integer> log = SpillLog.open(path, new BatchFlusherTest.IntCodec(), false);
+		log.appendAll(List.of(1, 2));
+		log.close();
+		// Half of a third record
+		Files.write(path, new byte[] {0, 0, 0, 4, 0, 0}, StandardOpenOption.APPEND);
+
+		SpillLog<Integer> recovered = SpillLog.open(path, new BatchFlusherTest.IntCodec(), true);
+		recovered.append(3);
+		assertEquals(List.of(1, 2, 3), recovered.read(10));
+		recovered.close();
+	}
+
+	@Test
+	void openingWithoutRecoveryDiscardsPreviousRecords(@TempDir Path dir) throws Exception {
+		Path path = dir.resolve("test.spill");
+		SpillLog<Integer> log = SpillLog.open(path, new BatchFlusherTest.IntCodec(), false);
+		log.appendAll(List.of(1, 2));
+		log.close();
+
+		SpillLog<Integer> reopened = SpillLog.open(path, new BatchFlusherTest.IntCodec(), false);
+		assertEquals(0, reopened.size());
+		reopened.close();
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.demo.navigation_service.repository;
+
+import com.example.demo.navigation_service.service.MessagePersistenceService.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMessageRepositoryTest {
+
+	@Test
+	void insertSqlNumbersParametersRowByRow() {
+		assertEquals("INSERT INTO messages (conversation_id, role, content, created_at) VALUES ($1, $2, $3, $4), ($5, $6, $7, $8)",
+			ChatMessageRepository.insertSql(2));
+	}
+
+	@Test
+	void largestStatementStaysWithinParameterLimit() {
+		String sql = ChatMessageRepository.insertSql(ChatMessageRepository.MAX_ROWS_PER_STATEMENT);
+		int parameters = ChatMessageRepository.MAX_ROWS_PER_STATEMENT * 4;
+
+		assertTrue(parameters <= 65535);
+		assertTrue(sql.endsWith("$" + parameters + ")"));
+	}
+
+	@Test
+	void cursorSurvivesItsTokenForm() {
+		ChatMessage last = new ChatMessage(42L, "s1", "hi", "user", LocalDateTime.of(2025, 3, 1, 12, 30, 5, 123_456_000));
+		ChatMessageRepository.Cursor cursor = ChatMessageRepository.Cursor.after(last);
+
+		String token = cursor.encode();
+
+		assertTrue(token.matches("[A-Za-z0-9_-]+"));
+		assertEquals(new ChatMessageRepository.Cursor(last.getTimestamp(), 42L), ChatMessageRepository.Cursor.decode(token));
+	}
+
+	@Test
+	void malformedCursorTokensAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> ChatMessageRepository.Cursor.decode("not base64!"));
+		assertThrows(IllegalArgumentException.class, () -> ChatMessageRepository.Cursor.decode("MTIz"));
+		assertThrows(IllegalArgumentException.class, () -> ChatMessageRepository.Cursor.decode("eCx5"));
+	}
+}
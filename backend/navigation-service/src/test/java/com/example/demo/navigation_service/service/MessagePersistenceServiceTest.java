@@ -0,0 +1,174 @@
+package com.example.demo.navigation_service.service;
+
+import com.example.demo.navigation_service.repository.ChatMessageRepository;
+import com.example.demo.navigation_service.service.MessagePersistenceService.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessagePersistenceServiceTest {
+
+	@Test
+	void rejectedRowsAreDeadLetteredWithoutHoldingBackTheRest(@TempDir Path dir) throws Exception {
+		List<String> persisted = new CopyOnWriteArrayList<>();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MessagePersistenceService service = service(dir, registry, messages -> {
+			if (messages.stream().anyMatch(message -> message.getContent().equals("poison"))) {
+				return Mono.error(new DataIntegrityViolationException("value too long"));
+			}
+			messages.forEach(message -> persisted.add(message.getContent()));
+			return Mono.just((long) messages.size());
+		});
+
+		service.storeMessage("s1", "first", "user").block();
+		service.storeMessage("s1", "poison", "user").block();
+		service.storeMessage("s1", "second", "user").block();
+		waitUntil(() -> registry.get("chat.persistence.dead-lettered").counter().count() == 1);
+		waitUntil(() -> persisted.size() == 2);
+		service.shutdown();
+
+		assertEquals(List.of("first", "second"), persisted);
+		assertTrue(Files.size(dir.resolve("dead-letter").resolve("chat-messages.dead")) > 0);
+	}
+
+	@Test
+	void transientFailuresAreRetriedUntilAttemptsRunOut(@TempDir Path dir) throws Exception {
+		AtomicInteger attempts = new AtomicInteger();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MessagePersistenceService service = service(dir, registry, messages -> {
+			attempts.incrementAndGet();
+			return Mono.error(new TransientDataAccessResourceException("connection reset"));
+		});
+
+		service.storeMessage("s1", "hello", "user").block();
+		waitUntil(() -> registry.get("chat.persistence.dead-lettered").counter().count() == 1);
+		service.shutdown();
+
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	void transientFailureIsRetriedUntilItSucceeds(@TempDir Path dir) throws Exception {
+		AtomicInteger attempts = new AtomicInteger();
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MessagePersistenceService service = service(dir, registry, messages -> attempts.incrementAndGet() < 3
+			? Mono.error(new TransientDataAccessResourceException("connection reset"))
+			: Mono.just((long) messages.size()));
+
+		service.storeMessage("s1", "hello", "user").block();
+		waitUntil(() -> attempts.get() == 3);
+		service.shutdown();
+
+		assertEquals(0.0, registry.get("chat.persistence.dead-lettered").counter().count());
+		assertFalse(Files.exists(dir.resolve("dead-letter")));
+	}
+
+	@Test
+	void onlyConnectionAndResourceFailuresAreTransient() {
+		assertTrue(MessagePersistenceService.isTransient(new TransientDataAccessResourceException("pool exhausted")));
+		assertTrue(MessagePersistenceService.isTransient(new IllegalStateException("wrapped", new IOException("reset"))));
+		assertFalse(MessagePersistenceService.isTransient(new DataIntegrityViolationException("check",
+			new R2dbcDataIntegrityViolationException("messages_role_check"))));
+		assertFalse(MessagePersistenceService.isTransient(new IllegalStateException("owner does not exist")));
+	}
+
+	@Test
+	void messagesStoredWhileHistoryIsReadAreStreamedOnce(@TempDir Path dir) throws Exception {
+		Sinks.One<List<ChatMessage>> page = Sinks.one();
+		AtomicBoolean reading = new AtomicBoolean();
+		MessagePersistenceService service = service(dir, new SimpleMeterRegistry(),
+			messages -> Mono.just((long) messages.size()),
+			() -> page.asMono().doOnSubscribe(subscription -> reading.set(true)));
+		List<String> received = new CopyOnWriteArrayList<>();
+		Disposable stream = service.getSessionMessages("s1").subscribe(message -> received.add(message.getContent()));
+		waitUntil(reading::get);
+
+		ChatMessage flushed = service.storeMessage("s1", "flushed", "user").block();
+		service.storeMessage("s1", "during", "user").block();
+		// The first message made it into the page under its database id, the second did not
+		page.tryEmitValue(List.of(
+			new ChatMessage(1001L, "s1", flushed.getContent(), flushed.getRole(), flushed.getTimestamp()),
+			new ChatMessage(1000L, "s1", "old", "user", flushed.getTimestamp().minusMinutes(1))));
+		waitUntil(() -> received.size() == 3);
+		stream.dispose();
+		service.shutdown();
+
+		assertEquals(List.of("old", "flushed", "during"), received);
+	}
+
+	@Test
+	void messagesNotPersistedYetAreStreamedWithTheHistoryPage(@TempDir Path dir) throws Exception {
+		Sinks.Empty<Void> inserted = Sinks.empty();
+		ChatMessage old = new ChatMessage(1000L, "s1", "old", "user", LocalDateTime.now().minusMinutes(1));
+		MessagePersistenceService service = service(dir, new SimpleMeterRegistry(),
+			messages -> inserted.asMono().thenReturn((long) messages.size()),
+			() -> Mono.just(List.of(old)));
+		service.storeMessage("s1", "queued", "user").block();
+
+		List<String> received = new CopyOnWriteArrayList<>();
+		Disposable stream = service.getSessionMessages("s1").subscribe(message -> received.add(message.getContent()));
+		waitUntil(() -> received.size() == 2);
+		stream.dispose();
+		inserted.tryEmitEmpty();
+		service.shutdown();
+
+		assertEquals(List.of("old", "queued"), received);
+	}
+
+	private static MessagePersistenceService service(Path dir, SimpleMeterRegistry registry,
+			Function<List<ChatMessage>, Mono<Long>> insert) {
+		return service(dir, registry, insert, null);
+	}
+
+	private static MessagePersistenceService service(Path dir, SimpleMeterRegistry registry,
+			Function<List<ChatMessage>, Mono<Long>> insert, Supplier<Mono<List<ChatMessage>>> history) {
+		ChatMessageRepository repository = new ChatMessageRepository(null, "admin") {
+			@Override
+			public Mono<Long> insertAll(List<ChatMessage> messages) {
+				return insert.apply(messages);
+			}
+
+			@Override
+			public Flux<ChatMessage> findPage(String sessionId, Cursor before, int limit) {
+				return history.get().flatMapIterable(messages -> messages);
+			}
+		};
+		int historySize = history == null ? 0 : 50;
+		return new MessagePersistenceService(repository, 10, Duration.ofMillis(20), Duration.ofSeconds(1), 250, 1,
+			historySize, 1000, "block", dir.resolve("spill").toString(), 3, dir.resolve("dead-letter").toString(), 16,
+			DataSize.ofMegabytes(1), Duration.ofMinutes(1), registry);
+	}
+
+	private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(5);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.example.demo.navigation_service.service;
+
+import com.example.demo.navigation_service.vector.WriteAheadLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReactiveVectorStoreServiceTest {
+
+	private static final int DIMENSION = 32;
+
+	private ReactiveVectorStoreService service;
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void partitionedSearchMatchesSingleThreadedSearch() {
+		// 4 shards of at least 100 documents each
+		service = new ReactiveVectorStoreService(false, 16, 200, 64, 4, 100, "none", 4, "", 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+		ReactiveVectorStoreService reference = new ReactiveVectorStoreService(false, 16, 200, 64, 1, 100, "none", 4, "", 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+
+		Random random = new Random(5);
+		for (int i = 0; i < 1_000; i++) {
+			float[] vector = randomVector(random);
+			service.storeDocument("doc " + i, vector, Map.of("n", i)).block();
+			reference.storeDocument("doc " + i, vector, Map.of("n", i)).block();
+		}
+
+		float[] query = randomVector(random);
+		List<String> partitioned = service.similaritySearch(query, 10, -1.0)
+			.map(result -> result.getDocument().getContent())
+			.collectList()
+			.block();
+		List<String> single = reference.similaritySearch(query, 10, -1.0)
+			.map(result -> result.getDocument().getContent())
+			.collectList()
+			.block();
+
+		assertEquals(10, partitioned.size());
+		assertEquals(single, partitioned);
+		reference.shutdown();
+	}
+
+	@Test
+	void warmStartRestoresPersistedSegments(@TempDir Path dataDir) {
+		ReactiveVectorStoreService first = new ReactiveVectorStoreService(
+			false, 16, 200, 64, 1, 100, "none", 4, dataDir.toString(), 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+		Random random = new Random(9);
+		for (int i = 0; i < 300; i++) {
+			first.storeDocument("doc " + i, randomVector(random), Map.of("n", i)).block();
+		}
+		first.deleteDocument("doc_7").block();
+		float[] query = randomVector(random);
+		List<String> before = first.similaritySearch(query, 5, -1.0)
+			.map(result -> result.getDocument().getId())
+			.collectList()
+			.block();
+		first.shutdown();
+
+		service = new ReactiveVectorStoreService(
+			false, 16, 200, 64, 1, 100, "none", 4, dataDir.toString(), 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+		List<String> after = service.similaritySearch(query, 5, -1.0)
+			.map(result -> result.getDocument().getId())
+			.collectList()
+			.block();
+
+		assertEquals(before, after);
+		assertNull(service.getDocument("doc_7").block());
+		assertEquals("doc 8", service.getDocument("doc_9").block().getContent());
+		assertEquals(8, service.getDocument("doc_9").block().getMetadata().get("n"));
+		assertEquals(List.of("doc_43"), service.similaritySearch(query, 5, -1.0, Map.of("n", 42))
+			.map(result -> result.getDocument().getId())
+			.collectList()
+			.block());
+		assertEquals("doc_301", service.storeDocument("new", query, Map.of()).block().getId());
+	}
+
+	@Test
+	void spilledWritesReachSegmentsInOrder(@TempDir Path dataDir) {
+		ReactiveVectorStoreService first = new ReactiveVectorStoreService(
+			false, 16, 200, 64, 1, 100, "none", 4, dataDir.toString(), 16 << 20, 10, 1L << 30, 50, Duration.ofMillis(20), Duration.ofMillis(500), 8, "spill", new ObjectMapper(), new SimpleMeterRegistry());
+		Random random = new Random(11);
+		for (int i = 0; i < 200; i++) {
+			first.storeDocument("doc " + i, randomVector(random), Map.of("n", i)).block();
+		}
+		first.deleteDocument("doc_3").block();
+		first.storeDocument("late", randomVector(random), Map.of()).block();
+		first.shutdown();
+
+		service = new ReactiveVectorStoreService(
+			false, 16, 200, 64, 1, 100, "none", 4, dataDir.toString(), 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+
+		assertEquals(200, service.getAllDocuments().count().block());
+		assertNull(service.getDocument("doc_3").block());
+		assertEquals("late", service.getDocument("doc_201").block().getContent());
+		assertEquals(199, service.getDocument("doc_200").block().getMetadata().get("n"));
+	}
+
+	@Test
+	void failedLogWriteLeavesNothingSearchable(@TempDir Path dataDir) throws Exception {
+		service = new ReactiveVectorStoreService(
+			false, 16, 200, 64, 1, 100, "none", 4, dataDir.toString(), 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+		Random random = new Random(13);
+		float[] vector = randomVector(random);
+		service.storeDocument("kept", randomVector(random), Map.of()).block();
+
+		// A closed log fails every append, as a failed fsync would
+		((WriteAheadLog) ReflectionTestUtils.getField(service, "writeAheadLog")).close();
+
+		assertThrows(RuntimeException.class, () -> service.storeDocument("lost", vector, Map.of()).block());
+		assertNull(service.getDocument("doc_2").block());
+		assertEquals(List.of("doc_1"), service.similaritySearch(vector, 5, -1.0)
+			.map(result -> result.getDocument().getId())
+			.collectList()
+			.block());
+
+		// Neither failure may reach a segment: the write stays lost and the document stays put
+		assertThrows(RuntimeException.class, () -> service.deleteDocument("doc_1").block());
+		assertEquals("kept", service.getDocument("doc_1").block().getContent());
+		service.shutdown();
+		service = new ReactiveVectorStoreService(
+			false, 16, 200, 64, 1, 100, "none", 4, dataDir.toString(), 16 << 20, 10, 1L << 30, 500, Duration.ofSeconds(2), Duration.ofMillis(500), 50000, "block", new ObjectMapper(), new SimpleMeterRegistry());
+		assertNull(service.getDocument("doc_2").block());
+		assertEquals("kept", service.getDocument("doc_1").block().getContent());
+	}
+
+	private static float[] randomVector(Random random) {
+		float[] vector = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,112 @@
+package com.example.demo.navigation_service.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentHistoryTest {
+
+	@Test
+	void seededWindowReplaysLastItemsOldestFirst() {
+		RecentHistory<String, String> history = history(3, 1000, new TestClock());
+
+		assertNull(history.replay("a"));
+		assertTrue(history.seed("a", List.of("a1", "a2", "a3", "a4")));
+		history.append("a", "a5");
+
+		assertEquals(List.of("a3", "a4", "a5"), history.replay("a"));
+		assertEquals(6, history.weight());
+	}
+
+	@Test
+	void appendedWindowIsOnlyReplayedOnceFull() {
+		RecentHistory<String, String> history = history(3, 1000, new TestClock());
+
+		history.append("a", "a1");
+		history.append("a", "a2");
+		// Older items may only be in the database
+		assertNull(history.replay("a"));
+		assertFalse(history.seed("a", List.of("a0")));
+
+		history.append("a", "a3");
+		assertEquals(List.of("a1", "a2", "a3"), history.replay("a"));
+	}
+
+	@Test
+	void incompleteWindowIsStillHeld() {
+		RecentHistory<String, String> history = history(3, 1000, new TestClock());
+
+		history.append("a", "a1");
+		history.append("a", "a2");
+
+		assertEquals(List.of("a1", "a2"), history.held("a"));
+		assertEquals(List.of(), history.held("b"));
+	}
+
+	@Test
+	void leastRecentlyUsedKeysAreEvictedOverBudget() {
+		RecentHistory<String, String> history = history(2, 8, new TestClock());
+		history.seed("a", List.of("a1", "a2"));
+		history.seed("b", List.of("b1", "b2"));
+		history.replay("a");
+
+		history.seed("c", List.of("c1", "c2"));
+
+		assertEquals(2, history.size());
+		assertEquals(List.of("a1", "a2"), history.replay("a"));
+		assertNull(history.replay("b"));
+		assertEquals(List.of("c1", "c2"), history.replay("c"));
+		assertEquals(1, history.evictions());
+	}
+
+	@Test
+	void idleKeysAreEvicted() {
+		TestClock clock = new TestClock();
+		RecentHistory<String, String> history = history(2, 1000, clock);
+		history.seed("a", List.of("a1"));
+		clock.advance(Duration.ofMinutes(20));
+		history.seed("b", List.of("b1"));
+		clock.advance(Duration.ofMinutes(15));
+
+		assertNull(history.replay("a"));
+		assertEquals(List.of("b1"), history.replay("b"));
+		assertEquals(2, history.weight());
+	}
+
+	private static RecentHistory<String, String> history(int perKey, long maxWeight, Clock clock) {
+		return new RecentHistory<>(perKey, maxWeight, Duration.ofMinutes(30), item -> item.length(), clock);
+	}
+
+	private static final class TestClock extends Clock {
+		private Instant now = Instant.EPOCH;
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.demo.navigation_service.stream;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionSinksTest {
+
+	@Test
+	void itemsReachOnlyTheirOwnSessionsSubscribers() {
+		SessionSinks<String, String> sinks = new SessionSinks<>();
+		List<String> a = new CopyOnWriteArrayList<>();
+		List<String> a2 = new CopyOnWriteArrayList<>();
+		List<String> b = new CopyOnWriteArrayList<>();
+		Disposable subA = sinks.subscribe("a").subscribe(a::add);
+		Disposable subA2 = sinks.subscribe("a").subscribe(a2::add);
+		Disposable subB = sinks.subscribe("b").subscribe(b::add);
+
+		sinks.emit("a", "a1");
+		sinks.emit("b", "b1");
+		sinks.emit("a", "a2");
+
+		assertEquals(List.of("a1", "a2"), a);
+		assertEquals(List.of("a1", "a2"), a2);
+		assertEquals(List.of("b1"), b);
+		subA.dispose();
+		subA2.dispose();
+		subB.dispose();
+	}
+
+	@Test
+	void sessionIsEvictedWhenItsLastSubscriberLeaves() {
+		SessionSinks<String, String> sinks = new SessionSinks<>();
+		Disposable first = sinks.subscribe("a").subscribe();
+		Disposable second = sinks.subscribe("a").subscribe();
+		assertEquals(1, sinks.size());
+
+		first.dispose();
+		assertEquals(1, sinks.size());
+		assertTrue(sinks.emit("a", "still delivered"));
+
+		second.dispose();
+		assertEquals(0, sinks.size());
+		assertFalse(sinks.emit("a", "dropped"));
+	}
+
+	@Test
+	void resubscribingAfterEvictionCreatesAFreshSink() {
+		SessionSinks<String, String> sinks = new SessionSinks<>();
+		sinks.subscribe("a").subscribe().dispose();
+		assertEquals(0, sinks.size());
+
+		List<String> received = new CopyOnWriteArrayList<>();
+		Disposable subscription = sinks.subscribe("a").subscribe(received::add);
+		sinks.emit("a", "again");
+
+		assertEquals(List.of("again"), received);
+		subscription.dispose();
+		assertEquals(0, sinks.size());
+	}
+}
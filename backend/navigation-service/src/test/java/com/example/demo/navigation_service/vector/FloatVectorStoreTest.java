@@ -0,0 +1,118 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloatVectorStoreTest {
+
+	@Test
+	void searchReturnsBestMatchesFirst() {
+		FloatVectorStore<String> store = new FloatVectorStore<>();
+		store.put("a", new float[] {1f, 0f, 0f}, "a");
+		store.put("b", new float[] {0.7f, 0.7f, 0f}, "b");
+		store.put("c", new float[] {0f, 0f, 1f}, "c");
+
+		List<FloatVectorStore.Match<String>> matches = store.search(new float[] {1f, 0.1f, 0f}, 2, 0f);
+
+		assertEquals(List.of("a", "b"), matches.stream().map(FloatVectorStore.Match::payload).toList());
+		assertEquals(0.995f, matches.get(0).score(), 1e-3f);
+		assertArrayEquals(new float[] {1f, 0f, 0f}, matches.get(0).vector());
+	}
+
+	@Test
+	void removedOrdinalsAreRecycled() {
+		FloatVectorStore<String> store = new FloatVectorStore<>();
+		for (int i = 0; i < 600; i++) {
+			store.put("doc" + i, new float[] {i, 1f}, "doc" + i);
+		}
+		assertEquals("doc10", store.remove("doc10"));
+		assertNull(store.remove("doc10"));
+		store.put("new", new float[] {-1f, 0f}, "new");
+
+		assertEquals(600, store.size());
+		assertEquals("new", store.search(new float[] {-1f, 0f}, 1, 0.99f).get(0).payload());
+		assertNull(store.get("doc10", (payload, vector) -> payload));
+	}
+
+	@Test
+	void approximateSearchKeepsItsRecallThroughChurn() {
+		// Every round frees a block of ordinals and refills them with vectors from the
+		// opposite side of the space, so stale links into a recycled slot would point far away
+		Random random = new Random(3);
+		FloatVectorStore<String> store = new FloatVectorStore<>(new HnswIndex.Config(6, 32, 32));
+		int documents = 2_000;
+		for (int i = 0; i < documents; i++) {
+			store.put("doc" + i, randomVector(random, 1f), "doc" + i);
+		}
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 200; i++) {
+				store.remove("doc" + random.nextInt(documents));
+			}
+			float sign = round % 2 == 0 ? -1f : 1f;
+			for (int i = 0; i < documents; i++) {
+				if (store.get("doc" + i, (payload, vector) -> payload) == null) {
+					store.put("doc" + i, randomVector(random, sign), "doc" + i);
+				}
+			}
+		}
+
+		int hits = 0;
+		int queries = 100;
+		for (int q = 0; q < queries; q++) {
+			float[] query = randomVector(random, q % 2 == 0 ? -1f : 1f);
+			List<String> exact = store.searchExact(query, 10, -1f).stream().map(FloatVectorStore.Match::payload).toList();
+			for (FloatVectorStore.Match<String> match : store.search(query, 10, -1f)) {
+				if (exact.contains(match.payload())) {
+					hits++;
+				}
+			}
+		}
+		double recall = hits / (queries * 10.0);
+		assertTrue(recall >= 0.9, "recall after churn was " + recall);
+	}
+
+	@Test
+	void rejectsMismatchedDimensions() {
+		FloatVectorStore<String> store = new FloatVectorStore<>();
+		store.put("a", new float[] {1f, 0f}, "a");
+
+		assertThrows(IllegalArgumentException.class, () -> store.put("b", new float[] {1f}, "b"));
+		assertThrows(IllegalArgumentException.class, () -> store.search(new float[] {1f}, 1, 0f));
+	}
+
+	@Test
+	void filteredSearchOnlyScoresMatchingMetadata() {
+		FloatVectorStore<Map<String, Object>> store = new FloatVectorStore<>(null, payload -> payload);
+		store.put("a", new float[] {1f, 0f}, Map.of("lang", "en", "year", 2024));
+		store.put("b", new float[] {0.9f, 0.1f}, Map.of("lang", "de", "year", 2024));
+		store.put("c", new float[] {0f, 1f}, Map.of("lang", "en", "year", 2023L));
+
+		assertEquals(List.of(Map.of("lang", "en", "year", 2023L)),
+			store.search(new float[] {1f, 0f}, 5, -1f, Map.of("year", 2023))
+				.stream().map(FloatVectorStore.Match::payload).toList());
+		assertEquals(2, store.count(Map.of("year", List.of(2023, 2024), "lang", "en")));
+
+		store.put("a", new float[] {1f, 0f}, Map.of("lang", "fr", "year", 2024));
+		assertEquals(1, store.count(Map.of("lang", "en")));
+		store.remove("c");
+		assertEquals(0, store.count(Map.of("lang", "en")));
+	}
+
+	private static float[] randomVector(Random random, float bias) {
+		float[] vector = new float[16];
+		for (int i = 0; i < vector.length; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		vector[0] += 4 * bias;
+		return vector;
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+	@Test
+	void removalLeavesNoLinksIntoTheFreedOrdinal() {
+		Random random = new Random(11);
+		float[][] vectors = new float[1_000][];
+		for (int i = 0; i < vectors.length; i++) {
+			vectors[i] = new float[8];
+			for (int d = 0; d < vectors[i].length; d++) {
+				vectors[i][d] = (float) random.nextGaussian();
+			}
+		}
+		HnswIndex index = new HnswIndex(new HnswIndex.Config(4, 16, 16), new DotProductScorer(vectors));
+		for (int ordinal = 0; ordinal < vectors.length; ordinal++) {
+			index.insert(ordinal);
+		}
+
+		BitSet removed = new BitSet();
+		for (int ordinal = 0; ordinal < vectors.length; ordinal += 2) {
+			index.remove(ordinal);
+			removed.set(ordinal);
+		}
+
+		assertEquals(vectors.length / 2, index.size());
+		for (int ordinal = 1; ordinal < vectors.length; ordinal += 2) {
+			for (int level = 0; level < 16; level++) {
+				for (int neighbour : index.neighbours(ordinal, level)) {
+					assertFalse(removed.get(neighbour), ordinal + " still links to removed " + neighbour + " on layer " + level);
+				}
+			}
+		}
+	}
+
+	@Test
+	void recycledOrdinalsStayReachableAfterChurn() {
+		Random random = new Random(5);
+		float[][] vectors = new float[1_000][];
+		for (int i = 0; i < vectors.length; i++) {
+			vectors[i] = randomUnitVector(random, 8);
+		}
+		HnswIndex index = new HnswIndex(new HnswIndex.Config(4, 32, 32), new DotProductScorer(vectors));
+		for (int ordinal = 0; ordinal < vectors.length; ordinal++) {
+			index.insert(ordinal);
+		}
+
+		for (int round = 0; round < 3; round++) {
+			BitSet removed = new BitSet();
+			for (int ordinal = random.nextInt(3); ordinal < vectors.length; ordinal += 3) {
+				index.remove(ordinal);
+				removed.set(ordinal);
+			}
+			for (int ordinal = 0; ordinal < vectors.length; ordinal++) {
+				for (int neighbour : index.neighbours(ordinal, 0)) {
+					assertFalse(removed.get(neighbour), ordinal + " still links to removed " + neighbour);
+				}
+			}
+			for (int ordinal = removed.nextSetBit(0); ordinal >= 0; ordinal = removed.nextSetBit(ordinal + 1)) {
+				vectors[ordinal] = randomUnitVector(random, 8);
+				index.insert(ordinal);
+			}
+		}
+
+		int found = 0;
+		for (int ordinal = 0; ordinal < vectors.length; ordinal++) {
+			int[] best = new int[32];
+			index.search(vectors[ordinal], 1f, 1, 32, null).drainDescending(best, new float[best.length]);
+			if (best[0] == ordinal) {
+				found++;
+			}
+		}
+		assertEquals(vectors.length, index.size());
+		assertTrue(found >= vectors.length * 0.95, "found " + found + " of " + vectors.length);
+	}
+
+	@Test
+	void adoptedGraphKeepsItsLinksAtTheNewOrdinals() throws Exception {
+		Random random = new Random(7);
+		int base = 256;
+		float[][] vectors = new float[base + 500][];
+		for (int i = 0; i < vectors.length; i++) {
+			vectors[i] = randomUnitVector(random, 8);
+		}
+		float[][] local = Arrays.copyOfRange(vectors, base, vectors.length);
+		HnswIndex written = new HnswIndex(new HnswIndex.Config(4, 32, 32), new DotProductScorer(local));
+		for (int ordinal = 0; ordinal < local.length; ordinal++) {
+			written.insert(ordinal);
+		}
+		IntBuffer serialized = IntBuffer.allocate((int) written.serializedInts(local.length));
+		written.writeTo(local.length, serialized::put);
+
+		HnswIndex adopted = new HnswIndex(new HnswIndex.Config(4, 32, 32), new DotProductScorer(vectors));
+		adopted.adopt(base, local.length, serialized.flip(), written.entryPoint());
+
+		assertEquals(local.length, adopted.size());
+		for (int ordinal = 0; ordinal < local.length; ordinal++) {
+			for (int level = 0; level < 4; level++) {
+				int[] expected = Arrays.stream(written.neighbours(ordinal, level)).map(n -> n + base).toArray();
+				assertArrayEquals(expected, adopted.neighbours(base + ordinal, level));
+			}
+		}
+		// Adopted nodes can be removed like inserted ones
+		adopted.remove(base + written.entryPoint());
+		for (int ordinal = base; ordinal < vectors.length; ordinal++) {
+			for (int neighbour : adopted.neighbours(ordinal, 0)) {
+				assertNotEquals(base + written.entryPoint(), neighbour);
+			}
+		}
+	}
+
+	private static float[] randomUnitVector(Random random, int dimensions) {
+		float[] vector = new float[dimensions];
+		float norm = 0;
+		for (int d = 0; d < dimensions; d++) {
+			vector[d] = (float) random.nextGaussian();
+			norm += vector[d] * vector[d];
+		}
+		for (int d = 0; d < dimensions; d++) {
+			vector[d] /= (float) Math.sqrt(norm);
+		}
+		return vector;
+	}
+
+	private record DotProductScorer(float[][] vectors) implements HnswIndex.VectorScorer {
+		@Override
+		public float score(float[] query, float queryNorm, int ordinal) {
+			return dot(query, vectors[ordinal]);
+		}
+
+		@Override
+		public float score(int ordinalA, int ordinalB) {
+			return dot(vectors[ordinalA], vectors[ordinalB]);
+		}
+
+		private static float dot(float[] a, float[] b) {
+			float sum = 0;
+			for (int i = 0; i < a.length; i++) {
+				sum += a[i] * b[i];
+			}
+			return sum;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall-vs-latency report for the HNSW index against exact search on the same
+ * clustered data. Prints one row per efSearch setting.
+ */
+class HnswRecallReportTest {
+
+	private static final int DIMENSION = 96;
+	private static final int DOCUMENTS = 20_000;
+	private static final int QUERIES = 200;
+	private static final int TOP_K = 10;
+
+	@Test
+	void reportsRecallAndLatencyAgainstExactSearch() {
+		Random random = new Random(7);
+		float[][] centroids = new float[64][];
+		for (int c = 0; c < centroids.length; c++) {
+			centroids[c] = gaussian(random, 1f);
+		}
+		float[][] documents = new float[DOCUMENTS][];
+		for (int i = 0; i < DOCUMENTS; i++) {
+			documents[i] = perturb(random, centroids[random.nextInt(centroids.length)], 0.6f);
+		}
+		float[][] queries = new float[QUERIES][];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = perturb(random, centroids[random.nextInt(centroids.length)], 0.6f);
+		}
+
+		FloatVectorStore<Integer> exact = new FloatVectorStore<>();
+		for (int i = 0; i < DOCUMENTS; i++) {
+			exact.put("doc" + i, documents[i], i);
+		}
+		List<Set<Integer>> truth = new ArrayList<>();
+		long exactNanos = 0;
+		for (float[] query : queries) {
+			long start = System.nanoTime();
+			List<FloatVectorStore.Match<Integer>> matches = exact.searchExact(query, TOP_K, -1f);
+			exactNanos += System.nanoTime() - start;
+			truth.add(payloads(matches));
+		}
+
+		System.out.printf("HNSW recall report: %d docs, dim %d, %d queries, top-%d, m=16, efConstruction=200%n",
+			DOCUMENTS, DIMENSION, QUERIES, TOP_K);
+		System.out.printf("  %-10s recall=%.3f  avg=%8.1f us%n", "exact", 1.0, exactNanos / 1000.0 / QUERIES);
+
+		FloatVectorStore<Integer> approximate = new FloatVectorStore<>(new HnswIndex.Config(16, 200, 64));
+		long buildStart = System.nanoTime();
+		for (int i = 0; i < DOCUMENTS; i++) {
+			approximate.put("doc" + i, documents[i], i);
+		}
+		System.out.printf("  %-10s %d ms%n", "build", (System.nanoTime() - buildStart) / 1_000_000);
+
+		double recallAt128 = 0;
+		for (int efSearch : new int[] {10, 16, 32, 64, 128, 256}) {
+			int hits = 0;
+			long nanos = 0;
+			for (int q = 0; q < QUERIES; q++) {
+				long start = System.nanoTime();
+				List<FloatVectorStore.Match<Integer>> matches = approximate.searchApproximate(queries[q], TOP_K, -1f, null, efSearch);
+				nanos += System.nanoTime() - start;
+				for (Integer payload : payloads(matches)) {
+					if (truth.get(q).contains(payload)) {
+						hits++;
+					}
+				}
+			}
+			double recall = hits / (double) (QUERIES * TOP_K);
+			if (efSearch == 128) {
+				recallAt128 = recall;
+			}
+			System.out.printf("  ef=%-7d recall=%.3f  avg=%8.1f us%n", efSearch, recall, nanos / 1000.0 / QUERIES);
+		}
+
+		assertTrue(recallAt128 >= 0.9, "recall@10 with efSearch=128 should be at least 0.9 but was " + recallAt128);
+	}
+
+	@Test
+	void removalsKeepGraphSearchable() {
+		Random random = new Random(11);
+		FloatVectorStore<Integer> store = new FloatVectorStore<>(new HnswIndex.Config(8, 64, 64));
+		for (int i = 0; i < 2_000; i++) {
+			store.put("doc" + i, gaussian(random, 1f), i);
+		}
+		for (int i = 0; i < 2_000; i += 2) {
+			store.remove("doc" + i);
+		}
+		float[] target = gaussian(random, 1f);
+		store.put("target", target, -1);
+
+		List<FloatVectorStore.Match<Integer>> matches = store.search(target, 5, -1f);
+		assertTrue(payloads(matches).contains(-1));
+		assertTrue(matches.stream().allMatch(match -> match.payload() < 0 || match.payload() % 2 == 1));
+	}
+
+	private static Set<Integer> payloads(List<FloatVectorStore.Match<Integer>> matches) {
+		Set<Integer> result = new HashSet<>();
+		matches.forEach(match -> result.add(match.payload()));
+		return result;
+	}
+
+	private static float[] gaussian(Random random, float scale) {
+		float[] vector = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] = (float) random.nextGaussian() * scale;
+		}
+		return vector;
+	}
+
+	private static float[] perturb(Random random, float[] centre, float scale) {
+		float[] vector = gaussian(random, scale);
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] += centre[i];
+		}
+		return vector;
+	}
+}
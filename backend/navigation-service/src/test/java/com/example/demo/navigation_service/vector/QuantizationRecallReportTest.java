@@ -0,0 +1,122 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall-vs-latency report for quantized exact scans against full-precision
+ * search on the same clustered data. Prints one row per mode and rescore multiplier.
+ */
+class QuantizationRecallReportTest {
+
+	private static final int DIMENSION = 256;
+	private static final int DOCUMENTS = 20_000;
+	private static final int QUERIES = 100;
+	private static final int TOP_K = 10;
+
+	@Test
+	void reportsRecallAndLatencyAgainstFullPrecision() {
+		Random random = new Random(13);
+		float[][] centroids = new float[64][];
+		for (int c = 0; c < centroids.length; c++) {
+			centroids[c] = gaussian(random, 1f);
+		}
+		float[][] documents = new float[DOCUMENTS][];
+		for (int i = 0; i < DOCUMENTS; i++) {
+			documents[i] = perturb(random, centroids[random.nextInt(centroids.length)], 0.6f);
+		}
+		float[][] queries = new float[QUERIES][];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = perturb(random, centroids[random.nextInt(centroids.length)], 0.6f);
+		}
+
+		FloatVectorStore<Integer> exact = new FloatVectorStore<>();
+		for (int i = 0; i < DOCUMENTS; i++) {
+			exact.put("doc" + i, documents[i], i);
+		}
+		List<Set<Integer>> truth = new ArrayList<>();
+		long exactNanos = 0;
+		for (float[] query : queries) {
+			long start = System.nanoTime();
+			List<FloatVectorStore.Match<Integer>> matches = exact.searchExact(query, TOP_K, -1f);
+			exactNanos += System.nanoTime() - start;
+			truth.add(payloads(matches));
+		}
+
+		System.out.printf("Quantization recall report: %d docs, dim %d, %d queries, top-%d%n",
+			DOCUMENTS, DIMENSION, QUERIES, TOP_K);
+		System.out.printf("  %-18s recall=%.3f  avg=%8.1f us%n", "float32", 1.0, exactNanos / 1000.0 / QUERIES);
+
+		double int8Recall = 0;
+		for (Quantization quantization : new Quantization[] {Quantization.INT8, Quantization.BINARY}) {
+			for (int multiplier : new int[] {1, 4, 10}) {
+				FloatVectorStore<Integer> store = new FloatVectorStore<>(null, null, quantization, multiplier);
+				for (int i = 0; i < DOCUMENTS; i++) {
+					store.put("doc" + i, documents[i], i);
+				}
+				int hits = 0;
+				long nanos = 0;
+				for (int q = 0; q < QUERIES; q++) {
+					long start = System.nanoTime();
+					List<FloatVectorStore.Match<Integer>> matches = store.searchExact(queries[q], TOP_K, -1f);
+					nanos += System.nanoTime() - start;
+					for (Integer payload : payloads(matches)) {
+						if (truth.get(q).contains(payload)) {
+							hits++;
+						}
+					}
+				}
+				double recall = hits / (double) (QUERIES * TOP_K);
+				if (quantization == Quantization.INT8 && multiplier == 4) {
+					int8Recall = recall;
+				}
+				System.out.printf("  %-18s recall=%.3f  avg=%8.1f us%n",
+					quantization.name().toLowerCase() + " x" + multiplier, recall, nanos / 1000.0 / QUERIES);
+			}
+		}
+
+		assertTrue(int8Recall >= 0.95, "recall@10 for int8 with 4x rescoring should be at least 0.95 but was " + int8Recall);
+	}
+
+	@Test
+	void rescoredResultsCarryFullPrecisionScores() {
+		FloatVectorStore<String> store = new FloatVectorStore<>(null, null, Quantization.BINARY, 2);
+		store.put("a", new float[] {1f, 0.2f, 0f}, "a");
+		store.put("b", new float[] {-1f, 0f, 0.5f}, "b");
+
+		List<FloatVectorStore.Match<String>> matches = store.search(new float[] {1f, 0.2f, 0f}, 1, 0f);
+
+		assertEquals("a", matches.get(0).payload());
+		assertEquals(1f, matches.get(0).score(), 1e-5f);
+	}
+
+	private static Set<Integer> payloads(List<FloatVectorStore.Match<Integer>> matches) {
+		Set<Integer> result = new HashSet<>();
+		matches.forEach(match -> result.add(match.payload()));
+		return result;
+	}
+
+	private static float[] gaussian(Random random, float scale) {
+		float[] vector = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] = (float) random.nextGaussian() * scale;
+		}
+		return vector;
+	}
+
+	private static float[] perturb(Random random, float[] centre, float scale) {
+		float[] vector = gaussian(random, scale);
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] += centre[i];
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SegmentDirectoryTest {
+
+	@Test
+	void compactionKeepsLatestVersionsAndDropsTombstones(@TempDir Path directory) throws Exception {
+		SegmentDirectory segments = new SegmentDirectory(directory);
+		for (int i = 0; i < 4; i++) {
+			segments.append(1, List.of(
+				new VectorSegment.Entry("doc" + i, new float[] {i}, new byte[0]),
+				new VectorSegment.Entry("shared", new float[] {10 + i}, new byte[0])
+			), i == 3 ? Set.of("doc1") : Set.of(), i + 1);
+		}
+
+		assertEquals(4, segments.compact(4, 1 << 20));
+
+		List<VectorSegment> compacted = new SegmentDirectory(directory).openAll();
+		assertEquals(1, compacted.size());
+		// doc1 was written inside the run, so its tombstone survives until the next compaction
+		assertEquals(List.of("doc1"), compacted.get(0).tombstones());
+		assertEquals(4L, compacted.get(0).walSequence());
+
+		FloatVectorStore<String> store = new FloatVectorStore<>();
+		store.load(compacted.get(0), (id, payload) -> id);
+		assertEquals(4, store.size());
+		assertNull(store.get("doc1", (id, vector) -> id));
+		float[] shared = store.get("shared", (id, vector) -> vector);
+		assertEquals(13f, shared[0]);
+		assertEquals(0, segments.compact(2, 1 << 20));
+	}
+
+	@Test
+	void compactionAfterOlderSegmentsKeepsTombstones(@TempDir Path directory) throws Exception {
+		SegmentDirectory segments = new SegmentDirectory(directory);
+		List<VectorSegment.Entry> large = new ArrayList<>();
+		large.add(new VectorSegment.Entry("old", new float[] {1f}, new byte[0]));
+		for (int i = 0; i < 100; i++) {
+			large.add(new VectorSegment.Entry("bulk" + i, new float[] {1f}, new byte[0]));
+		}
+		segments.append(1, large, Set.of(), 1);
+		for (int i = 0; i < 3; i++) {
+			segments.append(1, List.of(new VectorSegment.Entry("doc" + i, new float[] {i}, new byte[0])),
+				i == 2 ? Set.of("old") : Set.of(), i + 2);
+		}
+
+		// The first segment alone is above the size cap, so only the newer run is merged
+		long smallSize = Files.size(new SegmentDirectory(directory).openAll().get(1).path());
+		assertEquals(3, segments.compact(3, 4 * smallSize));
+		assertEquals(2, new SegmentDirectory(directory).openAll().size());
+
+		FloatVectorStore<String> store = new FloatVectorStore<>();
+		for (VectorSegment segment : new SegmentDirectory(directory).openAll()) {
+			store.load(segment, (id, payload) -> id);
+		}
+		assertEquals(103, store.size());
+		assertNull(store.get("old", (id, vector) -> id));
+	}
+}
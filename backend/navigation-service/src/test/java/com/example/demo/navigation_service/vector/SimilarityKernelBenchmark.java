@@ -0,0 +1,109 @@
+package com.example.demo.navigation_service.vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the similarity kernels on embedding-sized vectors.
+ *
+ * Run with {@code make benchmark}, or after {@code mvn test-compile}:
+ * {@code java --add-modules jdk.incubator.vector -cp <test classpath>
+ * com.example.demo.navigation_service.vector.SimilarityKernelBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SimilarityKernelBenchmark {
+
+	@Param({"384", "1536"})
+	int dimension;
+
+	private float[] a;
+	private float[] b;
+	private List<Double> boxedA;
+	private List<Double> boxedB;
+	private SimilarityKernel scalar;
+	private SimilarityKernel vectorApi;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		a = new float[dimension];
+		b = new float[dimension];
+		boxedA = new ArrayList<>(dimension);
+		boxedB = new ArrayList<>(dimension);
+		for (int i = 0; i < dimension; i++) {
+			a[i] = (float) random.nextGaussian();
+			b[i] = (float) random.nextGaussian();
+			boxedA.add((double) a[i]);
+			boxedB.add((double) b[i]);
+		}
+		scalar = SimilarityKernels.scalar();
+		vectorApi = SimilarityKernels.vectorApi();
+		if (vectorApi == null) {
+			throw new IllegalStateException("Run with --add-modules jdk.incubator.vector");
+		}
+	}
+
+	/**
+	 * The original List<Double> / Math.pow implementation, as a baseline.
+	 */
+	@Benchmark
+	public double boxedCosine() {
+		double dotProduct = 0.0;
+		double normA = 0.0;
+		double normB = 0.0;
+		for (int i = 0; i < boxedA.size(); i++) {
+			dotProduct += boxedA.get(i) * boxedB.get(i);
+			normA += Math.pow(boxedA.get(i), 2);
+			normB += Math.pow(boxedB.get(i), 2);
+		}
+		return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+	}
+
+	@Benchmark
+	public float scalarCosine() {
+		return scalar.cosine(a, 0, b, 0, dimension);
+	}
+
+	@Benchmark
+	public float vectorApiCosine() {
+		return vectorApi.cosine(a, 0, b, 0, dimension);
+	}
+
+	@Benchmark
+	public float scalarDot() {
+		return scalar.dot(a, 0, b, 0, dimension);
+	}
+
+	@Benchmark
+	public float vectorApiDot() {
+		return vectorApi.dot(a, 0, b, 0, dimension);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(SimilarityKernelBenchmark.class.getSimpleName())
+			.build()).run();
+	}
+}
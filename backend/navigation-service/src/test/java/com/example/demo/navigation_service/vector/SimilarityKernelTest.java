@@ -0,0 +1,47 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarityKernelTest {
+
+	@Test
+	void vectorApiKernelMatchesScalarKernel() {
+		SimilarityKernel scalar = SimilarityKernels.scalar();
+		SimilarityKernel vectorApi = SimilarityKernels.vectorApi();
+		assertNotNull(vectorApi, "surefire runs with --add-modules jdk.incubator.vector");
+
+		Random random = new Random(3);
+		for (int length : new int[] {1, 7, 64, 1536, 1539}) {
+			float[] a = new float[length + 5];
+			float[] b = new float[length + 3];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = (float) random.nextGaussian();
+			}
+			for (int i = 0; i < b.length; i++) {
+				b[i] = (float) random.nextGaussian();
+			}
+			float tolerance = 1e-3f * length;
+			assertEquals(scalar.dot(a, 5, b, 3, length), vectorApi.dot(a, 5, b, 3, length), tolerance);
+			assertEquals(scalar.cosine(a, 5, b, 3, length), vectorApi.cosine(a, 5, b, 3, length), 1e-4f);
+			FloatBuffer mapped = ByteBuffer.allocateDirect(b.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(b);
+			assertEquals(scalar.dot(a, 5, b, 3, length), vectorApi.dot(a, 5, mapped, 3, length), tolerance);
+		}
+	}
+
+	@Test
+	void cosineOfZeroVectorIsNaN() {
+		float[] zero = new float[8];
+		float[] one = {1, 1, 1, 1, 1, 1, 1, 1};
+		assertTrue(Float.isNaN(SimilarityKernels.scalar().cosine(zero, 0, one, 0, 8)));
+		assertEquals(1f, SimilarityKernels.preferred().cosine(one, 0, one, 0, 8), 1e-6f);
+	}
+}
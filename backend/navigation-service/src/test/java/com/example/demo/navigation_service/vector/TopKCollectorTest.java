@@ -0,0 +1,47 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TopKCollectorTest {
+
+	@Test
+	void keepsBestScoresInDescendingOrder() {
+		Random random = new Random(42);
+		float[] scores = new float[10_000];
+		TopKCollector collector = new TopKCollector(10);
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = random.nextFloat();
+			collector.offer(i, scores[i]);
+		}
+
+		int[] ordinals = new int[10];
+		float[] top = new float[10];
+		assertEquals(10, collector.drainDescending(ordinals, top));
+
+		int[] expected = IntStream.range(0, scores.length).boxed()
+			.sorted((a, b) -> Float.compare(scores[b], scores[a]))
+			.limit(10)
+			.mapToInt(Integer::intValue)
+			.toArray();
+		assertArrayEquals(expected, ordinals);
+		assertEquals(0, collector.size());
+	}
+
+	@Test
+	void returnsFewerThanKWhenUnderfilled() {
+		TopKCollector collector = new TopKCollector(5);
+		collector.offer(7, 0.2f);
+		collector.offer(3, 0.9f);
+
+		int[] ordinals = new int[2];
+		float[] scores = new float[2];
+		assertEquals(2, collector.drainDescending(ordinals, scores));
+		assertArrayEquals(new int[] {3, 7}, ordinals);
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorSegmentTest {
+
+	private static final int DIMENSION = 24;
+
+	@Test
+	void roundTripsVectorsPayloadsAndTombstones(@TempDir Path directory) throws Exception {
+		Random random = new Random(3);
+		List<VectorSegment.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			entries.add(new VectorSegment.Entry("doc" + i, randomVector(random), ("payload " + i).getBytes(StandardCharsets.UTF_8)));
+		}
+		SegmentDirectory segments = new SegmentDirectory(directory);
+		segments.append(DIMENSION, entries, Set.of("gone"), 0);
+
+		VectorSegment segment = new SegmentDirectory(directory).openAll().get(0);
+
+		assertEquals(300, segment.size());
+		assertEquals("doc299", segment.id(299));
+		assertEquals("payload 42", decode("doc42", segment.payload(42)));
+		assertEquals(List.of("gone"), segment.tombstones());
+		float[] copy = new float[DIMENSION];
+		segment.vectors(299, 1).get(0, copy);
+		assertArrayEquals(entries.get(299).vector().array(), copy);
+	}
+
+	@Test
+	void mappedAndHeapVectorsSearchTogether(@TempDir Path directory) throws Exception {
+		Random random = new Random(4);
+		FloatVectorStore<String> reference = new FloatVectorStore<>();
+		FloatVectorStore<String> store = new FloatVectorStore<>();
+		SegmentDirectory segments = new SegmentDirectory(directory);
+
+		// Heap vectors first so the segment has to start on a fresh chunk
+		for (int i = 0; i < 10; i++) {
+			float[] vector = randomVector(random);
+			reference.put("heap" + i, vector, "heap" + i);
+			store.put("heap" + i, vector, "heap" + i);
+		}
+		List<VectorSegment.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 600; i++) {
+			float[] vector = randomVector(random);
+			entries.add(new VectorSegment.Entry("doc" + i, vector, new byte[0]));
+			reference.put("doc" + i, vector, "doc" + i);
+		}
+		reference.remove("doc5");
+		store.load(segments.append(DIMENSION, entries, Set.of("doc5"), 0), VectorSegmentTest::decode);
+
+		// Replacing a mapped vector moves it back onto the heap
+		float[] replacement = randomVector(random);
+		reference.put("doc9", replacement, "doc9");
+		store.put("doc9", replacement, "doc9");
+
+		assertEquals(reference.size(), store.size());
+		assertNull(store.get("doc5", (payload, vector) -> payload));
+		assertArrayEquals(replacement, store.get("doc9", (payload, vector) -> vector));
+		for (int q = 0; q < 20; q++) {
+			float[] query = randomVector(random);
+			assertEquals(payloads(reference.searchExact(query, 10, -1f)), payloads(store.searchExact(query, 10, -1f)));
+		}
+	}
+
+	@Test
+	void mappedPayloadsAreOnlyDecodedWhenRead(@TempDir Path directory) throws Exception {
+		Random random = new Random(5);
+		List<VectorSegment.Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			entries.add(new VectorSegment.Entry("doc" + i, randomVector(random), ("payload " + i % 3).getBytes(StandardCharsets.UTF_8)));
+		}
+		FloatVectorStore<String> store = new FloatVectorStore<>(null, payload -> Map.of("group", payload));
+		AtomicInteger decoded = new AtomicInteger();
+
+		store.load(new SegmentDirectory(directory).append(DIMENSION, entries, Set.of(), 0),
+			(id, payload) -> {
+				decoded.incrementAndGet();
+				return decode(id, payload);
+			},
+			(id, payload) -> Map.of("group", decode(id, payload)));
+
+		assertEquals(0, decoded.get());
+		assertEquals(100, store.count(Map.of("group", "payload 1")));
+		assertEquals("payload 1", store.get("doc7", (payload, vector) -> payload));
+		assertEquals(1, decoded.get());
+	}
+
+	@Test
+	void storedGraphAndCodesAreAdoptedOnLoad(@TempDir Path directory) throws Exception {
+		Random random = new Random(6);
+		HnswIndex.Config graph = new HnswIndex.Config(8, 64, 64);
+		FloatVectorStore<String> reference = new FloatVectorStore<>(graph, null, Quantization.INT8, 4);
+		List<VectorSegment.Entry> entries = new ArrayList<>();
+		List<VectorSegment.Entry> later = new ArrayList<>();
+		for (int i = 0; i < 800; i++) {
+			float[] vector = randomVector(random);
+			(i < 600 ? entries : later).add(new VectorSegment.Entry("doc" + i, vector, new byte[0]));
+			reference.put("doc" + i, vector, "doc" + i);
+		}
+		SegmentDirectory segments = new SegmentDirectory(directory, new VectorSegment.Indexes(graph, Quantization.INT8));
+		segments.append(DIMENSION, entries, Set.of(), 1);
+		segments.append(DIMENSION, later, Set.of("doc3"), 2);
+		reference.remove("doc3");
+
+		FloatVectorStore<String> store = new FloatVectorStore<>(graph, null, Quantization.INT8, 4);
+		List<VectorSegment> opened = new SegmentDirectory(directory).openAll();
+		assertEquals(Quantization.INT8, opened.get(0).quantization());
+		assertEquals(8, opened.get(0).graphM());
+		for (VectorSegment segment : opened) {
+			store.load(segment, VectorSegmentTest::decode);
+		}
+
+		int found = 0;
+		for (int q = 0; q < 50; q++) {
+			float[] query = randomVector(random);
+			// Stored codes are the ones encoding would have produced
+			assertEquals(payloads(reference.searchExact(query, 10, -1f)), payloads(store.searchExact(query, 10, -1f)));
+			List<String> exact = payloads(store.searchExact(query, 10, -1f));
+			found += (int) payloads(store.search(query, 10, -1f)).stream().filter(exact::contains).count();
+		}
+		assertTrue(found >= 50 * 10 * 0.9, "recall " + found / 500.0);
+		for (String id : List.of("doc0", "doc599", "doc600", "doc799")) {
+			assertEquals(id, store.search(store.get(id, (payload, vector) -> vector), 1, -1f).get(0).payload());
+		}
+	}
+
+	private static String decode(String id, ByteBuffer payload) {
+		if (!payload.hasRemaining()) {
+			return id;
+		}
+		byte[] bytes = new byte[payload.remaining()];
+		payload.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static List<String> payloads(List<FloatVectorStore.Match<String>> matches) {
+		return matches.stream().map(FloatVectorStore.Match::payload).toList();
+	}
+
+	private static float[] randomVector(Random random) {
+		float[] vector = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			vector[i] = (float) random.nextGaussian();
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,231 @@
+package com.example.demo.navigation_service.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+
+	@Test
+	void replaysRecordsAfterCheckpointAndDropsTornTail(@TempDir Path directory) throws Exception {
+		WriteAheadLog log = WriteAheadLog.open(directory, 1 << 20, 0, record -> { });
+		List<CompletableFuture<Long>> futures = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			futures.add(log.appendPut("doc" + i, new float[] {i, -i}, new byte[] {(byte) i}));
+		}
+		futures.add(log.appendDelete("doc3"));
+		CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+		assertEquals(101L, futures.get(100).join());
+		log.close();
+
+		// Simulate a crash half-way through appending one more record
+		Path file = walFiles(directory).get(0);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			channel.write(ByteBuffer.wrap(new byte[] {42, 0, 0, 0, 1, 2}));
+		}
+
+		List<WriteAheadLog.Record> replayed = new ArrayList<>();
+		WriteAheadLog recovered = WriteAheadLog.open(directory, 1 << 20, 90, replayed::add);
+
+		assertEquals(11, replayed.size());
+		assertEquals("doc90", replayed.get(0).id());
+		assertArrayEquals(new float[] {90f, -90f}, replayed.get(0).vector());
+		assertTrue(replayed.get(10).deleted());
+		assertEquals(102L, recovered.nextSequence());
+		assertEquals(102L, recovered.appendDelete("doc4").join());
+		recovered.close();
+	}
+
+	@Test
+	void checkpointDeletesFullyCoveredFiles(@TempDir Path directory) throws Exception {
+		// Tiny files so every group commit rolls
+		WriteAheadLog log = WriteAheadLog.open(directory, 1, 0, record -> { });
+		for (int i = 0; i < 5; i++) {
+			log.appendPut("doc" + i, new float[] {1f}, new byte[0]).join();
+		}
+		assertEquals(6, walFiles(directory).size());
+
+		log.checkpoint(3);
+		assertEquals(3, walFiles(directory).size());
+		log.checkpoint(5);
+		assertEquals(1, walFiles(directory).size());
+		log.close();
+	}
+
+	@Test
+	void failedBatchIsCutOffBeforeTheNextOne(@TempDir Path directory) throws Exception {
+		List<TearingChannel> channels = new ArrayList<>();
+		WriteAheadLog log = tearingLog(directory, channels);
+		log.appendPut("before", new float[] {1f}, new byte[0]).join();
+		channels.get(0).tearNextWrite = true;
+		assertThrows(CompletionException.class, () -> log.appendPut("torn", new float[] {2f}, new byte[0]).join());
+		log.appendPut("after", new float[] {3f}, new byte[0]).join();
+		log.close();
+
+		List<WriteAheadLog.Record> replayed = new ArrayList<>();
+		WriteAheadLog.open(directory, 1 << 20, 0, replayed::add).close();
+
+		assertEquals(List.of("before", "after"), replayed.stream().map(WriteAheadLog.Record::id).toList());
+	}
+
+	@Test
+	void refusesAppendsOnceAFailedBatchCannotBeCutOff(@TempDir Path directory) throws Exception {
+		List<TearingChannel> channels = new ArrayList<>();
+		WriteAheadLog log = tearingLog(directory, channels);
+		log.appendPut("before", new float[] {1f}, new byte[0]).join();
+		channels.get(0).tearNextWrite = true;
+		channels.get(0).failTruncate = true;
+		assertThrows(CompletionException.class, () -> log.appendPut("torn", new float[] {2f}, new byte[0]).join());
+		assertThrows(CompletionException.class, () -> log.appendPut("after", new float[] {3f}, new byte[0]).join());
+		log.close();
+
+		// The torn record is the tail of the newest file, which recovery truncates
+		List<WriteAheadLog.Record> replayed = new ArrayList<>();
+		WriteAheadLog.open(directory, 1 << 20, 0, replayed::add).close();
+		assertEquals(List.of("before"), replayed.stream().map(WriteAheadLog.Record::id).toList());
+	}
+
+	private static WriteAheadLog tearingLog(Path directory, List<TearingChannel> channels) throws IOException {
+		return WriteAheadLog.open(directory, 1 << 20, 0, record -> { }, path -> {
+			TearingChannel channel = new TearingChannel(FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+			channels.add(channel);
+			return channel;
+		});
+	}
+
+	private static List<Path> walFiles(Path directory) throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith(WriteAheadLog.PREFIX)).sorted().toList();
+		}
+	}
+
+	/**
+	 * File channel that can write half of the next batch and then fail, as a full disk would.
+	 */
+	private static final class TearingChannel extends FileChannel {
+		private final FileChannel delegate;
+		volatile boolean tearNextWrite;
+		volatile boolean failTruncate;
+
+		TearingChannel(FileChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+			if (tearNextWrite) {
+				tearNextWrite = false;
+				ByteBuffer first = sources[offset];
+				delegate.write(first.slice(first.position(), first.remaining() / 2));
+				throw new IOException("No space left on device");
+			}
+			return delegate.write(sources, offset, length);
+		}
+
+		@Override
+		public FileChannel truncate(long size) throws IOException {
+			if (failTruncate) {
+				throw new IOException("Input/output error");
+			}
+			delegate.truncate(size);
+			return this;
+		}
+
+		@Override
+		public int read(ByteBuffer destination) throws IOException {
+			return delegate.read(destination);
+		}
+
+		@Override
+		public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+			return delegate.read(destinations, offset, length);
+		}
+
+		@Override
+		public int write(ByteBuffer source) throws IOException {
+			return delegate.write(source);
+		}
+
+		@Override
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		@Override
+		public FileChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		@Override
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		@Override
+		public void force(boolean metaData) throws IOException {
+			delegate.force(metaData);
+		}
+
+		@Override
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return delegate.transferTo(position, count, target);
+		}
+
+		@Override
+		public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+			return delegate.transferFrom(source, position, count);
+		}
+
+		@Override
+		public int read(ByteBuffer destination, long position) throws IOException {
+			return delegate.read(destination, position);
+		}
+
+		@Override
+		public int write(ByteBuffer source, long position) throws IOException {
+			return delegate.write(source, position);
+		}
+
+		@Override
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return delegate.map(mode, position, size);
+		}
+
+		@Override
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return delegate.lock(position, size, shared);
+		}
+
+		@Override
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return delegate.tryLock(position, size, shared);
+		}
+
+		@Override
+		protected void implCloseChannel() throws IOException {
+			delegate.close();
+		}
+	}
+}
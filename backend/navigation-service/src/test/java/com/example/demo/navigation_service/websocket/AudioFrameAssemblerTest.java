@@ -0,0 +1,137 @@
+package com.example.demo.navigation_service.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioFrameAssemblerTest {
+
+	@Test
+	void readsHeaderAndLeavesAudioInPlace() throws IOException {
+		AudioFrame frame = AudioFrame.read(frame(7, 2, true, "session-1", "audio/webm", new byte[] {1, 2, 3}));
+
+		assertEquals(7, frame.sequence());
+		assertEquals(2, frame.chunk());
+		assertTrue(frame.last());
+		assertEquals("session-1", frame.sessionId());
+		assertEquals("audio/webm", frame.mimeType());
+		assertArrayEquals(new byte[] {1, 2, 3}, bytes(frame.data()));
+	}
+
+	@Test
+	void rejectsMalformedHeaders() throws IOException {
+		assertThrows(IllegalArgumentException.class, () -> AudioFrame.read(wrap(new byte[] {1, 0, 0})));
+		byte[] wrongVersion = frameBytes(1, 0, true, "", "", new byte[0]);
+		wrongVersion[0] = 9;
+		assertThrows(IllegalArgumentException.class, () -> AudioFrame.read(wrap(wrongVersion)));
+		byte[] truncated = frameBytes(1, 0, true, "session", "", new byte[0]);
+		assertThrows(IllegalArgumentException.class,
+			() -> AudioFrame.read(wrap(Arrays.copyOf(truncated, 14))));
+	}
+
+	@Test
+	void joinsChunksOnceTheLastArrives() throws IOException {
+		AudioFrameAssembler assembler = new AudioFrameAssembler(16, 1024);
+
+		assertNull(assembler.accept("c1", AudioFrame.read(frame(1, 0, false, "s", "audio/wav", new byte[] {1, 2}))));
+		assertNull(assembler.accept("c1", AudioFrame.read(frame(1, 1, false, "s", "", new byte[] {3}))));
+		AudioFrameAssembler.AudioClip clip =
+			assembler.accept("c1", AudioFrame.read(frame(1, 2, true, "s", "", new byte[] {4, 5})));
+
+		assertEquals(1, clip.sequence());
+		assertEquals("audio/wav", clip.mimeType());
+		assertEquals(3, clip.chunks());
+		assertArrayEquals(new byte[] {1, 2, 3, 4, 5}, bytes(clip.data()));
+	}
+
+	@Test
+	void outOfOrderChunkDiscardsTheMessage() throws IOException {
+		AudioFrameAssembler assembler = new AudioFrameAssembler(16, 1024);
+		assembler.accept("c1", AudioFrame.read(frame(1, 0, false, "s", "", new byte[] {1})));
+
+		assertThrows(IllegalArgumentException.class,
+			() -> assembler.accept("c1", AudioFrame.read(frame(1, 2, true, "s", "", new byte[] {3}))));
+		// Nothing is left to continue
+		assertThrows(IllegalArgumentException.class,
+			() -> assembler.accept("c1", AudioFrame.read(frame(1, 1, true, "s", "", new byte[] {2}))));
+	}
+
+	@Test
+	void oversizedMessageIsRejected() throws IOException {
+		AudioFrameAssembler assembler = new AudioFrameAssembler(16, 4);
+		assembler.accept("c1", AudioFrame.read(frame(1, 0, false, "s", "", new byte[3])));
+
+		assertThrows(IllegalArgumentException.class,
+			() -> assembler.accept("c1", AudioFrame.read(frame(1, 1, true, "s", "", new byte[2]))));
+	}
+
+	@Test
+	void messageWithTooManyChunksIsRejected() throws IOException {
+		AudioFrameAssembler assembler = new AudioFrameAssembler(2, 1024);
+		assembler.accept("c1", AudioFrame.read(frame(1, 0, false, "s", "", new byte[] {1})));
+		assembler.accept("c1", AudioFrame.read(frame(1, 1, false, "s", "", new byte[] {2})));
+
+		assertThrows(IllegalArgumentException.class,
+			() -> assembler.accept("c1", AudioFrame.read(frame(1, 2, true, "s", "", new byte[] {3}))));
+		// Nothing is left to continue
+		assertThrows(IllegalArgumentException.class,
+			() -> assembler.accept("c1", AudioFrame.read(frame(1, 3, true, "s", "", new byte[] {4}))));
+	}
+
+	@Test
+	void newMessageReplacesAnAbandonedOne() throws IOException {
+		AudioFrameAssembler assembler = new AudioFrameAssembler(16, 1024);
+		assembler.accept("c1", AudioFrame.read(frame(1, 0, false, "s", "", new byte[] {1})));
+
+		AudioFrameAssembler.AudioClip clip =
+			assembler.accept("c1", AudioFrame.read(frame(2, 0, true, "s", "", new byte[] {9})));
+
+		assertEquals(2, clip.sequence());
+		assertArrayEquals(new byte[] {9}, bytes(clip.data()));
+	}
+
+	private static DataBuffer frame(int sequence, int chunk, boolean last, String sessionId, String mimeType,
+			byte[] audio) throws IOException {
+		return wrap(frameBytes(sequence, chunk, last, sessionId, mimeType, audio));
+	}
+
+	private static byte[] frameBytes(int sequence, int chunk, boolean last, String sessionId, String mimeType,
+			byte[] audio) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(AudioFrame.VERSION);
+		out.writeByte(last ? AudioFrame.FLAG_LAST : 0);
+		out.writeInt(sequence);
+		out.writeInt(chunk);
+		byte[] session = sessionId.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(session.length);
+		out.write(session);
+		byte[] mime = mimeType.getBytes(StandardCharsets.UTF_8);
+		out.writeByte(mime.length);
+		out.write(mime);
+		out.write(audio);
+		return bytes.toByteArray();
+	}
+
+	private static DataBuffer wrap(byte[] bytes) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+	}
+
+	private static byte[] bytes(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,113 @@
+package com.example.demo.navigation_service.websocket;
+
+import com.example.demo.navigation_service.audio.AudioTranscriber;
+import com.example.demo.navigation_service.config.AIConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioStreamsTest {
+
+	@Test
+	void eachChunkReachesTheTranscriberAsItArrives() throws IOException {
+		AudioStreams streams = streams(new AIConfig.MockTranscriber());
+
+		AudioStreams.Update first = streams.accept("c1", frame(1, 0, false, new byte[100]));
+		assertFalse(first.last());
+		assertEquals("Listening... (1 chunks, 100 bytes)", first.text());
+
+		streams.accept("c1", frame(1, 1, false, new byte[50]));
+		AudioStreams.Update last = streams.accept("c1", frame(1, 2, true, new byte[10]));
+
+		assertTrue(last.last());
+		assertEquals(3, last.chunks());
+		assertEquals(160, last.bytes());
+		assertEquals("Mock transcript of 160 bytes of audio/webm audio", last.text());
+	}
+
+	@Test
+	void quietChunksProduceNoUpdate() throws IOException {
+		AudioStreams streams = streams(mimeType -> new AudioTranscriber.Transcription() {
+			@Override
+			public String append(DataBuffer chunk) {
+				return null;
+			}
+
+			@Override
+			public String finish() {
+				return "done";
+			}
+		});
+
+		assertNull(streams.accept("c1", frame(1, 0, false, new byte[1])));
+		assertEquals("done", streams.accept("c1", frame(1, 1, true, new byte[1])).text());
+	}
+
+	@Test
+	void outOfOrderChunkClosesTheTranscription() throws IOException {
+		List<String> closed = new ArrayList<>();
+		AudioStreams streams = streams(mimeType -> new AudioTranscriber.Transcription() {
+			@Override
+			public String append(DataBuffer chunk) {
+				return "partial";
+			}
+
+			@Override
+			public String finish() {
+				return "done";
+			}
+
+			@Override
+			public void close() {
+				closed.add(mimeType);
+			}
+		});
+		streams.accept("c1", frame(1, 0, false, new byte[1]));
+
+		assertThrows(IllegalArgumentException.class, () -> streams.accept("c1", frame(1, 3, false, new byte[1])));
+		assertEquals(List.of("audio/webm"), closed);
+	}
+
+	@Test
+	void streamingAudioIsRejectedWithoutATranscriber() throws IOException {
+		AudioStreams streams = new AudioStreams(new StaticListableBeanFactory().getBeanProvider(AudioTranscriber.class));
+
+		IllegalStateException error = assertThrows(IllegalStateException.class,
+				() -> streams.accept("c1", frame(1, 0, false, new byte[1])));
+		assertTrue(error.getMessage().contains("no audio transcriber is configured"));
+		assertThrows(IllegalArgumentException.class, () -> streams.accept("c1", frame(1, 1, true, new byte[1])));
+	}
+
+	private static AudioStreams streams(AudioTranscriber transcriber) {
+		return new AudioStreams(
+				new StaticListableBeanFactory(Map.of("transcriber", transcriber)).getBeanProvider(AudioTranscriber.class));
+	}
+
+	private static AudioFrame frame(int sequence, int chunk, boolean last, byte[] audio) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(AudioFrame.VERSION);
+		out.writeByte(AudioFrame.FLAG_STREAM | (last ? AudioFrame.FLAG_LAST : 0));
+		out.writeInt(sequence);
+		out.writeInt(chunk);
+		out.writeByte(0);
+		out.writeByte("audio/webm".length());
+		out.writeBytes("audio/webm");
+		out.write(audio);
+		return AudioFrame.read(DefaultDataBufferFactory.sharedInstance.wrap(bytes.toByteArray()));
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.demo.navigation_service.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InboundMessageReaderTest {
+
+	private final InboundMessageReader reader = new InboundMessageReader(new ObjectMapper());
+
+	@Test
+	void readsTextMessageAndSkipsUnknownFields() throws IOException {
+		InboundMessage message = reader.read(buffer("""
+			{"sessionId":"s1","meta":{"tags":["a",{"b":1}]},"type":"message","content":"Hello"}
+			"""));
+
+		assertEquals("message", message.type());
+		assertEquals("Hello", message.content());
+		assertFalse(message.hasAudio());
+	}
+
+	@Test
+	void defaultsMissingFields() throws IOException {
+		InboundMessage message = reader.read(buffer("{}"));
+
+		assertEquals("message", message.type());
+		assertEquals("", message.content());
+		assertFalse(message.stream());
+	}
+
+	@Test
+	void readsStreamingFlag() throws IOException {
+		assertTrue(reader.read(buffer("{\"content\":\"Hi\",\"stream\":true}")).stream());
+	}
+
+	@Test
+	void decodesAudioWithoutKeepingIt() throws IOException {
+		byte[] audio = new byte[100_000];
+		String data = Base64.getEncoder().encodeToString(audio);
+
+		InboundMessage message = reader.read(buffer("""
+			{"content":"voice","audio":{"data":"%s","extra":[1,2],"mimeType":"audio/webm","size":100000}}
+			""".formatted(data)));
+
+		assertTrue(message.hasAudio());
+		assertEquals("voice", message.content());
+		assertEquals(new InboundMessage.Audio("audio/webm", 100_000, 100_000), message.audio());
+	}
+
+	@Test
+	void rejectsNonObjectFrames() {
+		assertThrows(IOException.class, () -> reader.read(buffer("[1, 2]")));
+	}
+
+	private static DataBuffer buffer(String json) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,167 @@
+package com.example.demo.navigation_service.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessagePipelineTest {
+
+	@Test
+	void repliesKeepMessageOrderWhenLaterOnesFinishFirst() {
+		MessagePipeline pipeline = new MessagePipeline(4, 2, new SimpleMeterRegistry());
+		try {
+			Flux<Flux<String>> replies = Flux.just(
+				reply("1", 150),
+				reply("2", 10),
+				Flux.just("3a", "3b"),
+				reply("4", 50));
+
+			List<String> sent = pipeline.ordered(replies).collectList().block(Duration.ofSeconds(5));
+
+			assertEquals(List.of("1", "2", "3a", "3b", "4"), sent);
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	void atMostMaxInFlightRepliesRunAtOnce() {
+		MessagePipeline pipeline = new MessagePipeline(2, 4, new SimpleMeterRegistry());
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		try {
+			Flux<Flux<Integer>> replies = Flux.range(0, 8).map(i -> Flux.defer(() -> {
+				peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+				return reply(i, 20).doOnTerminate(running::decrementAndGet);
+			}));
+
+			List<Integer> sent = pipeline.ordered(replies).collectList().block(Duration.ofSeconds(5));
+
+			assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), sent);
+			assertTrue(peak.get() <= 2, "peak " + peak.get());
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	void framesAreHandledOnWorkersWhileRetained() {
+		MessagePipeline pipeline = new MessagePipeline(4, 2, new SimpleMeterRegistry());
+		List<WebSocketMessage> frames = List.of(frame(WebSocketMessage.Type.TEXT, "a"), frame(WebSocketMessage.Type.TEXT, "b"));
+		try {
+			List<String> sent = pipeline.<String>handle(Flux.fromIterable(frames), frame -> false, (frame, sequence) ->
+					Mono.just(sequence + ":" + frame.getPayloadAsText() + ":" + refCnt(frame)
+						+ ":" + Thread.currentThread().getName().startsWith("chat-worker")))
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+			assertEquals(List.of("1:a:2:true", "2:b:2:true"), sent);
+			frames.forEach(frame -> assertEquals(1, refCnt(frame)));
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	void sequentialFramesAreHandledOneAtATimeInArrivalOrder() {
+		MessagePipeline pipeline = new MessagePipeline(8, 8, new SimpleMeterRegistry());
+		List<Long> handled = new CopyOnWriteArrayList<>();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		try {
+			Flux<WebSocketMessage> frames = Flux.range(0, 20).map(i -> frame(WebSocketMessage.Type.BINARY, "chunk" + i));
+
+			List<Long> sent = pipeline.handle(frames, frame -> true, (frame, sequence) -> {
+					peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+					try {
+						// Earlier chunks take longer, so concurrent handling would reorder them
+						Thread.sleep(20 - sequence);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					handled.add(sequence);
+					running.decrementAndGet();
+					return Mono.just(sequence);
+				})
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+			List<Long> arrival = Flux.range(1, 20).map(Long::valueOf).collectList().block();
+			assertEquals(arrival, sent);
+			assertEquals(arrival, handled);
+			assertEquals(1, peak.get());
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	void framesAbandonedBeforeBeingHandledAreReleased() throws Exception {
+		MessagePipeline pipeline = new MessagePipeline(3, 2, new SimpleMeterRegistry());
+		List<WebSocketMessage> frames = List.of(
+			frame(WebSocketMessage.Type.BINARY, "1"), frame(WebSocketMessage.Type.BINARY, "2"), frame(WebSocketMessage.Type.BINARY, "3"));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		try {
+			Disposable connection = pipeline.<String>handle(Flux.fromIterable(frames).concatWith(Flux.never()), frame -> true,
+					(frame, sequence) -> {
+						calls.incrementAndGet();
+						started.countDown();
+						try {
+							proceed.await(5, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return Mono.just(frame.getPayloadAsText());
+					})
+				.subscribe();
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			// The connection closes while the first frame is being handled and the others wait
+			connection.dispose();
+			proceed.countDown();
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (frames.stream().anyMatch(frame -> refCnt(frame) != 1) && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			frames.forEach(frame -> assertEquals(1, refCnt(frame)));
+			assertEquals(1, calls.get());
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	private static WebSocketMessage frame(WebSocketMessage.Type type, String content) {
+		NettyDataBufferFactory factory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+		return new WebSocketMessage(type, factory.wrap(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static int refCnt(WebSocketMessage frame) {
+		ByteBuf buffer = ((NettyDataBuffer) frame.getPayload()).getNativeBuffer();
+		return buffer.refCnt();
+	}
+
+	private static <T> Flux<T> reply(T value, long delayMillis) {
+		return Flux.just(value).delayElements(Duration.ofMillis(delayMillis));
+	}
+}
@@ -0,0 +1,84 @@
+package com.example.demo.navigation_service.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutboundCoalescerTest {
+
+	@Test
+	void burstIsSentAsOneArrayFrame() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		OutboundCoalescer coalescer = new OutboundCoalescer(Duration.ofMillis(50), 64, 1024, registry);
+
+		List<String> frames = coalescer.coalesce(Flux.just("{\"a\":1}", "{\"b\":2}", "{\"c\":3}"), true)
+			.collectList().block(Duration.ofSeconds(5));
+
+		assertEquals(List.of("[{\"a\":1},{\"b\":2},{\"c\":3}]"), frames);
+		assertEquals(3.0, registry.get("chat.outbound.messages").counter().count());
+		assertEquals(1.0, registry.get("chat.outbound.frames").counter().count());
+	}
+
+	@Test
+	void messagesStaySeparateWithoutArrays() {
+		OutboundCoalescer coalescer = new OutboundCoalescer(Duration.ofMillis(50), 64, 1024, new SimpleMeterRegistry());
+
+		List<String> frames = coalescer.coalesce(Flux.just("{\"a\":1}", "{\"b\":2}"), false)
+			.collectList().block(Duration.ofSeconds(5));
+
+		assertEquals(List.of("{\"a\":1}", "{\"b\":2}"), frames);
+	}
+
+	@Test
+	void framesAreSplitAtTheSizeLimit() {
+		OutboundCoalescer coalescer = new OutboundCoalescer(Duration.ofMillis(50), 64, 17, new SimpleMeterRegistry());
+
+		// Two 7-character messages make a 17-character array, a third does not fit
+		assertEquals(List.of("[{\"a\":1},{\"b\":2}]", "{\"c\":3}"),
+			coalescer.pack(List.of("{\"a\":1}", "{\"b\":2}", "{\"c\":3}")));
+	}
+
+	@Test
+	void messagesSpreadOverTimeAreNotHeldBack() {
+		OutboundCoalescer coalescer = new OutboundCoalescer(Duration.ofMillis(20), 64, 1024, new SimpleMeterRegistry());
+
+		List<String> frames = coalescer.coalesce(Flux.just("{\"a\":1}", "{\"b\":2}")
+				.delayElements(Duration.ofMillis(100)), true)
+			.collectList().block(Duration.ofSeconds(5));
+
+		assertEquals(List.of("{\"a\":1}", "{\"b\":2}"), frames);
+	}
+
+	@Test
+	void slowClientIsBackpressuredInsteadOfFailing() {
+		OutboundCoalescer coalescer = new OutboundCoalescer(Duration.ofMillis(1), 2, 1024, new SimpleMeterRegistry());
+
+		// Messages trickle in slower than the window, so every burst is a partial one;
+		// the client reads one message, then stalls for thousands of windows
+		StepVerifier.withVirtualTime(() -> coalescer.coalesce(Flux.range(0, 1000)
+					.map(i -> "{\"n\":" + i + "}")
+					.delayElements(Duration.ofMillis(3)), false), 1)
+			.thenAwait(Duration.ofSeconds(10))
+			.expectNext("{\"n\":0}")
+			.thenAwait(Duration.ofSeconds(10))
+			.thenRequest(Long.MAX_VALUE)
+			.thenAwait(Duration.ofSeconds(10))
+			.expectNextCount(999)
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void zeroDelayPassesMessagesThrough() {
+		OutboundCoalescer coalescer = new OutboundCoalescer(Duration.ZERO, 64, 1024, new SimpleMeterRegistry());
+
+		assertEquals(List.of("{\"a\":1}", "{\"b\":2}"),
+			coalescer.coalesce(Flux.just("{\"a\":1}", "{\"b\":2}"), true).collectList().block(Duration.ofSeconds(5)));
+	}
+}
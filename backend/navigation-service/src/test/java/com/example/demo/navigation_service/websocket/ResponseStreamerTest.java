@@ -0,0 +1,84 @@
+package com.example.demo.navigation_service.websocket;
+
+import com.example.demo.navigation_service.chat.StreamingChatClient;
+import com.example.demo.navigation_service.config.AIConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseStreamerTest {
+
+	@Test
+	void firstTokenIsSentAloneAndTheRestCoalesced() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		ResponseStreamer streamer = streamer(message -> Flux.just("a ", "b ", "c ", "d ", "e"), 2, registry);
+
+		List<String> deltas = streamer.reply("hi").collectList().block(Duration.ofSeconds(5));
+
+		assertEquals(List.of("a ", "b c ", "d e"), deltas);
+		assertEquals(1, registry.get("chat.response.first-token").timer().count());
+		assertEquals(1, registry.get("chat.response.duration").timer().count());
+	}
+
+	@Test
+	void deltasAddUpToTheWholeReply() {
+		AIConfig.MockChatClient client = new AIConfig.MockChatClient(Duration.ofMillis(1));
+		ResponseStreamer streamer = streamer(client, 32, new SimpleMeterRegistry());
+
+		List<String> deltas = streamer.reply("hello").collectList().block(Duration.ofSeconds(5));
+
+		assertEquals("Mock ", deltas.getFirst());
+		assertTrue(deltas.size() > 1);
+		assertEquals(client.chat("hello"), String.join("", deltas));
+	}
+
+	@Test
+	void slowSocketIsBackpressuredInsteadOfFailing() {
+		AIConfig.MockChatClient client = new AIConfig.MockChatClient(Duration.ofMillis(20));
+		ResponseStreamer streamer = new ResponseStreamer(
+			new StaticListableBeanFactory(Map.of("chatClient", client)).getBeanProvider(StreamingChatClient.class),
+			Duration.ofMillis(5), 4, new SimpleMeterRegistry());
+		StringBuilder reply = new StringBuilder();
+
+		// Tokens arrive slower than the window, so each delta is a partial batch;
+		// the socket takes two deltas, then stalls for many windows
+		StepVerifier.withVirtualTime(() -> streamer.reply("hello"), 2)
+			.thenAwait(Duration.ofSeconds(10))
+			.consumeNextWith(reply::append)
+			.consumeNextWith(reply::append)
+			.thenAwait(Duration.ofSeconds(10))
+			.thenRequest(Long.MAX_VALUE)
+			.thenAwait(Duration.ofSeconds(10))
+			.thenConsumeWhile(delta -> reply.append(delta) != null)
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+
+		assertEquals(client.chat("hello"), reply.toString());
+	}
+
+	@Test
+	void missingChatClientFailsTheReply() {
+		ResponseStreamer streamer = new ResponseStreamer(
+			new StaticListableBeanFactory().getBeanProvider(StreamingChatClient.class),
+			Duration.ofMillis(50), 32, new SimpleMeterRegistry());
+
+		StepVerifier.create(streamer.reply("hi"))
+			.expectError(IllegalStateException.class)
+			.verify(Duration.ofSeconds(5));
+	}
+
+	private static ResponseStreamer streamer(StreamingChatClient client, int maxTokens, SimpleMeterRegistry registry) {
+		return new ResponseStreamer(
+			new StaticListableBeanFactory(Map.of("chatClient", client)).getBeanProvider(StreamingChatClient.class),
+			Duration.ofSeconds(1), maxTokens, registry);
+	}
+}